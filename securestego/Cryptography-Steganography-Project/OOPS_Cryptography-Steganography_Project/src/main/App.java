@@ -1,20 +1,31 @@
 package src.main;
 
 import src.main.controller.MainController;
+import src.main.service.CarrierType;
+import src.main.service.HeadlessCli;
 import src.main.ui.AppUI;
 import src.main.utils.Config;
 import src.main.utils.ExceptionHandler;
+import src.main.utils.TaskProgress;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Main Application Entry Point.
  * UPDATED:
  * - Links AppUI and MainController for Real-Time Logging.
  * - Implements Decoy Protocol Handling.
+ * - Hides whole files when the Payload Data field is empty (restored next to the carrier).
  * - Initializes the "Boot Sequence" visual effect.
+ * - Operations run asynchronously with a live progress readout and can be cancelled;
+ *   every dialog is shown on the Event Dispatch Thread.
+ * - With arguments (embed|extract|encrypt|decrypt ...) runs headless, see {@link HeadlessCli}.
  */
 public class App {
 
@@ -27,6 +38,10 @@ public class App {
 
         // 2. Initialize Controller (Passing View for Logging)
         this.controller = new MainController(view);
+        String logFile = System.getProperty(Config.LOG_FILE_PROPERTY);
+        if (logFile != null && !logFile.isBlank()) {
+            view.setLogFile(new File(logFile));
+        }
 
         // 3. Visual Boot Sequence
         view.log("BOOT SEQUENCE INITIATED...");
@@ -40,6 +55,11 @@ public class App {
     }
 
     public static void main(String[] args) {
+        // Headless mode: a command on the command line skips the UI entirely
+        if (args.length > 0) {
+            System.exit(HeadlessCli.run(args));
+        }
+
         // Ensure Thread Safety
         SwingUtilities.invokeLater(App::new);
     }
@@ -59,7 +79,9 @@ public class App {
             File dest = controller.showSaveDialog(view, "encrypted_artifact", Config.DESC_ENCRYPTED, Config.EXT_ENCRYPTED);
             if (dest == null) return;
 
-            executeTask(() -> controller.encryptFile(src, dest, view.getPassword()));
+            String pass = view.getPassword();
+            executeTask("Encryption Error", progress -> controller.encryptFile(src, dest, pass, progress),
+                    done -> showInfo("Target Encrypted Successfully."));
         });
 
         view.getDecryptBtn().addActionListener(e -> {
@@ -72,7 +94,9 @@ public class App {
             File dest = controller.showSaveDialog(view, "decrypted_file", "All Files", "");
             if (dest == null) return;
 
-            executeTask(() -> controller.decryptFile(src, dest, view.getPassword()));
+            String pass = view.getPassword();
+            executeTask("Decryption Error", progress -> controller.decryptFile(src, dest, pass, progress),
+                    done -> showInfo("Target Decrypted Successfully."));
         });
 
         // ==================================================================
@@ -99,11 +123,19 @@ public class App {
     private void handleStegoEmbed(String type, String[] extensions) {
         if (isAuthMissing()) return;
 
-        // Payload Check
+        // Payload Check: an empty message field offers to hide a file instead
+        File payloadFile = null;
         if (view.getMessage().isEmpty()) {
-            view.log("ERROR: PAYLOAD DATA MISSING. ABORTING INJECTION.");
-            JOptionPane.showMessageDialog(view, "Payload Data Required.", "INPUT ERROR", JOptionPane.WARNING_MESSAGE);
-            return;
+            int choice = JOptionPane.showConfirmDialog(view, "PAYLOAD DATA EMPTY. HIDE A FILE INSTEAD?",
+                    "FILE PAYLOAD", JOptionPane.YES_NO_OPTION);
+            if (choice == JOptionPane.YES_OPTION) {
+                payloadFile = controller.showOpenDialog(view, "SELECT FILE TO HIDE", null);
+            }
+            if (payloadFile == null) {
+                view.log("ERROR: PAYLOAD DATA MISSING. ABORTING INJECTION.");
+                JOptionPane.showMessageDialog(view, "Payload Data Required.", "INPUT ERROR", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
         }
 
         File src = getFileFromViewOrChooser("SELECT CARRIER " + type.toUpperCase(), extensions);
@@ -118,15 +150,27 @@ public class App {
         String pass = view.getPassword();
         String msg = view.getMessage();
 
-        executeTask(() -> {
-            switch (type) {
-                // Image supports Decoy flag
-                case "image" -> controller.embedInImage(src, dest, msg, pass, useDecoy);
-                // Audio/Video currently standard (can be upgraded later)
-                case "audio" -> controller.embedInAudio(src, dest, msg, pass);
-                case "video" -> controller.embedInVideo(src, dest, msg, pass);
-            }
-        });
+        if (payloadFile != null) {
+            File hidden = payloadFile;
+            executeTask("Embed Error",
+                    progress -> controller.embedFileIn(CarrierType.fromName(type), src, dest, hidden, pass, progress),
+                    done -> showInfo("File Injection Complete."));
+            return;
+        }
+
+        switch (type) {
+            // Image supports Decoy flag
+            case "image" -> executeTask("Embed Error",
+                    progress -> controller.embedInImage(src, dest, msg, pass, useDecoy, progress),
+                    done -> showInfo("Secure Injection (Scatter) Complete."));
+            // Audio/Video currently standard (can be upgraded later)
+            case "audio" -> executeTask("Embed Error",
+                    progress -> controller.embedInAudio(src, dest, msg, pass, progress),
+                    done -> showInfo("Audio Injection (Scatter) Complete."));
+            case "video" -> executeTask("Embed Error",
+                    progress -> controller.embedInVideo(src, dest, msg, pass, progress),
+                    done -> showInfo("Video Injection Complete."));
+        }
     }
 
     private void handleStegoExtract(String type, String[] extensions) {
@@ -135,23 +179,22 @@ public class App {
         File src = getFileFromViewOrChooser("SELECT STEGO " + type.toUpperCase(), extensions);
         if (src == null) return;
 
-        executeTask(() -> {
-            String result = null;
-            String pass = view.getPassword();
-
-            switch (type) {
-                case "image" -> result = controller.extractFromImage(src, pass);
-                case "audio" -> result = controller.extractFromAudio(src, pass);
-                case "video" -> result = controller.extractFromVideo(src, pass);
-            }
+        int mode = JOptionPane.showConfirmDialog(view, "RESTORE A HIDDEN FILE? (NO = READ MESSAGE)",
+                "EXTRACTION MODE", JOptionPane.YES_NO_OPTION);
+        String pass = view.getPassword();
+        if (mode == JOptionPane.YES_OPTION) {
+            executeTask(null, progress -> controller.extractFileFrom(CarrierType.fromName(type), src, pass, progress),
+                    restored -> showInfo("File restored: " + restored.getPath()));
+            return;
+        }
 
-            if (result != null) {
-                String finalResult = result;
-                SwingUtilities.invokeLater(() -> showResultDialog(finalResult));
-            } else {
-                view.log("EXTRACTION FINISHED: NO DATA OR WRONG KEY.");
-            }
-        });
+        // Failures are only logged: a wrong key and a clean carrier look the same
+        Function<TaskProgress, CompletableFuture<String>> extraction = switch (type) {
+            case "image" -> progress -> controller.extractFromImage(src, pass, progress);
+            case "audio" -> progress -> controller.extractFromAudio(src, pass, progress);
+            default -> progress -> controller.extractFromVideo(src, pass, progress);
+        };
+        executeTask(null, extraction, this::showResultDialog);
     }
 
     // ==================================================================
@@ -174,27 +217,32 @@ public class App {
         return controller.showOpenDialog(view, title, extensions);
     }
 
-    private void executeTask(Runnable task) {
+    /**
+     * Starts an operation with a fresh progress tracker shown in the task strip, and handles its
+     * outcome on the EDT: {@code onSuccess} with the result, an error dialog titled {@code errorTitle}
+     * (none if null; the controller has logged it) or nothing for a cancellation.
+     */
+    private <T> void executeTask(String errorTitle, Function<TaskProgress, CompletableFuture<T>> operation,
+                                 Consumer<T> onSuccess) {
+        TaskProgress progress = new TaskProgress();
         view.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-
-        new SwingWorker<Void, Void>() {
-            @Override
-            protected Void doInBackground() {
-                try {
-                    task.run();
-                } catch (Exception e) {
-                    view.log("CRITICAL FAILURE: " + e.getMessage());
-                    ExceptionHandler.handle(e, "OPERATION FAILED");
-                }
-                return null;
+        view.trackTask(progress);
+
+        operation.apply(progress).whenComplete((result, failure) -> SwingUtilities.invokeLater(() -> {
+            view.untrackTask(progress);
+            view.setCursor(Cursor.getDefaultCursor());
+            if (failure == null) {
+                onSuccess.accept(result);
+            } else if (errorTitle != null && !MainController.isCancellation(failure)) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                ExceptionHandler.handle(cause instanceof Exception e ? e : new Exception(cause), errorTitle);
             }
+            view.log("PROCESS THREAD RELEASED.");
+        }));
+    }
 
-            @Override
-            protected void done() {
-                view.setCursor(Cursor.getDefaultCursor());
-                view.log("PROCESS THREAD RELEASED.");
-            }
-        }.execute();
+    private void showInfo(String message) {
+        JOptionPane.showMessageDialog(view, message, "SECURE-STEGO", JOptionPane.INFORMATION_MESSAGE);
     }
 
     private boolean isAuthMissing() {
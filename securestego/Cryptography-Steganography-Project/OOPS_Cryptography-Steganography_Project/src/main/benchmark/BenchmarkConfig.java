@@ -0,0 +1,49 @@
+package src.main.benchmark;
+
+import java.io.File;
+import java.util.regex.Pattern;
+
+/**
+ * Command line options of {@link BenchmarkRunner}.
+ */
+final class BenchmarkConfig {
+
+    int warmup = 3;
+    int iterations = 5;
+    int imageSize = 1024;
+    int audioSamples = 2_000_000;
+    long videoBytes = 256L << 20;
+    long fileBytes = 64L << 20;
+    double tolerance = 0.25;
+    Pattern filter;
+    File workDir = new File(System.getProperty("java.io.tmpdir"), "securestego-bench");
+    File jsonOut;
+    File baseline;
+
+    static BenchmarkConfig parse(String[] args) {
+        BenchmarkConfig c = new BenchmarkConfig();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            switch (arg) {
+                case "--filter" -> c.filter = Pattern.compile(value);
+                case "--warmup" -> c.warmup = Math.max(0, Integer.parseInt(value));
+                case "--iterations" -> c.iterations = Math.max(1, Integer.parseInt(value));
+                case "--work" -> c.workDir = new File(value);
+                case "--image-size" -> c.imageSize = Math.max(64, Integer.parseInt(value));
+                case "--audio-samples" -> c.audioSamples = Math.max(10_000, Integer.parseInt(value));
+                case "--video-mb" -> c.videoBytes = Math.max(1, Long.parseLong(value)) << 20;
+                case "--file-mb" -> c.fileBytes = Math.max(1, Long.parseLong(value)) << 20;
+                case "--json" -> c.jsonOut = new File(value);
+                case "--baseline" -> c.baseline = new File(value);
+                case "--tolerance" -> c.tolerance = Double.parseDouble(value) / 100.0;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            i++;
+        }
+        return c;
+    }
+}
\ No newline at end of file
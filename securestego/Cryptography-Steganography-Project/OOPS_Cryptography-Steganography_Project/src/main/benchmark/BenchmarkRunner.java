@@ -0,0 +1,207 @@
+package src.main.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Micro-Benchmark Harness for the crypto & stego hot paths.
+ * * LOGIC:
+ * 1. Each case runs its setup once, then W warm-up and N measured invocations on this thread.
+ * 2. Per invocation: wall time (System.nanoTime) and bytes allocated by this thread
+ *    (com.sun.management.ThreadMXBean), reported as mean / min / stddev, MB/s and alloc/op.
+ * 3. Results can be saved as JSON and compared with a saved baseline; a case slower than the
+ *    baseline by more than the tolerance is flagged and the exit code becomes 1.
+ * * USAGE:
+ * java src.main.benchmark.BenchmarkRunner [--filter REGEX] [--warmup N] [--iterations N] [--work DIR]
+ *      [--image-size PX] [--audio-samples N] [--video-mb N] [--file-mb N]
+ *      [--json OUT] [--baseline IN] [--tolerance PCT]
+ * * Operations run single-threaded so timings and allocation counts are reproducible.
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * One measured operation; the return value is consumed so the JIT cannot drop the work.
+     */
+    @FunctionalInterface
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    static final class Case {
+        final String name;
+        final long bytesPerOp;
+        final Op op;
+
+        Case(String name, long bytesPerOp, Op op) {
+            this.name = name;
+            this.bytesPerOp = bytesPerOp;
+            this.op = op;
+        }
+    }
+
+    static final class Result {
+        final String name;
+        final double meanMs;
+        final double minMs;
+        final double stddevMs;
+        final double mbPerSec;
+        final long allocPerOp;
+
+        Result(String name, double meanMs, double minMs, double stddevMs, double mbPerSec, long allocPerOp) {
+            this.name = name;
+            this.meanMs = meanMs;
+            this.minMs = minMs;
+            this.stddevMs = stddevMs;
+            this.mbPerSec = mbPerSec;
+            this.allocPerOp = allocPerOp;
+        }
+    }
+
+    // Results of every invocation are folded in here (keeps the work observable)
+    private static volatile int sink;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = BenchmarkConfig.parse(args);
+        if (!config.workDir.isDirectory() && !config.workDir.mkdirs()) {
+            throw new IOException("Cannot create work directory: " + config.workDir);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        // 1. Build the cases (generates the synthetic carriers on first use)
+        List<Case> cases = HotPathBenchmarks.cases(config);
+
+        // 2. Measure
+        System.out.printf(Locale.ROOT, "%-44s %10s %10s %9s %10s %12s%n", "BENCHMARK", "MEAN MS", "MIN MS", "STDDEV", "MB/S", "ALLOC/OP");
+        List<Result> results = new ArrayList<>();
+        for (Case c : cases) {
+            if (config.filter != null && !config.filter.matcher(c.name).find()) {
+                continue;
+            }
+            Result r = measure(c, config.warmup, config.iterations);
+            results.add(r);
+            System.out.printf(Locale.ROOT, "%-44s %10.3f %10.3f %9.3f %10.1f %12s%n",
+                    r.name, r.meanMs, r.minMs, r.stddevMs, r.mbPerSec, formatBytes(r.allocPerOp));
+        }
+
+        // 3. Save / compare
+        if (config.jsonOut != null) {
+            Files.writeString(config.jsonOut.toPath(), toJson(results), StandardCharsets.UTF_8);
+        }
+        int regressions = 0;
+        if (config.baseline != null) {
+            regressions = compare(results, readBaseline(config.baseline), config.tolerance);
+        }
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    static Result measure(Case c, int warmup, int iterations) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            consume(c.op.run());
+        }
+
+        double[] millis = new double[iterations];
+        long allocated = 0;
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            long allocStart = THREADS.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            consume(c.op.run());
+            millis[i] = (System.nanoTime() - start) / 1e6;
+            allocated += THREADS.getThreadAllocatedBytes(threadId) - allocStart;
+        }
+
+        double sum = 0;
+        double min = Double.MAX_VALUE;
+        for (double m : millis) {
+            sum += m;
+            min = Math.min(min, m);
+        }
+        double mean = sum / iterations;
+        double variance = 0;
+        for (double m : millis) {
+            variance += (m - mean) * (m - mean);
+        }
+        double stddev = Math.sqrt(variance / Math.max(1, iterations - 1));
+        double mbPerSec = c.bytesPerOp > 0 ? (c.bytesPerOp / 1048576.0) / (mean / 1000.0) : 0;
+        return new Result(c.name, mean, min, stddev, mbPerSec, allocated / iterations);
+    }
+
+    private static void consume(Object value) {
+        sink ^= value == null ? 0 : value.hashCode();
+    }
+
+    // ==================================================================================
+    // BASELINE (one case per line so it can be diffed and read back without a JSON library)
+    // ==================================================================================
+
+    private static final Pattern BASELINE_LINE =
+            Pattern.compile("\"(.+?)\": \\{\"meanMs\": ([0-9.]+), \"minMs\": ([0-9.]+)");
+
+    static String toJson(List<Result> results) {
+        StringBuilder sb = new StringBuilder("{\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            sb.append(String.format(Locale.ROOT,
+                    "  \"%s\": {\"meanMs\": %.4f, \"minMs\": %.4f, \"stddevMs\": %.4f, \"mbPerSec\": %.2f, \"allocPerOp\": %d}%s%n",
+                    r.name, r.meanMs, r.minMs, r.stddevMs, r.mbPerSec, r.allocPerOp, i + 1 < results.size() ? "," : ""));
+        }
+        return sb.append("}\n").toString();
+    }
+
+    private static Map<String, Double> readBaseline(File file) throws IOException {
+        Map<String, Double> minMs = new HashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            Matcher m = BASELINE_LINE.matcher(line);
+            if (m.find()) {
+                minMs.put(m.group(1), Double.parseDouble(m.group(3)));
+            }
+        }
+        return minMs;
+    }
+
+    /**
+     * Compares best-case times (min is the least noisy statistic) against the baseline.
+     */
+    private static int compare(List<Result> results, Map<String, Double> baseline, double tolerance) {
+        int regressions = 0;
+        System.out.println();
+        for (Result r : results) {
+            Double before = baseline.get(r.name);
+            if (before == null) {
+                continue;
+            }
+            double change = (r.minMs - before) / before;
+            boolean regressed = change > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%-44s %+8.1f%% %s%n", r.name, change * 100, regressed ? "REGRESSION" : "ok");
+        }
+        System.out.println(regressions == 0 ? "NO REGRESSIONS." : regressions + " REGRESSION(S) ABOVE "
+                + Math.round(tolerance * 100) + "%.");
+        return regressions;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1 << 20) {
+            return String.format(Locale.ROOT, "%.1f MB", bytes / 1048576.0);
+        }
+        if (bytes >= 1 << 10) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return bytes + " B";
+    }
+}
\ No newline at end of file
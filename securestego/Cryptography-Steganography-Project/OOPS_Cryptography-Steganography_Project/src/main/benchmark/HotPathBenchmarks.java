@@ -0,0 +1,233 @@
+package src.main.benchmark;
+
+import src.main.benchmark.BenchmarkRunner.Case;
+import src.main.encryption.Decryption;
+import src.main.encryption.Encryption;
+import src.main.steganography.AudioSteganography;
+import src.main.steganography.EmbedDepth;
+import src.main.steganography.Embedder;
+import src.main.steganography.Extractor;
+import src.main.steganography.ImageSteganography;
+import src.main.steganography.LsbRaster;
+import src.main.steganography.PngEncodeOptions;
+import src.main.steganography.VideoSteganography;
+import src.main.utils.CompressionUtils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark cases for the hot paths.
+ * * CASES:
+ * - Image / audio scatter embed + extract at several payload-to-capacity ratios
+ *   (audio also through 1 MB mapping windows)
+ *   (a cost that grows towards full capacity, like the old rejection sampling, shows up here).
+ * - Video: full legacy signature scan of a large file without hidden data, and the footer lookup.
+ * - File encryption / decryption throughput (segmented GCM).
+ * - PBKDF2 at 65,536 (current) and 600,000 (OWASP 2023) iterations.
+ * - Payload compression (adaptive pack, Deflate, LZ, unpack).
+ */
+final class HotPathBenchmarks {
+
+    private static final String PASSWORD = "benchmark-passphrase";
+    private static final double[] RATIOS = {0.10, 0.50, 0.90, 0.99};
+
+    private HotPathBenchmarks() {
+    }
+
+    static List<Case> cases(BenchmarkConfig config) throws Exception {
+        List<Case> cases = new ArrayList<>();
+        File dir = config.workDir;
+
+        // Single-threaded engines: reproducible timings, allocation is measured on this thread
+        ImageSteganography image = new ImageSteganography();
+        image.setPngOptions(PngEncodeOptions.DEFAULT.withThreads(1));
+        AudioSteganography audio = new AudioSteganography();
+        VideoSteganography video = new VideoSteganography();
+        Encryption encryption = new Encryption();
+        encryption.setThreads(1);
+        Decryption decryption = new Decryption();
+        decryption.setThreads(1);
+
+        // 1. Image scatter
+        File png = SyntheticCarriers.png(dir, config.imageSize, config.imageSize);
+        int imageCapacity = LsbRaster.wrap(ImageIO.read(png)).size() / 8 - 8;
+        for (double ratio : RATIOS) {
+            String message = SyntheticCarriers.text((int) (imageCapacity * ratio));
+            File stego = new File(dir, "stego_" + percent(ratio) + ".png");
+            String label = config.imageSize + "px " + percent(ratio) + "%";
+            cases.add(new Case("image.embed " + label, png.length(), () -> {
+                image.embedMessage(png, stego, message, PASSWORD);
+                return stego.length();
+            }));
+            cases.add(new Case("image.extract " + label, png.length(), () -> {
+                if (!stego.exists()) {
+                    image.embedMessage(png, stego, message, PASSWORD);
+                }
+                return image.extractMessage(stego, PASSWORD).length();
+            }));
+        }
+
+        // 1b. Sequential layout (Embedder / Extractor): LSB kernels on a decoded raster, then whole files
+        Embedder embedder = new Embedder();
+        embedder.setPngOptions(PngEncodeOptions.DEFAULT.withThreads(1));
+        Extractor extractor = new Extractor();
+        LsbRaster decoded = LsbRaster.wrap(ImageIO.read(png));
+        byte[] sequentialBytes = new byte[imageCapacity];
+        String sequentialMessage = SyntheticCarriers.text((int) (imageCapacity * 0.99));
+        File sequentialStego = new File(dir, "stego_sequential.png");
+        String sequentialLabel = config.imageSize + "px 99%";
+        cases.add(new Case("lsb.write-seq " + sequentialLabel, sequentialBytes.length, () -> {
+            decoded.setLsbBytes(32, sequentialBytes, 0, sequentialBytes.length);
+            return sequentialBytes.length;
+        }));
+        cases.add(new Case("lsb.read-seq " + sequentialLabel, sequentialBytes.length, () -> {
+            decoded.getLsbBytes(32, sequentialBytes, 0, sequentialBytes.length);
+            return sequentialBytes.length;
+        }));
+        cases.add(new Case("image.embed-seq " + sequentialLabel, png.length(), () -> {
+            embedder.embedMessage(png, sequentialStego, sequentialMessage);
+            return sequentialStego.length();
+        }));
+        cases.add(new Case("image.extract-seq " + sequentialLabel, png.length(), () -> {
+            if (!sequentialStego.exists()) {
+                embedder.embedMessage(png, sequentialStego, sequentialMessage);
+            }
+            return extractor.extractMessage(sequentialStego).length();
+        }));
+
+        // 2. Audio scatter
+        File wav = SyntheticCarriers.wav(dir, config.audioSamples);
+        int audioCapacity = (int) audio.capacity(wav);
+        for (double ratio : RATIOS) {
+            String message = SyntheticCarriers.text((int) (audioCapacity * ratio));
+            File stego = new File(dir, "stego_" + percent(ratio) + ".wav");
+            String label = (config.audioSamples / 1000) + "k samples " + percent(ratio) + "%";
+            cases.add(new Case("audio.embed " + label, wav.length(), () -> {
+                audio.embedMessage(wav, stego, message, PASSWORD);
+                return stego.length();
+            }));
+            cases.add(new Case("audio.extract " + label, wav.length(), () -> {
+                if (!stego.exists()) {
+                    audio.embedMessage(wav, stego, message, PASSWORD);
+                }
+                return audio.extractMessage(stego, PASSWORD).length();
+            }));
+        }
+
+        // 2b. Audio through small windows (exercises the sorted multi-window path of long recordings)
+        AudioSteganography windowed = new AudioSteganography();
+        windowed.setWindowBytes(1 << 20);
+        for (double ratio : new double[]{0.10, 0.99}) {
+            String message = SyntheticCarriers.text((int) (audioCapacity * ratio));
+            File stego = new File(dir, "stego_windowed_" + percent(ratio) + ".wav");
+            String label = (config.audioSamples / 1000) + "k samples 1MB windows " + percent(ratio) + "%";
+            cases.add(new Case("audio.embed " + label, wav.length(), () -> {
+                windowed.embedMessage(wav, stego, message, PASSWORD);
+                return stego.length();
+            }));
+            cases.add(new Case("audio.extract " + label, wav.length(), () -> {
+                if (!stego.exists()) {
+                    windowed.embedMessage(wav, stego, message, PASSWORD);
+                }
+                return windowed.extractMessage(stego, PASSWORD).length();
+            }));
+        }
+
+        // 2c. Embedding depth: the 1-bit full-capacity payload at 4 bits and adaptive (fewer slots touched)
+        for (EmbedDepth depth : new EmbedDepth[]{EmbedDepth.fixed(4), EmbedDepth.adaptive(4)}) {
+            ImageSteganography deepImage = new ImageSteganography();
+            deepImage.setPngOptions(PngEncodeOptions.DEFAULT.withThreads(1));
+            deepImage.setEmbedDepth(depth);
+            String imageMessage = SyntheticCarriers.text((int) (imageCapacity * 0.99));
+            File imageStego = new File(dir, "stego_" + depth.bits() + (depth.isAdaptive() ? "a" : "") + ".png");
+            cases.add(new Case("image.embed " + config.imageSize + "px " + depth, png.length(), () -> {
+                deepImage.embedMessage(png, imageStego, imageMessage, PASSWORD);
+                return imageStego.length();
+            }));
+
+            AudioSteganography deepAudio = new AudioSteganography();
+            deepAudio.setEmbedDepth(depth);
+            String audioMessage = SyntheticCarriers.text((int) (audioCapacity * 0.99));
+            File audioStego = new File(dir, "stego_" + depth.bits() + (depth.isAdaptive() ? "a" : "") + ".wav");
+            cases.add(new Case("audio.embed " + (config.audioSamples / 1000) + "k samples " + depth, wav.length(), () -> {
+                deepAudio.embedMessage(wav, audioStego, audioMessage, PASSWORD);
+                return audioStego.length();
+            }));
+        }
+
+        // 3. Video: worst-case legacy scan (no signature anywhere) and v1 footer lookup
+        File container = SyntheticCarriers.video(dir, config.videoBytes);
+        String videoLabel = (config.videoBytes >> 20) + "MB";
+        cases.add(new Case("video.scan-miss " + videoLabel, container.length(), () -> {
+            try {
+                return video.extractMessage(container);
+            } catch (Exception expected) {
+                return expected.getMessage();
+            }
+        }));
+        File withFooter = new File(dir, "stego_video.mp4");
+        video.embedMessage(container, withFooter, "footer payload");
+        cases.add(new Case("video.footer " + videoLabel, 0, () -> video.extractMessage(withFooter)));
+
+        // 4. File crypto throughput
+        File plain = SyntheticCarriers.binaryFile(dir, config.fileBytes);
+        File sealed = new File(dir, "synthetic.enc");
+        File restored = new File(dir, "synthetic.dec");
+        String fileLabel = (config.fileBytes >> 20) + "MB";
+        cases.add(new Case("file.encrypt " + fileLabel, plain.length(), () -> {
+            encryption.encryptFile(plain, sealed, PASSWORD);
+            return sealed.length();
+        }));
+        cases.add(new Case("file.decrypt " + fileLabel, plain.length(), () -> {
+            if (!sealed.exists()) {
+                encryption.encryptFile(plain, sealed, PASSWORD);
+            }
+            decryption.decryptFile(sealed, restored, PASSWORD);
+            return restored.length();
+        }));
+
+        // 5. Key derivation cost (uncached)
+        for (int iterations : new int[]{65_536, 600_000}) {
+            cases.add(new Case("pbkdf2 " + iterations, 0, () -> pbkdf2(iterations)));
+        }
+
+        // 6. Compression
+        byte[] text = SyntheticCarriers.text(4 << 20).getBytes(StandardCharsets.UTF_8);
+        byte[] smallText = SyntheticCarriers.text(256 << 10).getBytes(StandardCharsets.UTF_8);
+        byte[] noise = SyntheticCarriers.randomBytes(1 << 20);
+        byte[] deflated = CompressionUtils.pack(text, CompressionUtils.CODEC_DEFLATE, 6);
+        byte[] lz = CompressionUtils.pack(text, CompressionUtils.CODEC_LZ, 0);
+        cases.add(new Case("compress.pack-auto text 256KB", smallText.length, () -> CompressionUtils.pack(smallText)));
+        cases.add(new Case("compress.pack-auto text 4MB", text.length, () -> CompressionUtils.pack(text)));
+        cases.add(new Case("compress.pack-auto random 1MB", noise.length, () -> CompressionUtils.pack(noise)));
+        cases.add(new Case("compress.deflate text 4MB", text.length,
+                () -> CompressionUtils.pack(text, CompressionUtils.CODEC_DEFLATE, 6)));
+        cases.add(new Case("compress.lz text 4MB", text.length,
+                () -> CompressionUtils.pack(text, CompressionUtils.CODEC_LZ, 0)));
+        cases.add(new Case("compress.unpack-deflate 4MB", text.length, () -> CompressionUtils.unpack(deflated)));
+        cases.add(new Case("compress.unpack-lz 4MB", text.length, () -> CompressionUtils.unpack(lz)));
+        cases.add(new Case("compress.gzip text 4MB", text.length, () -> CompressionUtils.compress(text)));
+
+        return cases;
+    }
+
+    private static byte[] pbkdf2(int iterations) throws Exception {
+        byte[] salt = new byte[16];
+        PBEKeySpec spec = new PBEKeySpec(PASSWORD.toCharArray(), salt, iterations, 256);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static String percent(double ratio) {
+        return String.valueOf(Math.round(ratio * 100));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package src.main.benchmark;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Reproducible Carrier Generator.
+ * Every file is derived from a fixed seed, so benchmark runs compare like with like offline.
+ * * CARRIERS:
+ * - PNG: smooth gradients plus seeded noise (compresses like a photo, not like a flat fill).
+ * - WAV: 16-bit PCM mono, a few mixed sine tones plus noise, canonical 44-byte header.
+ * - Video: opaque seeded bytes with no stego signature (worst case for the legacy scan).
+ * - Text / binary: seeded word soup (compressible) and random bytes (incompressible).
+ */
+public final class SyntheticCarriers {
+
+    private static final long SEED = 0x5EC0_57E6L;
+    private static final String[] WORDS = {
+            "secure", "stego", "carrier", "payload", "scatter", "cipher", "pixel", "sample",
+            "header", "segment", "entropy", "decoy", "layer", "key", "nonce", "frame"
+    };
+
+    private SyntheticCarriers() {
+    }
+
+    public static File png(File dir, int width, int height) throws IOException {
+        File file = new File(dir, "synthetic_" + width + "x" + height + ".png");
+        if (file.exists()) {
+            return file;
+        }
+        Random random = new Random(SEED);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / Math.max(1, width - 1) + random.nextInt(8)) & 0xFF;
+                int g = (y * 255 / Math.max(1, height - 1) + random.nextInt(8)) & 0xFF;
+                int b = ((x + y) & 0xFF) ^ random.nextInt(4);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        ImageIO.write(image, "png", file);
+        return file;
+    }
+
+    public static File wav(File dir, int samples) throws IOException {
+        File file = new File(dir, "synthetic_" + samples + ".wav");
+        if (file.exists()) {
+            return file;
+        }
+        Random random = new Random(SEED);
+        int dataBytes = samples * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        // 1. Canonical RIFF/WAVE header (PCM, mono, 16-bit, 44.1 kHz)
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataBytes)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(44100).putInt(44100 * 2)
+                .putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(dataBytes);
+
+        // 2. Tones + noise
+        for (int i = 0; i < samples; i++) {
+            double t = i / 44100.0;
+            double v = 0.4 * Math.sin(2 * Math.PI * 440 * t) + 0.2 * Math.sin(2 * Math.PI * 1330 * t);
+            buffer.putShort((short) (v * 20000 + random.nextGaussian() * 300));
+        }
+        writeFile(file, buffer.array());
+        return file;
+    }
+
+    /**
+     * Opaque container of the given size with no hidden data (written in 1 MB seeded blocks).
+     */
+    public static File video(File dir, long bytes) throws IOException {
+        File file = new File(dir, "synthetic_" + (bytes >> 20) + "mb.mp4");
+        if (file.exists() && file.length() == bytes) {
+            return file;
+        }
+        Random random = new Random(SEED);
+        byte[] block = new byte[1 << 20];
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            for (long written = 0; written < bytes; written += block.length) {
+                random.nextBytes(block);
+                out.write(block, 0, (int) Math.min(block.length, bytes - written));
+            }
+        }
+        return file;
+    }
+
+    public static File binaryFile(File dir, long bytes) throws IOException {
+        File file = new File(dir, "synthetic_" + (bytes >> 20) + "mb.bin");
+        if (file.exists() && file.length() == bytes) {
+            return file;
+        }
+        writeFile(file, randomBytes((int) bytes));
+        return file;
+    }
+
+    /**
+     * Seeded English-like text of the given length (compresses about 3-4x with Deflate).
+     */
+    public static String text(int length) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(length + 16);
+        while (sb.length() < length) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+            sb.append(random.nextInt(10) == 0 ? ". " : " ");
+            if (random.nextInt(20) == 0) {
+                sb.append(random.nextInt(100_000)).append(' ');
+            }
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    public static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(SEED).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            out.write(data);
+        }
+    }
+}
\ No newline at end of file
@@ -1,17 +1,20 @@
 package src.main.controller;
 
-import src.main.encryption.Decryption;
-import src.main.encryption.Encryption;
-import src.main.steganography.AudioSteganography;
-import src.main.steganography.ImageSteganography;
-import src.main.steganography.VideoSteganography;
+import src.main.service.BatchScheduler;
+import src.main.service.CarrierType;
+import src.main.service.StegoService;
 import src.main.ui.AppUI;
-import src.main.utils.ExceptionHandler;
+import src.main.utils.TaskProgress;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Main Controller.
@@ -19,184 +22,246 @@ import java.io.File;
  * * UPDATES:
  * - Passes 'Auth Key' to Image/Audio engines to seed the PRNG Scatter.
  * - Manages Decoy logic and Real-time Terminal Logging.
+ * - Pipelines run in {@link StegoService}; this class adds dialogs and terminal output.
+ * - Operations run on a small, reused worker pool and return a CompletableFuture. Each takes a
+ *   {@link TaskProgress} that the engines report to and that cancels the operation; result and
+ *   error dialogs are left to the caller on the Event Dispatch Thread.
+ * - Output files are written to a hidden sibling and moved over the destination only on success,
+ *   so a failed or cancelled operation never leaves a damaged destination behind.
  */
 public class MainController {
 
+    // UI operations share a small, reused pool instead of one thread per click
+    private static final int UI_WORKERS = 2;
+
     private final AppUI view;
-    private final Encryption encryption;
-    private final Decryption decryption;
-    private final ImageSteganography imageStego;
-    private final AudioSteganography audioStego;
-    private final VideoSteganography videoStego;
+    private final StegoService service;
+    private final BatchScheduler scheduler = new BatchScheduler(UI_WORKERS, BatchScheduler.defaultMemoryBudget());
 
     private File lastSelectedDirectory;
 
     public MainController(AppUI view) {
         this.view = view;
-        this.encryption = new Encryption();
-        this.decryption = new Decryption();
-        this.imageStego = new ImageSteganography();
-        this.audioStego = new AudioSteganography();
-        this.videoStego = new VideoSteganography();
+        this.service = new StegoService();
+        this.service.setLog(view::log);
 
         this.lastSelectedDirectory = new File(System.getProperty("user.home"));
     }
 
+    /**
+     * Enables the compression stage in front of message encryption. Extraction always
+     * understands both forms.
+     */
+    public void setCompressPayloads(boolean compressPayloads) {
+        service.setCompressPayloads(compressPayloads);
+    }
+
     // ==================================================================================
     // CRYPTOGRAPHY OPERATIONS (AES-256-GCM)
     // ==================================================================================
 
-    public void encryptFile(File source, File destination, String password) {
-        try {
-            view.log("INITIATING AES-256-GCM ENCRYPTION PROTOCOL...");
-            view.log("SOURCE: " + source.getName() + " | SIZE: " + source.length() + " BYTES");
+    public CompletableFuture<Void> encryptFile(File source, File destination, String password, TaskProgress progress) {
+        view.log("INITIATING AES-256-GCM ENCRYPTION PROTOCOL...");
+        view.log("SOURCE: " + source.getName() + " | SIZE: " + source.length() + " BYTES");
 
+        return submit(progress, "CRITICAL ERROR: ENCRYPTION FAILED", destination, target -> {
             long startTime = System.currentTimeMillis();
-            encryption.encryptFile(source, destination, password);
+            service.encryptFile(source, target, password);
             long duration = System.currentTimeMillis() - startTime;
 
             view.log("ENCRYPTION COMPLETE IN " + duration + "MS.");
             view.log("ARTIFACT GENERATED: " + destination.getName());
-
-            JOptionPane.showMessageDialog(view, "Target Encrypted Successfully.", "SECURE-STEGO", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            view.log("CRITICAL ERROR: ENCRYPTION FAILED.");
-            ExceptionHandler.handle(e, "Encryption Error");
-        }
+            return null;
+        });
     }
 
-    public void decryptFile(File source, File destination, String password) {
-        try {
-            view.log("ATTEMPTING DECRYPTION ON: " + source.getName());
-            view.log("VERIFYING AUTH KEY INTEGRITY...");
+    public CompletableFuture<Void> decryptFile(File source, File destination, String password, TaskProgress progress) {
+        view.log("ATTEMPTING DECRYPTION ON: " + source.getName());
+        view.log("VERIFYING AUTH KEY INTEGRITY...");
 
+        return submit(progress, "ACCESS DENIED: DECRYPTION FAILED (INVALID KEY OR CORRUPT FILE)", destination, target -> {
             long startTime = System.currentTimeMillis();
-            decryption.decryptFile(source, destination, password);
+            service.decryptFile(source, target, password);
             long duration = System.currentTimeMillis() - startTime;
 
             view.log("ACCESS GRANTED. FILE RESTORED IN " + duration + "MS.");
-            JOptionPane.showMessageDialog(view, "Target Decrypted Successfully.", "SECURE-STEGO", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            view.log("ACCESS DENIED: DECRYPTION FAILED (INVALID KEY OR CORRUPT FILE).");
-            ExceptionHandler.handle(e, "Decryption Error");
-        }
+            return null;
+        });
     }
 
     // ==================================================================================
     // STEGANOGRAPHY OPERATIONS (Scatter Mode Enabled)
     // ==================================================================================
 
-    public void embedInImage(File src, File dest, String msg, String pass, boolean useDecoy) {
-        try {
-            view.log("ANALYZING IMAGE CARRIER: " + src.getName());
-
-            String payloadToHide;
-            if (useDecoy) {
-                view.log("WARNING: DECOY PROTOCOL ACTIVE.");
-                view.log("GENERATING DUAL-LAYER PAYLOAD STRUCTURE...");
-                payloadToHide = "REAL_LAYER::" + encryption.encryptMessage(msg, pass);
-            } else {
-                view.log("ENCRYPTING PAYLOAD (AES-256)...");
-                payloadToHide = encryption.encryptMessage(msg, pass);
-            }
+    public CompletableFuture<Void> embedInImage(File src, File dest, String msg, String pass, boolean useDecoy,
+                                                TaskProgress progress) {
+        view.log("ANALYZING IMAGE CARRIER: " + src.getName());
 
-            view.log("INITIALIZING PRNG WITH AUTH KEY SEED...");
-            view.log("SCATTERING PAYLOAD ACROSS PIXEL DATA...");
+        if (useDecoy) {
+            view.log("WARNING: DECOY PROTOCOL ACTIVE.");
+            view.log("GENERATING DUAL-LAYER PAYLOAD STRUCTURE...");
+        } else {
+            view.log("ENCRYPTING PAYLOAD (AES-256)...");
+        }
+        view.log("INITIALIZING PRNG WITH AUTH KEY SEED...");
+        view.log("SCATTERING PAYLOAD ACROSS PIXEL DATA...");
 
+        return submit(progress, "ERROR: IMAGE INJECTION FAILED", dest, target -> {
             // PASS PASSWORD HERE FOR SCATTER LOGIC
-            imageStego.embedMessage(src, dest, payloadToHide, pass);
+            service.embed(CarrierType.IMAGE, src, target, msg, pass, useDecoy);
 
             view.log("STEGANOGRAPHY COMPLETE. OUTPUT: " + dest.getName());
-            JOptionPane.showMessageDialog(view, "Secure Injection (Scatter) Complete.", "SECURE-STEGO", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            view.log("ERROR: IMAGE INJECTION FAILED.");
-            ExceptionHandler.handle(e, "Embed Error");
-        }
+            return null;
+        });
     }
 
-    public String extractFromImage(File src, String pass) {
-        try {
-            view.log("RECONSTRUCTING PRNG SEQUENCE FROM AUTH KEY...");
-            view.log("SCANNING SCATTERED PIXELS...");
+    public CompletableFuture<String> extractFromImage(File src, String pass, TaskProgress progress) {
+        view.log("RECONSTRUCTING PRNG SEQUENCE FROM AUTH KEY...");
+        view.log("SCANNING SCATTERED PIXELS...");
 
+        return submit(progress, "ERROR: EXTRACTION FAILED (WRONG KEY OR NO DATA)", null, target -> {
             // PASS PASSWORD HERE FOR SCATTER LOGIC
-            String securePayload = imageStego.extractMessage(src, pass);
+            String plainText = service.extract(CarrierType.IMAGE, src, pass);
 
-            view.log("ENCRYPTED PAYLOAD FOUND. ATTEMPTING DECRYPTION...");
+            view.log("ENCRYPTED PAYLOAD FOUND AND DECRYPTED.");
+            return plainText;
+        });
+    }
 
-            if (securePayload.startsWith("REAL_LAYER::")) {
-                securePayload = securePayload.replace("REAL_LAYER::", "");
-                view.log("NOTICE: DECOY LAYER BYPASSED. ACCESSING CORE.");
-            }
+    public CompletableFuture<Void> embedInAudio(File src, File dest, String msg, String pass, TaskProgress progress) {
+        view.log("ANALYZING AUDIO WAVEFORM...");
+        view.log("INITIALIZING PRNG SCATTER ENGINE...");
+        view.log("MODIFYING RANDOM PCM SAMPLES...");
 
-            return decryption.decryptMessage(securePayload, pass);
-        } catch (Exception e) {
-            view.log("ERROR: EXTRACTION FAILED (WRONG KEY OR NO DATA).");
+        return submit(progress, "ERROR: AUDIO INJECTION FAILED", dest, target -> {
+            // PASS PASSWORD HERE FOR SCATTER LOGIC
+            service.embed(CarrierType.AUDIO, src, target, msg, pass, false);
+
+            view.log("SUCCESS: AUDIO CARRIER GENERATED.");
             return null;
-        }
+        });
     }
 
-    public void embedInAudio(File src, File dest, String msg, String pass) {
-        try {
-            view.log("ANALYZING AUDIO WAVEFORM...");
-            String securePayload = encryption.encryptMessage(msg, pass);
+    public CompletableFuture<String> extractFromAudio(File src, String pass, TaskProgress progress) {
+        view.log("RECONSTRUCTING SCATTER PATTERN...");
+        view.log("DECRYPTING STREAM...");
 
-            view.log("INITIALIZING PRNG SCATTER ENGINE...");
-            view.log("MODIFYING RANDOM PCM SAMPLES...");
+        // PASS PASSWORD HERE FOR SCATTER LOGIC
+        return submit(progress, "ERROR: AUDIO EXTRACTION FAILED", null,
+                target -> service.extract(CarrierType.AUDIO, src, pass));
+    }
 
-            // PASS PASSWORD HERE FOR SCATTER LOGIC
-            audioStego.embedMessage(src, dest, securePayload, pass);
+    public CompletableFuture<Void> embedInVideo(File src, File dest, String msg, String pass, TaskProgress progress) {
+        view.log("ANALYZING VIDEO CONTAINER...");
+        // Video does not support scatter, so we just encrypt the payload
+        view.log("APPENDING ENCRYPTED DATA TO EOF...");
 
-            view.log("SUCCESS: AUDIO CARRIER GENERATED.");
-            JOptionPane.showMessageDialog(view, "Audio Injection (Scatter) Complete.", "SECURE-STEGO", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            view.log("ERROR: AUDIO INJECTION FAILED.");
-            ExceptionHandler.handle(e, "Embed Error");
-        }
+        return submit(progress, "ERROR: VIDEO INJECTION FAILED", dest, target -> {
+            service.embed(CarrierType.VIDEO, src, target, msg, pass, false);
+
+            view.log("SUCCESS: VIDEO CARRIER GENERATED.");
+            return null;
+        });
     }
 
-    public String extractFromAudio(File src, String pass) {
-        try {
-            view.log("RECONSTRUCTING SCATTER PATTERN...");
+    public CompletableFuture<String> extractFromVideo(File src, String pass, TaskProgress progress) {
+        view.log("SCANNING VIDEO EOF SIGNATURE...");
+        view.log("DECRYPTING PAYLOAD...");
 
-            // PASS PASSWORD HERE FOR SCATTER LOGIC
-            String securePayload = audioStego.extractMessage(src, pass);
+        return submit(progress, "ERROR: VIDEO EXTRACTION FAILED", null,
+                target -> service.extract(CarrierType.VIDEO, src, pass));
+    }
+
+    // ==================================================================================
+    // FILE PAYLOADS (Any carrier type)
+    // ==================================================================================
 
-            view.log("DECRYPTING STREAM...");
-            return decryption.decryptMessage(securePayload, pass);
-        } catch (Exception e) {
-            view.log("ERROR: AUDIO EXTRACTION FAILED.");
+    public CompletableFuture<Void> embedFileIn(CarrierType type, File src, File dest, File payloadFile, String pass,
+                                               TaskProgress progress) {
+        view.log("PACKING FILE PAYLOAD: " + payloadFile.getName() + " (" + payloadFile.length() + " BYTES)");
+        view.log("STREAMING MANIFEST -> COMPRESSION -> AES-256-GCM SEGMENTS...");
+
+        return submit(progress, "ERROR: FILE INJECTION FAILED", dest, target -> {
+            service.embedFile(type, src, target, payloadFile, pass);
+
+            view.log("SUCCESS: FILE HIDDEN. OUTPUT: " + dest.getName());
             return null;
-        }
+        });
     }
 
-    public void embedInVideo(File src, File dest, String msg, String pass) {
-        try {
-            view.log("ANALYZING VIDEO CONTAINER...");
-            // Video does not support scatter, so we just encrypt the payload
-            String securePayload = encryption.encryptMessage(msg, pass);
+    /**
+     * Restores a hidden file next to the carrier and completes with it.
+     */
+    public CompletableFuture<File> extractFileFrom(CarrierType type, File src, String pass, TaskProgress progress) {
+        view.log("RECONSTRUCTING HIDDEN FILE...");
+
+        return submit(progress, "ERROR: FILE EXTRACTION FAILED", null, target -> {
+            File restored = service.extractFile(type, src, src.getAbsoluteFile().getParentFile(), pass);
+            view.log("FILE VERIFIED (SHA-256). OUTPUT: " + restored.getPath());
+            return restored;
+        });
+    }
 
-            view.log("APPENDING ENCRYPTED DATA TO EOF...");
-            videoStego.embedMessage(src, dest, securePayload);
+    // ==================================================================================
+    // ASYNC EXECUTION
+    // ==================================================================================
 
-            view.log("SUCCESS: VIDEO CARRIER GENERATED.");
-            JOptionPane.showMessageDialog(view, "Video Injection Complete.", "SECURE-STEGO", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            view.log("ERROR: VIDEO INJECTION FAILED.");
-            ExceptionHandler.handle(e, "Embed Error");
-        }
+    /**
+     * An operation run by {@link #submit}; {@code target} is where it writes its output (null if none).
+     */
+    private interface Job<T> {
+        T call(File target) throws Exception;
     }
 
-    public String extractFromVideo(File src, String pass) {
-        try {
-            view.log("SCANNING VIDEO EOF SIGNATURE...");
-            String securePayload = videoStego.extractMessage(src);
-            view.log("DECRYPTING PAYLOAD...");
-            return decryption.decryptMessage(securePayload, pass);
-        } catch (Exception e) {
-            view.log("ERROR: VIDEO EXTRACTION FAILED.");
-            return null;
-        }
+    /**
+     * Runs one operation on the worker pool with {@code progress} bound to the worker thread.
+     * A failure is logged as {@code failureLog}. The job writes to a hidden sibling of {@code output}
+     * that replaces it only on success: a failed or cancelled operation removes its partial file and
+     * leaves an existing destination (including an in-place carrier) as it was.
+     */
+    private <T> CompletableFuture<T> submit(TaskProgress progress, String failureLog, File output, Job<T> job) {
+        return scheduler.call(0, () -> {
+            TaskProgress.Scope bound = progress.bind();
+            File staged = null;
+            try {
+                staged = output != null ? stagingFile(output) : null;
+                T result = job.call(staged);
+                if (staged != null) {
+                    // A cancel requested after the last checkpoint still keeps the destination
+                    progress.checkCancelled();
+                    Files.move(staged.toPath(), output.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                return result;
+            } finally {
+                if (staged != null) {
+                    Files.deleteIfExists(staged.toPath());
+                }
+                bound.close();
+            }
+        }).whenComplete((result, failure) -> {
+            if (failure == null) {
+                return;
+            }
+            if (isCancellation(failure)) {
+                view.log(output != null ? "OPERATION CANCELLED. OUTPUT NOT WRITTEN: " + output.getName() : "OPERATION CANCELLED.");
+            } else {
+                view.log(failureLog + " -> " + failure.getMessage());
+            }
+        });
+    }
+
+    private static File stagingFile(File output) throws Exception {
+        File dir = output.getAbsoluteFile().getParentFile();
+        return Files.createTempFile(dir.toPath(), ".stego-", ".part").toFile();
+    }
+
+    /**
+     * True if the failure of a future returned here is a user cancellation.
+     */
+    public static boolean isCancellation(Throwable failure) {
+        Throwable t = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return t instanceof CancellationException;
     }
 
     // ==================================================================================
@@ -2,24 +2,18 @@ package src.main.encryption;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
-import java.security.spec.KeySpec;
 import java.util.Base64;
 
 public class AESAlgorithm {
 
     private static final String ENCRYPT_ALGO = "AES/GCM/NoPadding";
-    private static final String KEY_DERIVATION_ALGO = "PBKDF2WithHmacSHA256";
     private static final int TAG_LENGTH_BIT = 128;
     private static final int IV_LENGTH_BYTE = 12;
     private static final int SALT_LENGTH_BYTE = 16;
-    private static final int AES_KEY_BIT = 256;
     private static final int ITERATION_COUNT = 600000;
 
     // Encrypt raw bytes (Used for compressed data)
@@ -76,10 +70,8 @@ public class AESAlgorithm {
     }
 
     private SecretKey getSecretKey(String password, byte[] salt) throws Exception {
-        SecretKeyFactory factory = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGO);
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, AES_KEY_BIT);
-        SecretKey tmp = factory.generateSecret(spec);
-        return new SecretKeySpec(tmp.getEncoded(), "AES");
+        // 600k iterations: the session cache matters most here
+        return KeyCache.shared().derive(password, salt, ITERATION_COUNT);
     }
 
     private byte[] getRandomBytes(int length) {
@@ -1,19 +1,22 @@
 package src.main.encryption;
 
+import src.main.utils.TaskProgress;
+
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.security.spec.KeySpec;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.CancellationException;
 
 /**
  * Core Decryption Engine.
@@ -22,6 +25,9 @@ import java.util.Base64;
  * 1. Read Salt (16 bytes) & IV (12 bytes) from the header.
  * 2. Regenerate the Secret Key using the Password + Salt.
  * 3. Perform Authenticated Decryption.
+ * * Files are decrypted from the segmented format when its header is present,
+ * otherwise from the original single-stream layout.
+ * * File decryption reports to the calling thread's {@link TaskProgress} and stops when it is cancelled.
  */
 public class Decryption {
 
@@ -30,13 +36,46 @@ public class Decryption {
     private static final int IV_LENGTH_BYTE = 12;
     private static final int SALT_LENGTH_BYTE = 16;
     private static final int ITERATION_COUNT = 65536;
-    private static final int KEY_LENGTH_BIT = 256;
+
+    // Cores used for segmented file decryption (segments are independent)
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Sets how many segments are decrypted concurrently; 1 keeps everything on the calling thread.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
 
     // ==================================================================================
     // FILE DECRYPTION
     // ==================================================================================
 
     public void decryptFile(File inputFile, File outputFile, String password) throws Exception {
+        // Segmented files are verified and written one segment at a time
+        try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            SegmentedFileCipher format = SegmentedFileCipher.read(in);
+            if (format != null) {
+                SecretKey secretKey = getSecretKey(password, format.salt());
+                try (FileChannel out = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    format.decrypt(in, out, secretKey, threads);
+                } catch (Exception e) {
+                    // Never leave partially restored plaintext behind
+                    Files.deleteIfExists(outputFile.toPath());
+                    throw e;
+                }
+                return;
+            }
+        }
+
+        decryptLegacyFile(inputFile, outputFile, password);
+    }
+
+    /**
+     * Single-GCM-stream files written before the segmented format ([Salt][IV][Ciphertext+Tag]).
+     */
+    private void decryptLegacyFile(File inputFile, File outputFile, String password) throws Exception {
         try (FileInputStream fis = new FileInputStream(inputFile)) {
 
             // 1. Read the Salt (First 16 Bytes)
@@ -59,6 +98,8 @@ public class Decryption {
             cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
 
             // 5. Decrypt Stream
+            TaskProgress progress = TaskProgress.current();
+            progress.begin("DECRYPT", inputFile.length());
             try (CipherInputStream cis = new CipherInputStream(fis, cipher);
                  FileOutputStream fos = new FileOutputStream(outputFile)) {
 
@@ -66,37 +107,74 @@ public class Decryption {
                 int count;
                 while ((count = cis.read(buffer)) != -1) {
                     fos.write(buffer, 0, count);
+                    progress.advance(count);
                 }
+            } catch (CancellationException e) {
+                Files.deleteIfExists(outputFile.toPath());
+                throw e;
             }
         }
     }
 
     // ==================================================================================
-    // MESSAGE (STRING) DECRYPTION
+    // MESSAGE DECRYPTION (STRING & RAW BYTES)
     // ==================================================================================
 
     public String decryptMessage(String encryptedBase64, String password) throws Exception {
         // 1. Decode Base64 to get raw bytes
         byte[] combined = Base64.getDecoder().decode(encryptedBase64);
 
-        // 2. Extract Salt
+        // 2. Decrypt the raw blob
+        return new String(decryptBytes(combined, password), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decrypts a raw blob produced by {@link Encryption#encryptBytes(byte[], String)}.
+     */
+    public byte[] decryptBytes(byte[] combined, String password) throws Exception {
+        // Session master key blobs; a legacy salt can start with the magic by chance
+        if (SessionMasterKey.isMasterKeyBlob(combined)) {
+            try {
+                return decryptWithMasterKey(combined, password);
+            } catch (AEADBadTagException e) {
+                // Not a master key blob after all: fall through
+            }
+        }
+
+        if (combined.length < SALT_LENGTH_BYTE + IV_LENGTH_BYTE) {
+            throw new Exception("Message corrupted: Missing Salt/IV header.");
+        }
+
+        // 1. Extract Salt
         byte[] salt = Arrays.copyOfRange(combined, 0, SALT_LENGTH_BYTE);
 
-        // 3. Extract IV
+        // 2. Extract IV
         byte[] iv = Arrays.copyOfRange(combined, SALT_LENGTH_BYTE, SALT_LENGTH_BYTE + IV_LENGTH_BYTE);
 
-        // 4. Extract Encrypted Content
-        byte[] encryptedContent = Arrays.copyOfRange(combined, SALT_LENGTH_BYTE + IV_LENGTH_BYTE, combined.length);
-
-        // 5. Regenerate Key & Decrypt
+        // 3. Regenerate Key & Decrypt the remaining content in place
         SecretKey secretKey = getSecretKey(password, salt);
 
         Cipher cipher = Cipher.getInstance(ALGORITHM);
         cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
 
-        byte[] decryptedBytes = cipher.doFinal(encryptedContent);
+        int offset = SALT_LENGTH_BYTE + IV_LENGTH_BYTE;
+        return cipher.doFinal(combined, offset, combined.length - offset);
+    }
+
+    private byte[] decryptWithMasterKey(byte[] combined, String password) throws Exception {
+        int offset = SessionMasterKey.MAGIC.length;
+        byte[] masterSalt = Arrays.copyOfRange(combined, offset, offset + SessionMasterKey.SALT_LENGTH);
+        offset += SessionMasterKey.SALT_LENGTH;
+        byte[] hkdfSalt = Arrays.copyOfRange(combined, offset, offset + SessionMasterKey.SALT_LENGTH);
+        offset += SessionMasterKey.SALT_LENGTH;
+        byte[] iv = Arrays.copyOfRange(combined, offset, offset + IV_LENGTH_BYTE);
+        offset += IV_LENGTH_BYTE;
 
-        return new String(decryptedBytes, StandardCharsets.UTF_8);
+        SecretKey messageKey = SessionMasterKey.messageKey(password, masterSalt, hkdfSalt, ITERATION_COUNT);
+
+        Cipher cipher = Cipher.getInstance(ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, messageKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+        return cipher.doFinal(combined, offset, combined.length - offset);
     }
 
     // ==================================================================================
@@ -104,9 +182,7 @@ public class Decryption {
     // ==================================================================================
 
     private SecretKey getSecretKey(String password, byte[] salt) throws Exception {
-        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, KEY_LENGTH_BIT);
-        SecretKey tmp = factory.generateSecret(spec);
-        return new SecretKeySpec(tmp.getEncoded(), "AES");
+        // Repeated password + salt pairs are stretched once per session
+        return KeyCache.shared().derive(password, salt, ITERATION_COUNT);
     }
 }
\ No newline at end of file
@@ -1,19 +1,17 @@
 package src.main.encryption;
 
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.PBEKeySpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.security.SecureRandom;
-import java.security.spec.KeySpec;
 import java.util.Base64;
+import java.util.concurrent.CancellationException;
 
 /**
  * Core Encryption Engine.
@@ -27,48 +25,75 @@ public class Encryption {
     private static final int IV_LENGTH_BYTE = 12;  // NIST recommended IV length for GCM
     private static final int SALT_LENGTH_BYTE = 16;
     private static final int ITERATION_COUNT = 65536;
-    private static final int KEY_LENGTH_BIT = 256;
+
+    // Cores used for segmented file encryption (segments are independent)
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // Master salt of the current session when master key mode is on, otherwise null
+    private byte[] sessionMasterSalt;
+
+    /**
+     * Sets how many segments are encrypted concurrently; 1 keeps everything on the calling thread.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
 
     // ==================================================================================
     // FILE ENCRYPTION
     // ==================================================================================
 
+    /**
+     * Encrypts a file into the segmented format ({@link SegmentedFileCipher}):
+     * 1 MB segments, each with its own nonce and tag, through direct buffers.
+     * A cancelled run ({@link src.main.utils.TaskProgress}) deletes the partial output.
+     */
     public void encryptFile(File inputFile, File outputFile, String password) throws Exception {
-        // 1. Generate Random Salt and IV
+        // 1. Generate Random Salt and Nonce Prefix
         byte[] salt = getRandomBytes(SALT_LENGTH_BYTE);
-        byte[] iv = getRandomBytes(IV_LENGTH_BYTE);
+        byte[] noncePrefix = getRandomBytes(SegmentedFileCipher.NONCE_PREFIX_LENGTH);
 
         // 2. Derive Secret Key from Password
         SecretKey secretKey = getSecretKey(password, salt);
 
-        // 3. Initialize Cipher
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
-
-        // 4. Write Header (Salt + IV) to the beginning of the file
-        // This is needed for decryption later
-        try (FileOutputStream fos = new FileOutputStream(outputFile)) {
-            fos.write(salt);
-            fos.write(iv);
-
-            // 5. Encrypt File Stream
-            try (CipherOutputStream cos = new CipherOutputStream(fos, cipher);
-                 FileInputStream fis = new FileInputStream(inputFile)) {
-
-                byte[] buffer = new byte[8192]; // 8KB Buffer
-                int count;
-                while ((count = fis.read(buffer)) != -1) {
-                    cos.write(buffer, 0, count);
-                }
-            }
+        // 3. Write Header + Sealed Segments
+        SegmentedFileCipher format = SegmentedFileCipher.create(salt, noncePrefix, SegmentedFileCipher.DEFAULT_SEGMENT_SIZE);
+        try (FileChannel in = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            format.encrypt(in, out, secretKey, threads);
+        } catch (CancellationException e) {
+            Files.deleteIfExists(outputFile.toPath());
+            throw e;
         }
     }
 
     // ==================================================================================
-    // MESSAGE (STRING) ENCRYPTION
+    // MESSAGE ENCRYPTION (STRING & RAW BYTES)
     // ==================================================================================
 
+    /**
+     * Session master key mode: PBKDF2 runs once per session and each message key comes
+     * from HKDF with a random salt ({@link SessionMasterKey}). Off by default.
+     */
+    public void setSessionMasterKey(boolean enabled) {
+        this.sessionMasterSalt = enabled ? getRandomBytes(SessionMasterKey.SALT_LENGTH) : null;
+    }
+
     public String encryptMessage(String message, String password) throws Exception {
+        // Return as Base64 String for text-only consumers
+        return Base64.getEncoder().encodeToString(encryptBytes(message.getBytes(StandardCharsets.UTF_8), password));
+    }
+
+    /**
+     * Encrypts raw bytes and returns the binary blob; stego carriers store it as-is,
+     * which avoids the one-third Base64 expansion.
+     */
+    public byte[] encryptBytes(byte[] plaintext, String password) throws Exception {
+        if (sessionMasterSalt != null) {
+            return encryptWithMasterKey(plaintext, password);
+        }
+
         byte[] salt = getRandomBytes(SALT_LENGTH_BYTE);
         byte[] iv = getRandomBytes(IV_LENGTH_BYTE);
 
@@ -77,16 +102,28 @@ public class Encryption {
         Cipher cipher = Cipher.getInstance(ALGORITHM);
         cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
 
-        byte[] encryptedBytes = cipher.doFinal(message.getBytes(StandardCharsets.UTF_8));
-
-        // Combine all parts: [Salt] + [IV] + [EncryptedData]
-        byte[] combined = new byte[salt.length + iv.length + encryptedBytes.length];
+        // Combine all parts: [Salt] + [IV] + [EncryptedData], encrypted straight into place
+        byte[] combined = new byte[salt.length + iv.length + cipher.getOutputSize(plaintext.length)];
         System.arraycopy(salt, 0, combined, 0, salt.length);
         System.arraycopy(iv, 0, combined, salt.length, iv.length);
-        System.arraycopy(encryptedBytes, 0, combined, salt.length + iv.length, encryptedBytes.length);
+        cipher.doFinal(plaintext, 0, plaintext.length, combined, salt.length + iv.length);
+        return combined;
+    }
+
+    private byte[] encryptWithMasterKey(byte[] plaintext, String password) throws Exception {
+        byte[] hkdfSalt = getRandomBytes(SessionMasterKey.SALT_LENGTH);
+        byte[] iv = getRandomBytes(IV_LENGTH_BYTE);
+
+        SecretKey messageKey = SessionMasterKey.messageKey(password, sessionMasterSalt, hkdfSalt, ITERATION_COUNT);
+
+        Cipher cipher = Cipher.getInstance(ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, messageKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+        byte[] encryptedBytes = cipher.doFinal(plaintext);
 
-        // Return as Base64 String for easy storage in Steganography
-        return Base64.getEncoder().encodeToString(combined);
+        // Combine all parts: [Magic] + [Master Salt] + [HKDF Salt] + [IV] + [EncryptedData]
+        ByteBuffer combined = ByteBuffer.allocate(SessionMasterKey.HEADER_SIZE + iv.length + encryptedBytes.length);
+        combined.put(SessionMasterKey.MAGIC).put(sessionMasterSalt).put(hkdfSalt).put(iv).put(encryptedBytes);
+        return combined.array();
     }
 
     // ==================================================================================
@@ -94,10 +131,8 @@ public class Encryption {
     // ==================================================================================
 
     private SecretKey getSecretKey(String password, byte[] salt) throws Exception {
-        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATION_COUNT, KEY_LENGTH_BIT);
-        SecretKey tmp = factory.generateSecret(spec);
-        return new SecretKeySpec(tmp.getEncoded(), "AES");
+        // Repeated password + salt pairs are stretched once per session
+        return KeyCache.shared().derive(password, salt, ITERATION_COUNT);
     }
 
     private byte[] getRandomBytes(int length) {
@@ -0,0 +1,259 @@
+package src.main.encryption;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * SESSION KEY CACHE.
+ * Remembers PBKDF2 results so the same passphrase + salt is stretched only once per session.
+ * * LOGIC:
+ * 1. Entries are keyed by (HMAC of the password under a random session secret, salt, iterations);
+ *    the password itself is never stored.
+ * 2. Bounded size (least recently used entry evicted) and a time-to-live per entry.
+ * 3. Derived key bytes are overwritten with zeros when an entry is evicted, expires or is cleared.
+ * 4. Concurrent misses on the same entry wait for one derivation instead of each running PBKDF2.
+ * * Callers receive a fresh SecretKeySpec per lookup; the cached array is never handed out.
+ */
+public final class KeyCache {
+
+    private static final String KEY_DERIVATION_ALGO = "PBKDF2WithHmacSHA256";
+    private static final int KEY_LENGTH_BIT = 256;
+
+    public static final int DEFAULT_MAX_ENTRIES = 32;
+    public static final long DEFAULT_TTL_MILLIS = 15 * 60 * 1000L;
+
+    private static final KeyCache SHARED = new KeyCache(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final byte[] sessionSecret = new byte[32];
+    private final LinkedHashMap<Entry, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Entry, Long> created = new LinkedHashMap<>();
+    private final Map<Entry, CompletableFuture<SecretKey>> inFlight = new HashMap<>();
+
+    // Last lookup of the calling thread, for the terminal log
+    private final ThreadLocal<String> lastLookup = new ThreadLocal<>();
+
+    private long hits;
+    private long misses;
+
+    public KeyCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        new SecureRandom().nextBytes(sessionSecret);
+    }
+
+    /**
+     * The cache shared by every engine in this session.
+     */
+    public static KeyCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the PBKDF2-HMAC-SHA256 key for the arguments, deriving it only on a miss.
+     */
+    public SecretKey derive(String password, byte[] salt, int iterations) throws Exception {
+        long start = System.nanoTime();
+        Entry entry = new Entry(fingerprint(password), salt, iterations);
+
+        CompletableFuture<SecretKey> pending;
+        CompletableFuture<SecretKey> own = null;
+        synchronized (this) {
+            evictExpired();
+            byte[] cached = entries.get(entry);
+            if (cached != null) {
+                hits++;
+                SecretKey key = new SecretKeySpec(cached, "AES");
+                record("CACHE HIT", start);
+                return key;
+            }
+            pending = inFlight.get(entry);
+            if (pending == null) {
+                misses++;
+                own = new CompletableFuture<>();
+                inFlight.put(entry, own);
+            } else {
+                hits++;
+            }
+        }
+
+        // Another thread is already stretching this entry: copy its result (never the cached array,
+        // which clear(), expiry or eviction may zeroize at any time)
+        if (own == null) {
+            byte[] shared;
+            try {
+                shared = pending.get().getEncoded();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+            try {
+                SecretKey key = new SecretKeySpec(shared, "AES");
+                record("CACHE HIT (SHARED)", start);
+                return key;
+            } finally {
+                zeroize(shared);
+            }
+        }
+
+        // Stretch outside the lock so other passwords are not blocked
+        byte[] derived;
+        try {
+            derived = pbkdf2(password, salt, iterations);
+        } catch (Exception e) {
+            synchronized (this) {
+                inFlight.remove(entry);
+            }
+            own.completeExceptionally(e);
+            throw e;
+        }
+        // Both specs copy the bytes now, before the array is published to the cache
+        SecretKey key = new SecretKeySpec(derived, "AES");
+        SecretKey forWaiters = new SecretKeySpec(derived, "AES");
+
+        synchronized (this) {
+            inFlight.remove(entry);
+            byte[] previous = entries.put(entry, derived);
+            if (previous != null) {
+                zeroize(previous);
+            }
+            created.remove(entry); // re-insert so creation order stays sorted
+            created.put(entry, System.nanoTime());
+            while (entries.size() > maxEntries) {
+                removeEldest();
+            }
+        }
+        own.complete(forWaiters);
+        record("PBKDF2 " + iterations + " ITER", start);
+        return key;
+    }
+
+    /**
+     * Describes the calling thread's last lookup, e.g. "CACHE HIT (0.01 MS)".
+     */
+    public String lastLookup() {
+        String s = lastLookup.get();
+        return s != null ? s : "NONE";
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        evictExpired();
+        return entries.size();
+    }
+
+    /**
+     * Zeroizes and drops every cached key (e.g. on logout or when the session ends).
+     */
+    public synchronized void clear() {
+        for (byte[] key : entries.values()) {
+            zeroize(key);
+        }
+        entries.clear();
+        created.clear();
+    }
+
+    // ==================================================================================
+    // INTERNALS
+    // ==================================================================================
+
+    static byte[] pbkdf2(String password, byte[] salt, int iterations) throws Exception {
+        SecretKeyFactory factory = SecretKeyFactory.getInstance(KEY_DERIVATION_ALGO);
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_LENGTH_BIT);
+        try {
+            return factory.generateSecret(spec).getEncoded();
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private byte[] fingerprint(String password) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(sessionSecret, "HmacSHA256"));
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        try {
+            return mac.doFinal(bytes);
+        } finally {
+            zeroize(bytes);
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Entry, Long>> it = created.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Entry, Long> e = it.next();
+            if (now - e.getValue() < ttlNanos) {
+                break; // insertion order: everything after is younger
+            }
+            zeroize(entries.remove(e.getKey()));
+            it.remove();
+        }
+    }
+
+    private void removeEldest() {
+        Iterator<Map.Entry<Entry, byte[]>> it = entries.entrySet().iterator();
+        Map.Entry<Entry, byte[]> eldest = it.next();
+        zeroize(eldest.getValue());
+        created.remove(eldest.getKey());
+        it.remove();
+    }
+
+    private void record(String what, long start) {
+        lastLookup.set(String.format("%s (%.2f MS)", what, (System.nanoTime() - start) / 1e6));
+    }
+
+    private static void zeroize(byte[] bytes) {
+        if (bytes != null) {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] fingerprint;
+        private final byte[] salt;
+        private final int iterations;
+        private final int hash;
+
+        Entry(byte[] fingerprint, byte[] salt, int iterations) {
+            this.fingerprint = fingerprint;
+            this.salt = salt.clone();
+            this.iterations = iterations;
+            this.hash = 31 * (31 * Arrays.hashCode(fingerprint) + Arrays.hashCode(salt)) + iterations;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry e && iterations == e.iterations
+                    && Arrays.equals(fingerprint, e.fingerprint) && Arrays.equals(salt, e.salt);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,315 @@
+package src.main.encryption;
+
+import src.main.utils.TaskProgress;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * CHUNKED AEAD FILE FORMAT (STREAM construction).
+ * Splits a file into fixed-size segments, each sealed by AES-256-GCM with its own
+ * nonce and tag, so decryption releases verified plaintext one segment at a time
+ * and runs in constant memory for files of any size.
+ * * LAYOUT:
+ * [magic 8][version 1][segment size 4][salt 16][nonce prefix 7]
+ * [segment 0: ciphertext + tag 16] ... [segment n-1: ciphertext + tag 16]
+ * * NONCE (12 bytes): [prefix 7][segment index 4][last-segment flag 1].
+ * The flag makes truncation at a segment boundary fail authentication, and the
+ * header is bound to every segment as AAD so it cannot be altered.
+ * * Input bytes are reported to the calling thread's {@link TaskProgress} as each segment is written.
+ */
+final class SegmentedFileCipher {
+
+    static final byte[] MAGIC = "SSTGSEG1".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int SALT_LENGTH = 16;
+    static final int NONCE_PREFIX_LENGTH = 7;
+    static final int HEADER_SIZE = MAGIC.length + 1 + 4 + SALT_LENGTH + NONCE_PREFIX_LENGTH;
+    static final int TAG_LENGTH = 16;
+
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 20; // 1 MB
+    private static final int MIN_SEGMENT_SIZE = 1 << 12;
+    private static final int MAX_SEGMENT_SIZE = 1 << 26;
+
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+
+    private final byte[] header;
+    private final byte[] salt;
+    private final byte[] noncePrefix;
+    private final int segmentSize;
+
+    private SegmentedFileCipher(byte[] header, byte[] salt, byte[] noncePrefix, int segmentSize) {
+        this.header = header;
+        this.salt = salt;
+        this.noncePrefix = noncePrefix;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Builds the header for a new file.
+     */
+    static SegmentedFileCipher create(byte[] salt, byte[] noncePrefix, int segmentSize) {
+        ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE);
+        h.put(MAGIC).put((byte) VERSION).putInt(segmentSize).put(salt).put(noncePrefix);
+        return new SegmentedFileCipher(h.array(), salt.clone(), noncePrefix.clone(), segmentSize);
+    }
+
+    /**
+     * Reads the header of an existing file; returns null if the file is not in this format.
+     */
+    static SegmentedFileCipher read(FileChannel in) throws Exception {
+        if (in.size() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(in, 0, h);
+        byte[] bytes = h.array();
+        if (!Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+            return null;
+        }
+
+        h.position(MAGIC.length);
+        int version = h.get() & 0xFF;
+        if (version != VERSION) {
+            throw new Exception("Unsupported encrypted file version: " + version);
+        }
+        int segmentSize = h.getInt();
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new Exception("File corrupted: Invalid segment size.");
+        }
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+        h.get(salt).get(prefix);
+        return new SegmentedFileCipher(bytes, salt, prefix, segmentSize);
+    }
+
+    byte[] salt() {
+        return salt.clone();
+    }
+
+    // ==================================================================================
+    // ENCRYPT / DECRYPT
+    // ==================================================================================
+
+    /**
+     * Writes the header and every sealed segment of {@code in} to {@code out},
+     * using up to {@code threads} cores.
+     */
+    void encrypt(FileChannel in, FileChannel out, SecretKey key, int threads) throws Exception {
+        long size = in.size();
+        long segments = segmentCount(size);
+        long sealedSize = segmentSize + (long) TAG_LENGTH;
+
+        writeFully(out, 0, ByteBuffer.wrap(header));
+
+        TaskProgress.current().begin("ENCRYPT", size);
+        process(segments, threads, segmentSize, segmentSize + TAG_LENGTH, out,
+                index -> HEADER_SIZE + index * sealedSize,
+                (cipher, segment) -> {
+                    long i = segment.index;
+                    segment.input.clear().limit((int) Math.min(segmentSize, size - i * segmentSize));
+                    readFully(in, i * segmentSize, segment.input);
+                    segment.input.flip();
+
+                    cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce(i, i == segments - 1)));
+                    cipher.updateAAD(header);
+                    cipher.doFinal(segment.input, segment.output);
+                });
+    }
+
+    /**
+     * Verifies and decrypts every segment of {@code in} into {@code out}, using up to
+     * {@code threads} cores. Only authenticated plaintext is ever written.
+     */
+    void decrypt(FileChannel in, FileChannel out, SecretKey key, int threads) throws Exception {
+        long body = in.size() - HEADER_SIZE;
+        long sealedSize = segmentSize + (long) TAG_LENGTH;
+        long segments = (body + sealedSize - 1) / sealedSize;
+        long lastLength = body - (segments - 1) * sealedSize;
+        if (segments == 0 || lastLength < TAG_LENGTH) {
+            throw new Exception("File corrupted: Truncated segment.");
+        }
+
+        TaskProgress.current().begin("DECRYPT", body);
+        process(segments, threads, segmentSize + TAG_LENGTH, segmentSize, out,
+                index -> index * segmentSize,
+                (cipher, segment) -> {
+                    long i = segment.index;
+                    boolean last = i == segments - 1;
+                    segment.input.clear().limit((int) (last ? lastLength : sealedSize));
+                    readFully(in, HEADER_SIZE + i * sealedSize, segment.input);
+                    segment.input.flip();
+
+                    cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce(i, last)));
+                    cipher.updateAAD(header);
+                    try {
+                        cipher.doFinal(segment.input, segment.output);
+                    } catch (AEADBadTagException e) {
+                        throw new Exception("Authentication failed at segment " + i + " (Wrong password or corrupt file).", e);
+                    }
+                });
+    }
+
+    // ==================================================================================
+    // SEGMENT PIPELINE
+    // ==================================================================================
+
+    /**
+     * One unit of work: a segment index and the buffers it is read into and sealed/opened into.
+     */
+    private static final class Segment {
+        final ByteBuffer input;
+        final ByteBuffer output;
+        long index;
+
+        Segment(int inputSize, int outputSize) {
+            this.input = ByteBuffer.allocateDirect(inputSize);
+            this.output = ByteBuffer.allocateDirect(outputSize);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SegmentJob {
+        /** Reads segment {@code segment.index} and seals or opens it into {@code segment.output}. */
+        void run(Cipher cipher, Segment segment) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface OutputPosition {
+        long of(long index);
+    }
+
+    /**
+     * Runs the job for every segment and writes the results in sequence.
+     * * PARALLEL (threads > 1):
+     * 1. A fixed pool of workers, each with its own Cipher, processes segments.
+     * 2. At most 2 x threads segments are in flight; their buffers are recycled.
+     * 3. Results are collected oldest-first (the reorder buffer) and written positionally,
+     *    so output grows strictly in order and a failure leaves only verified data behind.
+     */
+    private void process(long segments, int threads, int inputSize, int outputSize, FileChannel out,
+                         OutputPosition position, SegmentJob job) throws Exception {
+        TaskProgress progress = TaskProgress.current();
+        if (threads <= 1 || segments == 1) {
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            Segment segment = new Segment(inputSize, outputSize);
+            for (long i = 0; i < segments; i++) {
+                segment.index = i;
+                segment.output.clear();
+                job.run(cipher, segment);
+                segment.output.flip();
+                writeFully(out, position.of(i), segment.output);
+                progress.advance(segment.input.limit());
+            }
+            return;
+        }
+
+        int inFlightLimit = threads * 2;
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "segment-cipher");
+            t.setDaemon(true);
+            return t;
+        });
+        ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+        ArrayDeque<Future<Segment>> inFlight = new ArrayDeque<>();
+
+        try {
+            for (long i = 0; i < segments; i++) {
+                // 1. Reuse the buffers of the oldest segment once it is written
+                Segment segment;
+                if (inFlight.size() < inFlightLimit) {
+                    segment = new Segment(inputSize, outputSize);
+                } else {
+                    segment = writeNext(inFlight, out, position, progress);
+                }
+
+                // 2. Hand it to a worker
+                segment.index = i;
+                segment.output.clear();
+                inFlight.add(pool.submit(() -> {
+                    Cipher cipher = ciphers.get();
+                    if (cipher == null) {
+                        cipher = Cipher.getInstance(ALGORITHM);
+                        ciphers.set(cipher);
+                    }
+                    job.run(cipher, segment);
+                    segment.output.flip();
+                    return segment;
+                }));
+            }
+
+            // 3. Drain the reorder buffer
+            while (!inFlight.isEmpty()) {
+                writeNext(inFlight, out, position, progress);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Segment writeNext(ArrayDeque<Future<Segment>> inFlight, FileChannel out, OutputPosition position,
+                              TaskProgress progress) throws Exception {
+        Segment done;
+        try {
+            done = inFlight.poll().get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+        writeFully(out, position.of(done.index), done.output);
+        progress.advance(done.input.limit());
+        return done;
+    }
+
+    // ==================================================================================
+    // UTILITIES
+    // ==================================================================================
+
+    private long segmentCount(long plainSize) throws Exception {
+        // An empty file still gets one (empty) final segment carrying a tag
+        long segments = Math.max(1, (plainSize + segmentSize - 1) / segmentSize);
+        if (segments > 0xFFFFFFFFL) {
+            throw new Exception("File too large for the segment counter.");
+        }
+        return segments;
+    }
+
+    private byte[] nonce(long index, boolean last) {
+        byte[] nonce = new byte[12];
+        System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LENGTH);
+        nonce[7] = (byte) (index >>> 24);
+        nonce[8] = (byte) (index >>> 16);
+        nonce[9] = (byte) (index >>> 8);
+        nonce[10] = (byte) index;
+        nonce[11] = (byte) (last ? 1 : 0);
+        return nonce;
+    }
+
+    static void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of file.");
+            }
+            position += n;
+        }
+    }
+
+    static void writeFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package src.main.encryption;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * SESSION MASTER KEY MODE.
+ * PBKDF2 stretches the password once per session (master salt); every message then gets
+ * its own key from HKDF-SHA256 (RFC 5869) with a fresh random salt, costing microseconds.
+ * * MESSAGE LAYOUT:
+ * [magic 4][master salt 16][HKDF salt 16][IV 12][ciphertext + tag]
+ * The master salt travels with each message, so any session can decrypt it; repeated
+ * master salts hit {@link KeyCache} and are stretched only once.
+ */
+final class SessionMasterKey {
+
+    static final byte[] MAGIC = {'S', 'M', 'K', '1'};
+    static final int SALT_LENGTH = 16;
+    static final int HEADER_SIZE = MAGIC.length + SALT_LENGTH + SALT_LENGTH;
+
+    private static final byte[] INFO = "SECURE-STEGO/MESSAGE/v1".getBytes(StandardCharsets.UTF_8);
+    private static final int KEY_LENGTH = 32;
+
+    private SessionMasterKey() {
+    }
+
+    /**
+     * True if the blob starts with the master-key magic (legacy blobs start with a random salt,
+     * so callers must still fall back if authentication fails).
+     */
+    static boolean isMasterKeyBlob(byte[] blob) {
+        return blob.length >= HEADER_SIZE && Arrays.equals(Arrays.copyOf(blob, MAGIC.length), MAGIC);
+    }
+
+    /**
+     * Derives the per-message AES key: HKDF(PBKDF2(password, masterSalt), hkdfSalt).
+     */
+    static SecretKey messageKey(String password, byte[] masterSalt, byte[] hkdfSalt, int iterations) throws Exception {
+        byte[] master = KeyCache.shared().derive(password, masterSalt, iterations).getEncoded();
+        byte[] okm = hkdf(master, hkdfSalt, INFO, KEY_LENGTH);
+        try {
+            return new SecretKeySpec(okm, "AES");
+        } finally {
+            Arrays.fill(master, (byte) 0);
+            Arrays.fill(okm, (byte) 0);
+        }
+    }
+
+    /**
+     * HKDF-SHA256: extract with the salt, then expand to {@code length} bytes.
+     */
+    static byte[] hkdf(byte[] ikm, byte[] salt, byte[] info, int length) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+
+        // 1. Extract
+        mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+        byte[] prk = mac.doFinal(ikm);
+
+        // 2. Expand: T(i) = HMAC(PRK, T(i-1) | info | i)
+        mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+        byte[] okm = new byte[length];
+        byte[] t = new byte[0];
+        for (int i = 1, off = 0; off < length; i++) {
+            mac.update(t);
+            mac.update(info);
+            mac.update((byte) i);
+            t = mac.doFinal();
+            int n = Math.min(t.length, length - off);
+            System.arraycopy(t, 0, okm, off, n);
+            off += n;
+        }
+        Arrays.fill(prk, (byte) 0);
+        Arrays.fill(t, (byte) 0);
+        return okm;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package src.main.service;
+
+import src.main.encryption.KeyCache;
+import src.main.utils.JsonUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-item results and timings of a headless run, rendered as a JSON summary.
+ * * LAYOUT:
+ * { "command", "total", "succeeded", "failed", "wallMs", "bytes", "mbPerSec", "jobsPerSec",
+ *   "scheduler": {parallelism, memoryBudgetMb, peakReservedMb}, "keyCache": {hits, misses},
+ *   "results": [ { "input", "output", "status", "ms", "bytes", "mbPerSec", "message"?, "error"? } ] }
+ * * Items may complete in any order; results are listed in input order. "bytes" is the size
+ * of the input that was processed.
+ */
+public class BatchReport {
+
+    private final String command;
+    private final List<Item> items = new ArrayList<>();
+    private final long startNanos = System.nanoTime();
+    private long endNanos;
+    private BatchScheduler scheduler;
+
+    public BatchReport(String command) {
+        this.command = command;
+    }
+
+    public synchronized void success(int index, String input, String output, long nanos, long bytes, String message) {
+        items.add(new Item(index, input, output, null, nanos, bytes, message));
+    }
+
+    public synchronized void failure(int index, String input, String output, long nanos, String error) {
+        items.add(new Item(index, input, output, error, nanos, 0, null));
+    }
+
+    /**
+     * Includes the scheduler's settings and peak memory reservation in the summary.
+     */
+    public void setScheduler(BatchScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public synchronized int failed() {
+        int n = 0;
+        for (Item item : items) {
+            if (item.error != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    public synchronized int total() {
+        return items.size();
+    }
+
+    /**
+     * Stops the wall clock (called once every item is done).
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public synchronized String toJson() {
+        KeyCache keys = KeyCache.shared();
+        items.sort(Comparator.comparingInt(item -> item.index));
+        long wallNanos = (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+        long totalBytes = 0;
+        for (Item item : items) {
+            totalBytes += item.bytes;
+        }
+
+        StringBuilder sb = new StringBuilder(256 + items.size() * 128);
+        sb.append("{\n");
+        sb.append("  \"command\": ").append(JsonUtils.quote(command)).append(",\n");
+        sb.append("  \"total\": ").append(items.size()).append(",\n");
+        sb.append("  \"succeeded\": ").append(items.size() - failed()).append(",\n");
+        sb.append("  \"failed\": ").append(failed()).append(",\n");
+        sb.append("  \"wallMs\": ").append(millis(wallNanos)).append(",\n");
+        sb.append("  \"bytes\": ").append(totalBytes).append(",\n");
+        sb.append("  \"mbPerSec\": ").append(mbPerSec(totalBytes, wallNanos)).append(",\n");
+        sb.append("  \"jobsPerSec\": ").append(format(items.size() / Math.max(wallNanos / 1e9, 1e-9))).append(",\n");
+        if (scheduler != null) {
+            sb.append("  \"scheduler\": {\"parallelism\": ").append(scheduler.parallelism())
+                    .append(", \"memoryBudgetMb\": ").append(scheduler.memoryBudget() >> 20)
+                    .append(", \"peakReservedMb\": ").append(scheduler.peakReserved() >> 20).append("},\n");
+        }
+        sb.append("  \"keyCache\": {\"hits\": ").append(keys.hits())
+                .append(", \"misses\": ").append(keys.misses()).append("},\n");
+        sb.append("  \"results\": [");
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("    {\"input\": ").append(JsonUtils.quote(item.input));
+            sb.append(", \"output\": ").append(item.output != null ? JsonUtils.quote(item.output) : "null");
+            sb.append(", \"status\": ").append(item.error == null ? "\"ok\"" : "\"error\"");
+            sb.append(", \"ms\": ").append(millis(item.nanos));
+            sb.append(", \"bytes\": ").append(item.bytes);
+            sb.append(", \"mbPerSec\": ").append(mbPerSec(item.bytes, item.nanos));
+            if (item.message != null) {
+                sb.append(", \"message\": ").append(JsonUtils.quote(item.message));
+            }
+            if (item.error != null) {
+                sb.append(", \"error\": ").append(JsonUtils.quote(item.error));
+            }
+            sb.append('}');
+        }
+        sb.append(items.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    // ==================================================================================
+    // JSON HELPERS
+    // ==================================================================================
+
+    private static String millis(long nanos) {
+        return format(nanos / 1e6);
+    }
+
+    private static String mbPerSec(long bytes, long nanos) {
+        return format(nanos > 0 ? (bytes / 1048576.0) / (nanos / 1e9) : 0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static final class Item {
+        private final int index;
+        private final String input;
+        private final String output;
+        private final String error;
+        private final long nanos;
+        private final long bytes;
+        private final String message;
+
+        Item(int index, String input, String output, String error, long nanos, long bytes, String message) {
+            this.index = index;
+            this.input = input;
+            this.output = output;
+            this.error = error;
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.message = message;
+        }
+    }
+}
\ No newline at end of file
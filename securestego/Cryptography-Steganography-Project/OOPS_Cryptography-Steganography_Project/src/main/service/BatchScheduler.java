@@ -0,0 +1,132 @@
+package src.main.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work-Stealing Job Scheduler.
+ * Fans independent carrier jobs across a bounded, reused ForkJoinPool.
+ * * LOGIC:
+ * 1. The submitting thread reserves the job's estimated heap from a fixed budget and blocks
+ *    while the budget is exhausted (back-pressure instead of OutOfMemoryError).
+ * 2. The job runs on the pool; idle workers steal queued jobs.
+ * 3. The reservation is returned when the job ends, successfully or not.
+ * * A job larger than the whole budget is admitted only when nothing else is running.
+ */
+public class BatchScheduler implements AutoCloseable {
+
+    /**
+     * A unit of work; failures complete the returned future exceptionally.
+     */
+    @FunctionalInterface
+    public interface Job {
+        void run() throws Exception;
+    }
+
+    // Share of the maximum heap that admitted jobs may reserve together
+    private static final double DEFAULT_HEAP_SHARE = 0.6;
+
+    private final ForkJoinPool pool;
+    private final long budget;
+
+    private long reserved;
+    private long peakReserved;
+    private int running;
+
+    public BatchScheduler(int parallelism, long memoryBudget) {
+        // asyncMode: FIFO order for submitted jobs that are never joined by other tasks
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.budget = Math.max(1, memoryBudget);
+    }
+
+    /**
+     * Budget derived from -Xmx, leaving headroom for the JVM and the caller.
+     */
+    public static long defaultMemoryBudget() {
+        return (long) (Runtime.getRuntime().maxMemory() * DEFAULT_HEAP_SHARE);
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    public long memoryBudget() {
+        return budget;
+    }
+
+    public synchronized long peakReserved() {
+        return peakReserved;
+    }
+
+    /**
+     * Admits the job once its heap estimate fits the budget (blocking the caller), then runs it on the pool.
+     */
+    public CompletableFuture<Void> submit(long heapEstimate, Job job) {
+        return call(heapEstimate, () -> {
+            job.run();
+            return null;
+        });
+    }
+
+    /**
+     * As {@link #submit}, for a job with a result.
+     */
+    public <T> CompletableFuture<T> call(long heapEstimate, Callable<T> job) {
+        long reservation;
+        try {
+            reservation = acquire(heapEstimate);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pool.execute(() -> {
+            try {
+                future.complete(job.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                release(reservation);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops accepting jobs and waits for the running ones.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================================================================================
+    // MEMORY ADMISSION
+    // ==================================================================================
+
+    private synchronized long acquire(long bytes) throws InterruptedException {
+        long request = Math.min(Math.max(0, bytes), budget);
+        // Oversized jobs (clamped to the budget) still wait for an empty pool
+        while (running > 0 && reserved + request > budget) {
+            wait();
+        }
+        reserved += request;
+        running++;
+        peakReserved = Math.max(peakReserved, reserved);
+        return request;
+    }
+
+    private synchronized void release(long bytes) {
+        reserved -= bytes;
+        running--;
+        notifyAll();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,268 @@
+package src.main.service;
+
+import src.main.steganography.CapacityPlanner;
+import src.main.steganography.EmbedDepth;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CARRIER INFO CACHE.
+ * Capacity plans ({@link CapacityPlanner}) of every carrier seen, so the UI meter and batch planning
+ * get exact figures without reopening the file.
+ * * LOGIC:
+ * 1. Entries are keyed by a SHA-256 of the absolute path and validated against the file's
+ *    modification time and size on every lookup (two stat calls); a changed file is planned again.
+ * 2. Bounded size, least recently used entry evicted.
+ * 3. The index is loaded from {@link #DEFAULT_INDEX} on first use and written back at exit
+ *    (atomically, through a temporary file). Adaptive depths measured in the meantime are kept too.
+ * * Only path hashes are stored, so the index does not list which files were used as carriers.
+ */
+public final class CarrierInfo {
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+    public static final File DEFAULT_INDEX = new File(System.getProperty("user.home"),
+            ".securestego" + File.separator + "carriers.idx");
+
+    private static final String INDEX_MAGIC = "SSTGCAR1";
+
+    private static final CarrierInfo SHARED = new CarrierInfo(DEFAULT_INDEX, DEFAULT_MAX_ENTRIES);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SHARED::saveQuietly, "carrier-index"));
+    }
+
+    private final File indexFile;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private boolean loaded;
+    private boolean dirty;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param indexFile persistent index, or null for a session-only cache
+     */
+    public CarrierInfo(File indexFile, int maxEntries) {
+        this.indexFile = indexFile;
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * The cache shared by the UI, the service layer and the headless CLI.
+     */
+    public static CarrierInfo shared() {
+        return SHARED;
+    }
+
+    /**
+     * Capacity plan of a carrier, read from its headers only on a miss.
+     */
+    public CapacityPlanner.Plan plan(File carrier) throws Exception {
+        if (!carrier.isFile()) {
+            throw new Exception("Carrier not found: " + carrier);
+        }
+        String key = key(carrier);
+        long modified = carrier.lastModified();
+        long size = carrier.length();
+
+        synchronized (this) {
+            load();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.modified == modified && entry.size == size) {
+                hits++;
+                return entry.plan(carrier);
+            }
+            misses++;
+        }
+
+        // Parse outside the lock so other carriers are not blocked
+        CapacityPlanner.Plan plan = CapacityPlanner.plan(carrier);
+        synchronized (this) {
+            entries.put(key, new Entry(modified, size, plan));
+            dirty = true;
+            while (entries.size() > maxEntries) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Maximum payload bytes of a carrier at the given depth (Long.MAX_VALUE for video).
+     */
+    public long capacityBytes(File carrier, EmbedDepth depth) throws Exception {
+        return plan(carrier).capacityBytes(depth);
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        load();
+        return entries.size();
+    }
+
+    /**
+     * Drops every entry (the index file is rewritten empty on the next save).
+     */
+    public synchronized void clear() {
+        loaded = true;
+        entries.clear();
+        dirty = true;
+    }
+
+    // ==================================================================================
+    // PERSISTENCE
+    // ==================================================================================
+
+    /**
+     * Writes the index if anything was looked up since it was loaded.
+     * LAYOUT: "SSTGCAR1", then one line per entry, least recently used first:
+     * key, mtime, size, kind, units, measured adaptive depths (bits per unit, 0 = not measured).
+     */
+    public void save() throws Exception {
+        if (indexFile == null) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(INDEX_MAGIC).append('\n');
+        synchronized (this) {
+            if (!loaded || (!dirty && entries.isEmpty())) {
+                return;
+            }
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                sb.append(e.getKey()).append('\t').append(entry.modified).append('\t').append(entry.size)
+                        .append('\t').append(entry.kind).append('\t').append(entry.units);
+                for (double depth : entry.measuredDepths()) {
+                    sb.append('\t').append(depth);
+                }
+                sb.append('\n');
+            }
+            dirty = false;
+        }
+
+        // 1. Write a sibling temporary file, 2. move it over the index in one step
+        File dir = indexFile.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        File temp = File.createTempFile("carriers", ".tmp", dir);
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                out.write(sb.toString());
+            }
+            Files.move(temp.toPath(), indexFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (Exception e) {
+            // Best effort at exit: the index is only a cache
+        }
+    }
+
+    /**
+     * Reads the index once; a missing, foreign or damaged file leaves the cache empty.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (indexFile == null || !indexFile.isFile()) {
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!INDEX_MAGIC.equals(in.readLine())) {
+                return;
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.split("\t");
+                if (f.length < 5) {
+                    continue;
+                }
+                double[] depths = new double[f.length - 5];
+                for (int i = 0; i < depths.length; i++) {
+                    depths[i] = Double.parseDouble(f[5 + i]);
+                }
+                entries.put(f[0], new Entry(Long.parseLong(f[1]), Long.parseLong(f[2]),
+                        CapacityPlanner.Kind.valueOf(f[3]), Long.parseLong(f[4]), depths));
+            }
+            while (entries.size() > maxEntries) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        } catch (Exception e) {
+            entries.clear();
+        }
+    }
+
+    private static String key(File carrier) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(carrier.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[32];
+        for (int i = 0; i < 16; i++) {
+            hex[2 * i] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+            hex[2 * i + 1] = Character.forDigit(digest[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Stored figures of one carrier; the plan object is rebuilt on the first lookup after a load.
+     */
+    private static final class Entry {
+        private final long modified;
+        private final long size;
+        private final CapacityPlanner.Kind kind;
+        private final long units;
+        private final double[] storedDepths;
+        private CapacityPlanner.Plan plan;
+
+        Entry(long modified, long size, CapacityPlanner.Plan plan) {
+            this(modified, size, plan.kind(), plan.units(), new double[0]);
+            this.plan = plan;
+        }
+
+        Entry(long modified, long size, CapacityPlanner.Kind kind, long units, double[] storedDepths) {
+            this.modified = modified;
+            this.size = size;
+            this.kind = kind;
+            this.units = units;
+            this.storedDepths = storedDepths;
+        }
+
+        CapacityPlanner.Plan plan(File carrier) {
+            if (plan == null) {
+                plan = CapacityPlanner.restore(carrier, kind, units, storedDepths);
+            }
+            return plan;
+        }
+
+        double[] measuredDepths() {
+            return plan != null ? plan.measuredDepths() : storedDepths;
+        }
+    }
+}
\ No newline at end of file
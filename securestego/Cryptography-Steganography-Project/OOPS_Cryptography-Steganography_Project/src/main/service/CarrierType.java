@@ -0,0 +1,53 @@
+package src.main.service;
+
+import src.main.utils.Config;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Carrier families handled by the stego engines, resolved from file extensions.
+ */
+public enum CarrierType {
+    IMAGE(Config.EXT_IMAGES),
+    AUDIO(new String[]{Config.EXT_AUDIO_WAV}),
+    VIDEO(Config.EXT_VIDEOS);
+
+    private final String[] extensions;
+
+    CarrierType(String[] extensions) {
+        this.extensions = extensions;
+    }
+
+    public String[] extensions() {
+        return extensions.clone();
+    }
+
+    /**
+     * Resolves the carrier type from the file extension.
+     */
+    public static CarrierType fromFile(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        String ext = dot < 0 ? "" : name.substring(dot + 1);
+        for (CarrierType type : values()) {
+            for (String candidate : type.extensions) {
+                if (candidate.equals(ext)) {
+                    return type;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported carrier type: " + file.getName());
+    }
+
+    /**
+     * Parses "image", "audio" or "video" (case-insensitive).
+     */
+    public static CarrierType fromName(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown carrier type: " + name);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package src.main.service;
+
+import src.main.utils.CompressionUtils;
+import src.main.utils.TaskProgress;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Container for a hidden file: a manifest followed by the (optionally compressed) file body.
+ * It is built and read as a stream, so files of any size pass through a fixed 64 KB buffer;
+ * the service encrypts the container as a segmented file before it is embedded.
+ * * LAYOUT:
+ * [MAGIC "SSTGFIL1" 8][NAME LENGTH 2][NAME UTF-8][SIZE 8][SHA-256 32][CODEC 1][BODY]
+ * - CODEC: {@link CompressionUtils#CODEC_STORE} or {@link CompressionUtils#CODEC_DEFLATE} (raw deflate stream).
+ * - SHA-256 and SIZE describe the original file and are checked when it is restored.
+ * * The hash field is written as zeros and patched once the body has been streamed,
+ *   so the source file is read exactly once.
+ */
+final class FilePayload {
+
+    private static final byte[] MAGIC = "SSTGFIL1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HASH_LENGTH = 32;
+    private static final int MAX_NAME_BYTES = 0xFFFF;
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    /**
+     * What the manifest says about the hidden file.
+     */
+    static final class Manifest {
+        final String name;
+        final long size;
+        final byte[] sha256;
+        final int codec;
+
+        Manifest(String name, long size, byte[] sha256, int codec) {
+            this.name = name;
+            this.size = size;
+            this.sha256 = sha256;
+            this.codec = codec;
+        }
+    }
+
+    private FilePayload() {
+    }
+
+    // ==================================================================================
+    // PACKING
+    // ==================================================================================
+
+    /**
+     * Writes the container for {@code source} into {@code container}.
+     * @param compress try Deflate (skipped when the first 64 KB look incompressible)
+     */
+    static Manifest pack(File source, File container, boolean compress) throws Exception {
+        byte[] name = source.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_BYTES) {
+            throw new Exception("File name too long to hide.");
+        }
+        int codec = compress && isCompressible(source) ? CompressionUtils.CODEC_DEFLATE : CompressionUtils.CODEC_STORE;
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+
+        long size = 0;
+        long sizeOffset = MAGIC.length + 2 + name.length;
+        try (FileChannel out = FileChannel.open(container.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             InputStream in = new DigestInputStream(Files.newInputStream(source.toPath()), sha256)) {
+
+            // 1. Manifest with a placeholder hash
+            DataOutputStream header = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)));
+            header.write(MAGIC);
+            header.writeShort(name.length);
+            header.write(name);
+            header.writeLong(source.length());
+            header.write(new byte[HASH_LENGTH]);
+            header.writeByte(codec);
+            header.flush();
+
+            // 2. Body, hashing the original bytes on the way
+            Deflater deflater = codec == CompressionUtils.CODEC_DEFLATE ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+            try {
+                OutputStream body = Channels.newOutputStream(out);
+                if (deflater != null) {
+                    body = new DeflaterOutputStream(body, deflater, BUFFER_SIZE);
+                }
+                TaskProgress progress = TaskProgress.current();
+                progress.begin("PACK", source.length());
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, n);
+                    size += n;
+                    progress.advance(n);
+                }
+                if (body instanceof DeflaterOutputStream deflating) {
+                    deflating.finish();
+                }
+                body.flush();
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+
+            // 3. Patch size (the file may have changed since it was listed) and hash
+            byte[] digest = sha256.digest();
+            ByteBuffer patch = ByteBuffer.allocate(8 + HASH_LENGTH).putLong(size).put(digest).flip();
+            for (long position = sizeOffset; patch.hasRemaining(); ) {
+                position += out.write(patch, position);
+            }
+            return new Manifest(source.getName(), size, digest, codec);
+        }
+    }
+
+    /**
+     * Test-compresses the first 64 KB of the file.
+     */
+    private static boolean isCompressible(File source) throws IOException {
+        try (InputStream in = Files.newInputStream(source.toPath())) {
+            byte[] sample = in.readNBytes(BUFFER_SIZE);
+            return CompressionUtils.chooseCodec(sample) != CompressionUtils.CODEC_STORE;
+        }
+    }
+
+    // ==================================================================================
+    // UNPACKING
+    // ==================================================================================
+
+    /**
+     * Restores the file described by the container into {@code outputDir} under its stored name
+     * (directory parts stripped, " (n)" appended if the name is taken). A size or hash mismatch
+     * deletes the partial file.
+     */
+    static File unpack(File container, File outputDir) throws Exception {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(container.toPath()), BUFFER_SIZE))) {
+            // 1. Manifest
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!MessageDigest.isEqual(magic, MAGIC)) {
+                throw new Exception("Hidden payload is not a file container.");
+            }
+            byte[] name = new byte[in.readUnsignedShort()];
+            in.readFully(name);
+            long size = in.readLong();
+            byte[] expected = new byte[HASH_LENGTH];
+            in.readFully(expected);
+            int codec = in.readUnsignedByte();
+            if (codec != CompressionUtils.CODEC_STORE && codec != CompressionUtils.CODEC_DEFLATE) {
+                throw new Exception("Unsupported file container codec: " + codec);
+            }
+
+            // 2. Body, streamed to the output while hashing
+            File target = uniqueFile(outputDir, safeName(new String(name, StandardCharsets.UTF_8)));
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            Inflater inflater = codec == CompressionUtils.CODEC_DEFLATE ? new Inflater(true) : null;
+            boolean complete = false;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.toPath()), BUFFER_SIZE)) {
+                InputStream body = inflater != null ? new InflaterInputStream(in, inflater, BUFFER_SIZE) : in;
+                TaskProgress progress = TaskProgress.current();
+                progress.begin("UNPACK", size);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long written = 0;
+                int n;
+                while ((n = body.read(buffer)) != -1) {
+                    written += n;
+                    if (written > size) {
+                        throw new Exception("Hidden file is longer than its manifest.");
+                    }
+                    sha256.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    progress.advance(n);
+                }
+
+                // 3. Verify against the manifest
+                if (written != size || !MessageDigest.isEqual(sha256.digest(), expected)) {
+                    throw new Exception("Hidden file failed its integrity check (size or SHA-256 mismatch).");
+                }
+                complete = true;
+            } finally {
+                if (inflater != null) {
+                    inflater.end();
+                }
+                if (!complete) {
+                    Files.deleteIfExists(target.toPath());
+                }
+            }
+            return target;
+        }
+    }
+
+    /**
+     * The stored name without any directory part, so a container cannot write outside the output folder.
+     */
+    private static String safeName(String stored) {
+        String name = stored.substring(Math.max(stored.lastIndexOf('/'), stored.lastIndexOf('\\')) + 1).trim();
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            return "hidden_file.bin";
+        }
+        return name;
+    }
+
+    /**
+     * Creates the output file atomically, so parallel extractions of equally named files never share one.
+     */
+    private static File uniqueFile(File dir, String name) throws IOException {
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        File file = new File(dir, name);
+        for (int i = 1; ; i++) {
+            try {
+                Files.createFile(file.toPath());
+                return file;
+            } catch (FileAlreadyExistsException taken) {
+                file = new File(dir, stem + " (" + i + ")" + extension);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,488 @@
+package src.main.service;
+
+import src.main.steganography.EmbedDepth;
+import src.main.utils.ExceptionHandler;
+import src.main.utils.ReedSolomon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Headless Command Line Entry.
+ * Runs the service pipelines over many files in one JVM, without Swing.
+ * * USAGE:
+ * embed   --message TEXT | --message-file F | --payload-file F  --out DIR  [--decoy] [--no-compress] [--type T] INPUTS...
+ * extract [--out DIR] [--files] [--type T] INPUTS...   (--files: restore hidden files into --out)
+ * embed --payload-file F --shards [--parity M] --out DIR INPUTS...   (one file split over all inputs)
+ * extract --shards --out DIR INPUTS...                                (rebuilt from the inputs, any order)
+ * encrypt --out DIR INPUTS...
+ * decrypt --out DIR INPUTS...
+ * plan    INPUTS...   (capacity per embedding depth, headers only; no password)
+ * * COMMON OPTIONS:
+ * --password PW | --password-env VAR | --password-file F, --summary FILE (JSON, default stdout),
+ * --jobs N (carriers in parallel), --threads N (cores per job), --memory-mb N (admission budget),
+ * --depth 1-4|adaptive[:N] (bits per channel / sample for embed), --verbose (pipeline log on stderr).
+ * * INPUTS: paths, quoted globs ("carriers/**.png") or @manifest files (one path or glob per line,
+ * '#' comments). The session master key is enabled for embed, so the password is stretched once
+ * per invocation and extraction of those carriers hits the key cache after the first file.
+ * * EXIT CODES:
+ * 0 every input succeeded; 1 at least one input failed (each reported on stderr as
+ * "ERROR: input: message" and in the summary); 2 bad arguments, nothing was processed.
+ * Failures that are bugs rather than bad input read "An unexpected error occurred: ..."
+ * (--verbose adds the stack trace).
+ */
+public final class HeadlessCli {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURES = 1;
+    public static final int EXIT_USAGE = 2;
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // Parsed options
+    private String command;
+    private String password;
+    private String message;
+    private File payloadFile;
+    private boolean extractFiles;
+    private boolean sharded;
+    private int parityShards;
+    private File outDir;
+    private File summaryFile;
+    private CarrierType forcedType;
+    private boolean decoy;
+    private boolean compress = true;
+    private EmbedDepth depth = EmbedDepth.ONE_BIT;
+    private boolean verbose;
+    private int jobs = Runtime.getRuntime().availableProcessors();
+    private int threads;
+    private long memoryBudget = BatchScheduler.defaultMemoryBudget();
+    private final List<String> inputs = new ArrayList<>();
+
+    HeadlessCli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Runs one command and returns the process exit code.
+     */
+    public static int run(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        return new HeadlessCli(System.out, System.err).execute(args);
+    }
+
+    int execute(String[] args) {
+        // 1. Parse
+        List<File> files;
+        try {
+            parse(args);
+            files = expandInputs(inputs);
+        } catch (IllegalArgumentException | IOException e) {
+            err.println("ERROR: " + e.getMessage());
+            printUsage();
+            return EXIT_USAGE;
+        }
+        if (command.equals("plan")) {
+            return plan(files);
+        }
+        if (sharded) {
+            return shard(files);
+        }
+
+        // 2. Configure the service once for the whole batch; jobs share the cores
+        if (threads <= 0) {
+            threads = Math.max(1, Runtime.getRuntime().availableProcessors() / jobs);
+        }
+        StegoService service = new StegoService();
+        service.setCompressPayloads(compress);
+        service.setEmbedDepth(depth);
+        service.setThreads(threads);
+        service.setSessionMasterKey(true);
+        if (verbose) {
+            service.setLog(line -> err.println("[" + command.toUpperCase(Locale.ROOT) + "] " + line));
+        }
+
+        // 3. Fan the inputs out across the scheduler
+        BatchReport report = new BatchReport(command);
+        Set<File> produced = new HashSet<>();
+        try (BatchScheduler scheduler = new BatchScheduler(jobs, memoryBudget)) {
+            report.setScheduler(scheduler);
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                File target = outputFor(file);
+                if (target != null && !produced.add(target.getAbsoluteFile())) {
+                    report.failure(i, file.getPath(), target.getPath(), 0, "Output name collision: " + target.getName());
+                    continue;
+                }
+                int index = i;
+                scheduler.submit(estimateHeap(file), () -> process(service, index, file, target, report));
+            }
+        }
+        report.finish();
+
+        // 4. Summary
+        return writeSummary(report);
+    }
+
+    private int writeSummary(BatchReport report) {
+        try {
+            if (summaryFile != null) {
+                Files.writeString(summaryFile.toPath(), report.toJson(), StandardCharsets.UTF_8);
+            } else {
+                out.print(report.toJson());
+            }
+        } catch (IOException e) {
+            err.println("ERROR: Cannot write summary: " + e.getMessage());
+            return EXIT_FAILURES;
+        }
+        return report.failed() == 0 ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    private void process(StegoService service, int index, File file, File target, BatchReport report) {
+        long start = System.nanoTime();
+        File output = target;
+        try {
+            String extracted = null;
+            switch (command) {
+                case "embed" -> {
+                    if (payloadFile != null) {
+                        service.embedFile(typeOf(file), file, target, payloadFile, password);
+                    } else {
+                        service.embed(typeOf(file), file, target, message, password, decoy);
+                    }
+                }
+                case "extract" -> {
+                    if (extractFiles) {
+                        // Restored under the name stored in the carrier
+                        output = service.extractFile(typeOf(file), file, outDir, password);
+                        break;
+                    }
+                    extracted = service.extract(typeOf(file), file, password);
+                    if (target != null) {
+                        Files.writeString(target.toPath(), extracted, StandardCharsets.UTF_8);
+                        extracted = null; // written to disk, keep it out of the summary
+                    }
+                }
+                case "encrypt" -> service.encryptFile(file, target, password);
+                case "decrypt" -> service.decryptFile(file, target, password);
+            }
+
+            report.success(index, file.getPath(), output != null ? output.getPath() : null,
+                    System.nanoTime() - start, file.length(), extracted);
+        } catch (Exception e) {
+            String error = ExceptionHandler.getUserFriendlyMessage(e);
+            report.failure(index, file.getPath(), output != null ? output.getPath() : null, System.nanoTime() - start, error);
+            reportError(file.getPath(), error, e);
+        }
+    }
+
+    // ==================================================================================
+    // ARGUMENTS
+    // ==================================================================================
+
+    private void parse(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Missing command.");
+        }
+        command = args[0].toLowerCase(Locale.ROOT);
+        if (!List.of("embed", "extract", "encrypt", "decrypt", "plan").contains(command)) {
+            throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--password" -> password = value(args, ++i, arg);
+                case "--password-env" -> {
+                    String var = value(args, ++i, arg);
+                    password = System.getenv(var);
+                    if (password == null) {
+                        throw new IllegalArgumentException("Environment variable not set: " + var);
+                    }
+                }
+                case "--password-file" -> password = Files.readString(Paths.get(value(args, ++i, arg))).strip();
+                case "--message" -> message = value(args, ++i, arg);
+                case "--message-file" -> message = Files.readString(Paths.get(value(args, ++i, arg)), StandardCharsets.UTF_8);
+                case "--payload-file" -> payloadFile = new File(value(args, ++i, arg));
+                case "--files" -> extractFiles = true;
+                case "--shards" -> sharded = true;
+                case "--parity" -> parityShards = Integer.parseInt(value(args, ++i, arg));
+                case "--out" -> outDir = new File(value(args, ++i, arg));
+                case "--summary" -> summaryFile = new File(value(args, ++i, arg));
+                case "--type" -> forcedType = CarrierType.fromName(value(args, ++i, arg));
+                case "--jobs" -> jobs = Math.max(1, Integer.parseInt(value(args, ++i, arg)));
+                case "--threads" -> threads = Math.max(1, Integer.parseInt(value(args, ++i, arg)));
+                case "--memory-mb" -> memoryBudget = Long.parseLong(value(args, ++i, arg)) << 20;
+                case "--decoy" -> decoy = true;
+                case "--no-compress" -> compress = false;
+                case "--depth" -> depth = EmbedDepth.parse(value(args, ++i, arg));
+                case "--verbose" -> verbose = true;
+                default -> {
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    inputs.add(arg);
+                }
+            }
+        }
+
+        // Validation
+        if (command.equals("plan")) {
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input files.");
+            }
+            return;
+        }
+        if (password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("AUTH KEY REQUIRED (--password, --password-env or --password-file).");
+        }
+        if (command.equals("embed")) {
+            if (payloadFile != null) {
+                if (message != null) {
+                    throw new IllegalArgumentException("Choose either a message or --payload-file, not both.");
+                }
+                if (!payloadFile.isFile()) {
+                    throw new IllegalArgumentException("Payload file not found: " + payloadFile);
+                }
+                if (decoy) {
+                    throw new IllegalArgumentException("--decoy applies to messages only.");
+                }
+            } else if (message == null || message.isEmpty()) {
+                throw new IllegalArgumentException("Payload Data Required (--message, --message-file or --payload-file).");
+            }
+        }
+        if (sharded) {
+            if (!command.equals("embed") && !command.equals("extract")) {
+                throw new IllegalArgumentException("--shards applies to embed and extract.");
+            }
+            if (command.equals("embed") && payloadFile == null) {
+                throw new IllegalArgumentException("--shards needs a --payload-file.");
+            }
+            if (parityShards < 0 || parityShards >= ReedSolomon.MAX_SHARDS) {
+                throw new IllegalArgumentException("--parity must be between 0 and " + (ReedSolomon.MAX_SHARDS - 1) + ".");
+            }
+        }
+        if (outDir == null && (!command.equals("extract") || extractFiles || sharded)) {
+            throw new IllegalArgumentException("Output directory required (--out).");
+        }
+        if (outDir != null && !outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create output directory: " + outDir);
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input files.");
+        }
+    }
+
+    /**
+     * Sharded embed / extract: all inputs form one set, so the summary has one result per written
+     * carrier (embed) or one for the restored file (extract).
+     */
+    private int shard(List<File> files) {
+        StegoService service = new StegoService();
+        service.setCompressPayloads(compress);
+        service.setEmbedDepth(depth);
+        service.setCarrierJobs(jobs);
+        service.setThreads(threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / jobs));
+        if (verbose) {
+            service.setLog(line -> err.println("[" + command.toUpperCase(Locale.ROOT) + "] " + line));
+        }
+
+        BatchReport report = new BatchReport(command + " --shards");
+        long start = System.nanoTime();
+        try {
+            if (command.equals("embed")) {
+                Map<File, File> written = service.embedSharded(files, outDir, payloadFile, parityShards, password);
+                int index = 0;
+                for (Map.Entry<File, File> entry : written.entrySet()) {
+                    report.success(index++, entry.getKey().getPath(), entry.getValue().getPath(),
+                            System.nanoTime() - start, entry.getKey().length(), null);
+                }
+            } else {
+                File restored = service.extractSharded(files, outDir, password);
+                report.success(0, files.size() + " carriers", restored.getPath(), System.nanoTime() - start,
+                        restored.length(), null);
+            }
+        } catch (Exception e) {
+            String error = ExceptionHandler.getUserFriendlyMessage(e);
+            report.failure(0, files.size() + " carriers", outDir.getPath(), System.nanoTime() - start, error);
+            reportError(files.size() + " carriers", error, e);
+        }
+        report.finish();
+        return writeSummary(report);
+    }
+
+    /**
+     * Prints the capacity table of every input. A carrier that cannot be read or measured is
+     * reported on stderr instead of a table, and the exit code is 1.
+     */
+    private int plan(List<File> files) {
+        StegoService service = new StegoService();
+        int failures = 0;
+        for (File file : files) {
+            try {
+                out.println(service.plan(file).table());
+            } catch (Exception e) {
+                failures++;
+                reportError(file.getPath(), ExceptionHandler.getUserFriendlyMessage(e), e);
+            }
+        }
+        return failures == 0 ? EXIT_OK : EXIT_FAILURES;
+    }
+
+    /**
+     * One stderr line per failed input; with --verbose, unexpected failures also print their stack trace.
+     */
+    private void reportError(String input, String error, Exception e) {
+        synchronized (err) {
+            err.println("ERROR: " + input + ": " + error);
+            if (verbose && !ExceptionHandler.isReported(e)) {
+                e.printStackTrace(err);
+            }
+        }
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+
+    /**
+     * Heap the job is expected to need, read from the carrier header before it is decoded.
+     */
+    private long estimateHeap(File file) {
+        try {
+            return switch (command) {
+                case "encrypt", "decrypt" -> HeapEstimator.estimateFileCrypto(threads);
+                default -> HeapEstimator.estimate(typeOf(file), file);
+            };
+        } catch (IllegalArgumentException e) {
+            return 0; // unsupported type, the job fails straight away
+        }
+    }
+
+    private CarrierType typeOf(File file) {
+        return forcedType != null ? forcedType : CarrierType.fromFile(file);
+    }
+
+    /**
+     * Output path for an input: same name for carriers, .enc added / removed for files,
+     * .txt for extracted messages; null when extracted messages go into the summary
+     * or extracted files keep their stored names.
+     */
+    private File outputFor(File input) {
+        if (outDir == null || extractFiles) {
+            return null;
+        }
+        String name = input.getName();
+        return switch (command) {
+            case "encrypt" -> new File(outDir, name + ".enc");
+            case "decrypt" -> new File(outDir, name.endsWith(".enc") ? name.substring(0, name.length() - 4) : name + ".dec");
+            case "extract" -> new File(outDir, name + ".txt");
+            default -> new File(outDir, name);
+        };
+    }
+
+    private void printUsage() {
+        err.println("USAGE: embed|extract|encrypt|decrypt|plan [options] INPUTS...");
+        err.println("  --password PW | --password-env VAR | --password-file FILE   (required)");
+        err.println("  --message TEXT | --message-file FILE | --payload-file FILE  (embed; a payload file is hidden whole)");
+        err.println("  --files                       extract hidden files into --out under their stored names");
+        err.println("  --shards [--parity M]         split one --payload-file over all inputs / rebuild it (any M carriers may be lost)");
+        err.println("  --out DIR                     output directory (required except for extract)");
+        err.println("  --type image|audio|video      override carrier detection by extension");
+        err.println("  --jobs N  --threads N  --memory-mb N   carriers in parallel, cores per job, heap budget");
+        err.println("  --depth 1-4|adaptive[:N]      bits per channel / sample (embed; plan lists every depth)");
+        err.println("  --decoy  --no-compress  --verbose  --summary FILE.json");
+        err.println("  INPUTS: files, quoted globs (\"in/**.png\") or @manifest.txt");
+        err.println("EXIT: 0 all inputs succeeded, 1 some failed (ERROR lines on stderr), 2 bad arguments");
+    }
+
+    // ==================================================================================
+    // INPUT EXPANSION (GLOBS & MANIFESTS)
+    // ==================================================================================
+
+    static List<File> expandInputs(List<String> specs) throws IOException {
+        Set<File> files = new LinkedHashSet<>();
+        for (String spec : specs) {
+            if (spec.startsWith("@")) {
+                // Manifest: one path or glob per line
+                for (String line : Files.readAllLines(Paths.get(spec.substring(1)), StandardCharsets.UTF_8)) {
+                    line = line.strip();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        expand(line, files);
+                    }
+                }
+            } else {
+                expand(spec, files);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static void expand(String spec, Set<File> files) throws IOException {
+        if (!isGlob(spec)) {
+            File file = new File(spec);
+            if (!file.isFile()) {
+                throw new IOException("Input not found: " + spec);
+            }
+            files.add(file);
+            return;
+        }
+
+        // 1. Walk from the deepest directory without glob characters
+        String normalized = spec.replace('\\', '/');
+        int cut = -1;
+        for (int i = 0; i < normalized.length() && !isGlobChar(normalized.charAt(i)); i++) {
+            if (normalized.charAt(i) == '/') {
+                cut = i;
+            }
+        }
+        Path base = Paths.get(cut < 0 ? "." : cut == 0 ? "/" : normalized.substring(0, cut));
+        String relative = normalized.substring(cut + 1);
+
+        // 2. Match the remaining pattern against paths relative to that directory
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + relative);
+        int depth = relative.contains("**") ? Integer.MAX_VALUE : relative.split("/").length;
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(base, depth)) {
+            walk.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(base.relativize(p)))
+                    .sorted()
+                    .forEach(p -> files.add(p.toFile()));
+        }
+    }
+
+    private static boolean isGlob(String spec) {
+        for (int i = 0; i < spec.length(); i++) {
+            if (isGlobChar(spec.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isGlobChar(char c) {
+        return c == '*' || c == '?' || c == '[' || c == '{';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package src.main.service;
+
+import src.main.steganography.CapacityPlanner;
+import src.main.steganography.LsbRaster;
+import src.main.steganography.StreamingPngStego;
+
+import java.io.File;
+
+/**
+ * Estimates the peak heap of a job from the carrier's header, before any pixels are decoded.
+ * * ESTIMATES:
+ * - Image: the pixel count from the carrier's capacity plan ({@link CarrierInfo}: header only, cached),
+ *   8 bytes per pixel covering the decoded raster plus a converted copy, plus the file itself.
+ *   Streamed PNGs need only a few rows, the inflate / deflate buffers and one sorted scatter window.
+ * - Audio: samples are memory-mapped in windows; the heap holds at most one sorted scatter batch.
+ * - Video / file crypto: channel based, a small constant per worker.
+ */
+final class HeapEstimator {
+
+    private static final long MB = 1L << 20;
+    private static final long BYTES_PER_PIXEL = 8;
+    // Rows in flight plus codec buffers (four rows of 8-byte pixels stay below this up to 512K pixels wide)
+    private static final long STREAMING_OVERHEAD = 16 * MB;
+    // One scatter window: about 1.1M groups of 8-byte key and 8-byte index
+    private static final long STREAMING_SCATTER = 24 * MB;
+    private static final long CHANNEL_JOB = 8 * MB;
+    private static final long AUDIO_BATCH = 32 * MB;
+
+    private HeapEstimator() {
+    }
+
+    static long estimate(CarrierType type, File carrier) {
+        return switch (type) {
+            case IMAGE -> estimateImage(carrier);
+            case AUDIO -> Math.min(carrier.length() / 4, AUDIO_BATCH) + MB;
+            case VIDEO -> CHANNEL_JOB;
+        };
+    }
+
+    /**
+     * Segmented file crypto keeps about two 1 MB segments per worker in flight.
+     */
+    static long estimateFileCrypto(int threads) {
+        return CHANNEL_JOB + 2L * threads * MB;
+    }
+
+    private static long estimateImage(File carrier) {
+        long fileBytes = carrier.length();
+        CapacityPlanner.Plan plan;
+        try {
+            plan = CarrierInfo.shared().plan(carrier);
+        } catch (Exception e) {
+            plan = null;
+        }
+        if (plan == null || plan.kind() != CapacityPlanner.Kind.IMAGE) {
+            // Unknown header: assume about 10:1 compression, decoded twice
+            return fileBytes * 20 + MB;
+        }
+        if (StreamingPngStego.shouldStream(carrier)) {
+            return STREAMING_OVERHEAD + STREAMING_SCATTER;
+        }
+        long pixels = plan.units() / LsbRaster.CHANNELS;
+        return pixels * BYTES_PER_PIXEL + fileBytes + MB;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,532 @@
+package src.main.service;
+
+import src.main.encryption.KeyCache;
+import src.main.utils.ReedSolomon;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * Splits an encrypted payload into numbered, individually authenticated shards and joins them back.
+ * * LAYOUT (per shard, big endian):
+ * [MAGIC "SSTGSHD1" 8][SET ID 16][INDEX 2][DATA SHARDS 2][PARITY SHARDS 2][STRIPE 4]
+ * [PAYLOAD LENGTH 8][OFFSET 8][LENGTH 4][TAG 16][DATA]
+ * - TAG: truncated HMAC-SHA256 of everything before it plus the data, under a subkey of the
+ *   PBKDF2 key for (password, set id). A damaged, foreign or re-numbered shard fails it and is
+ *   treated as missing.
+ * * PLANS:
+ * - No parity: shard sizes proportional to carrier capacity (one shard per carrier).
+ * - Parity m: k = n - m equal stripes of the payload plus m Reed-Solomon parity stripes over the
+ *   n largest carriers that each hold one stripe; any k carriers rebuild the payload. Data shards are
+ *   stored without their zero padding.
+ * * Joining is order-independent: every shard carries its index, offset and the set geometry.
+ * * STREAMING: the payload stays on disk. Each shard is cut from a read-only mapping of the payload
+ *   file when its carrier job runs, and each revealed shard is written back to a file as soon as it is
+ *   authenticated, so the heap holds only the shards in flight plus a slice per shard for Reed-Solomon.
+ *   A single shard must fit one array (just under 2 GB).
+ */
+final class PayloadShards {
+
+    private static final byte[] MAGIC = "SSTGSHD1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MAC_KEY_LABEL = "SECURE-STEGO/SHARD-MAC/v1".getBytes(StandardCharsets.UTF_8);
+    private static final int SET_ID_LENGTH = 16;
+    private static final int TAG_LENGTH = 16;
+    private static final int HEADER_LENGTH = MAGIC.length + SET_ID_LENGTH + 2 + 2 + 2 + 4 + 8 + 8 + 4;
+    private static final int ITERATION_COUNT = 65536;
+
+    /** Bytes each shard adds in front of its data. */
+    static final int OVERHEAD = HEADER_LENGTH + TAG_LENGTH;
+
+    // Smaller payloads use fewer carriers rather than many tiny shards
+    private static final int MIN_SHARD = 4 << 10;
+
+    // Largest data part of one shard (the engines embed a shard from a single array)
+    private static final long MAX_SHARD_DATA = Integer.MAX_VALUE - 8 - OVERHEAD;
+
+    // Column slice for Reed-Solomon encoding and rebuilding
+    private static final int SLICE = 64 << 10;
+
+    private PayloadShards() {
+    }
+
+    // ==================================================================================
+    // SPLITTING
+    // ==================================================================================
+
+    /**
+     * Decides which carrier receives which part of a payload of {@code payloadLength} bytes.
+     * Nothing is read here; {@link Plan#cut} builds each shard when its carrier job runs.
+     * @param capacities payload bytes each carrier holds (same order as the plan's carrier indexes)
+     */
+    static Plan plan(long payloadLength, long[] capacities, int parityShards, String password) throws Exception {
+        byte[] setId = new byte[SET_ID_LENGTH];
+        new SecureRandom().nextBytes(setId);
+        Plan plan = new Plan(setId, shardKey(password, setId), payloadLength, capacities.length);
+
+        // Data room per carrier, capped at the payload and at one array (video carriers are unbounded)
+        long[] room = new long[capacities.length];
+        for (int c = 0; c < room.length; c++) {
+            room[c] = Math.max(0, Math.min(Math.min(capacities[c] - OVERHEAD, payloadLength), MAX_SHARD_DATA));
+        }
+        if (parityShards == 0) {
+            planProportional(plan, room);
+        } else {
+            planStriped(plan, room, parityShards);
+        }
+        return plan;
+    }
+
+    private static void planProportional(Plan plan, long[] room) throws Exception {
+        long payloadLength = plan.payloadLength;
+
+        // 1. The largest carriers, as many as the payload needs at MIN_SHARD each
+        Integer[] order = bySizeDescending(room);
+        int wanted = (int) Math.max(1, Math.min(order.length, (payloadLength + MIN_SHARD - 1) / MIN_SHARD));
+        long total = 0;
+        int used = 0;
+        while (used < order.length && (used < wanted || total < payloadLength)) {
+            total += room[order[used]];
+            used++;
+        }
+        if (total < payloadLength) {
+            throw new Exception("Payload exceeds the combined carrier capacity. Need " + payloadLength
+                    + " bytes, carriers hold " + total + ".");
+        }
+
+        // 2. Proportional lengths, rounding remainder spread over carriers with room left
+        long[] lengths = new long[room.length];
+        long assigned = 0;
+        for (int i = 0; i < used; i++) {
+            int c = order[i];
+            // payload x room may exceed a long for multi-gigabyte payloads
+            lengths[c] = BigInteger.valueOf(payloadLength).multiply(BigInteger.valueOf(room[c]))
+                    .divide(BigInteger.valueOf(total)).longValue();
+            assigned += lengths[c];
+        }
+        for (int i = 0; assigned < payloadLength; i = (i + 1) % used) {
+            int c = order[i];
+            if (lengths[c] < room[c]) {
+                lengths[c]++;
+                assigned++;
+            }
+        }
+
+        // 3. Consecutive slices in carrier order
+        int shards = 0;
+        for (long length : lengths) {
+            if (length > 0) {
+                shards++;
+            }
+        }
+        plan.dataShards = shards;
+        long offset = 0;
+        int index = 0;
+        for (int c = 0; c < room.length; c++) {
+            if (lengths[c] > 0) {
+                plan.assign(c, index++, offset, (int) lengths[c]);
+                offset += lengths[c];
+            }
+        }
+    }
+
+    private static void planStriped(Plan plan, long[] room, int parityShards) throws Exception {
+        long payloadLength = plan.payloadLength;
+
+        // 1. Largest n such that the n-th largest carrier holds one stripe of payload / (n - m)
+        Integer[] order = bySizeDescending(room);
+        int limit = (int) Math.min(Math.min(order.length, ReedSolomon.MAX_SHARDS),
+                (payloadLength + MIN_SHARD - 1) / MIN_SHARD + parityShards);
+        int n = 0;
+        int stripe = 0;
+        for (int candidate = limit; candidate > parityShards; candidate--) {
+            long size = (payloadLength + candidate - parityShards - 1) / (candidate - parityShards);
+            if (room[order[candidate - 1]] >= size) {
+                n = candidate;
+                stripe = (int) size;
+                break;
+            }
+        }
+        if (n == 0) {
+            throw new Exception("Payload exceeds carrier capacity with " + parityShards + " parity shard(s). Need "
+                    + payloadLength + " bytes over at least " + (parityShards + 1) + " carriers.");
+        }
+        int k = n - parityShards;
+
+        // 2. Shard i goes to the i-th largest carrier; data shards are stored without their zero padding
+        plan.dataShards = k;
+        plan.parityShards = parityShards;
+        plan.stripe = stripe;
+        for (int i = 0; i < n; i++) {
+            long offset = i < k ? Math.min(payloadLength, (long) i * stripe) : 0;
+            int length = i < k ? (int) Math.min(stripe, payloadLength - offset) : stripe;
+            plan.assign(order[i], i, offset, length);
+        }
+    }
+
+    /**
+     * Shard assignment of one payload. {@link #cut} is thread-safe, so carrier jobs build their shards in parallel.
+     */
+    static final class Plan {
+        private final byte[] setId;
+        private final byte[] key;
+        private final long payloadLength;
+        private int dataShards;
+        private int parityShards;
+        private int stripe;
+
+        // Per carrier: shard index (-1 = unused), payload offset and data length
+        private final int[] index;
+        private final long[] offset;
+        private final int[] length;
+
+        private Plan(byte[] setId, byte[] key, long payloadLength, int carriers) {
+            this.setId = setId;
+            this.key = key;
+            this.payloadLength = payloadLength;
+            this.index = new int[carriers];
+            this.offset = new long[carriers];
+            this.length = new int[carriers];
+            Arrays.fill(index, -1);
+        }
+
+        private void assign(int carrier, int shardIndex, long shardOffset, int shardLength) {
+            index[carrier] = shardIndex;
+            offset[carrier] = shardOffset;
+            length[carrier] = shardLength;
+        }
+
+        boolean uses(int carrier) {
+            return index[carrier] >= 0;
+        }
+
+        int shards() {
+            return dataShards + parityShards;
+        }
+
+        /**
+         * Bytes of the shard for {@code carrier} (header included), 0 if the carrier is unused.
+         */
+        long shardLength(int carrier) {
+            return uses(carrier) ? OVERHEAD + length[carrier] : 0;
+        }
+
+        /**
+         * Builds the shard for {@code carrier}: data shards copy their slice of the payload,
+         * parity shards are encoded slice by slice from the data stripes.
+         * @param payload the payload file, read through read-only mappings
+         */
+        byte[] cut(int carrier, FileChannel payload) throws Exception {
+            int i = index[carrier];
+            if (i < 0) {
+                throw new Exception("Carrier " + carrier + " receives no shard.");
+            }
+            byte[] shard = new byte[OVERHEAD + length[carrier]];
+            if (i < dataShards) {
+                if (length[carrier] > 0) {
+                    payload.map(FileChannel.MapMode.READ_ONLY, offset[carrier], length[carrier])
+                            .get(0, shard, OVERHEAD, length[carrier]);
+                }
+            } else {
+                encodeParity(i - dataShards, payload, shard);
+            }
+            seal(shard, i, offset[carrier]);
+            return shard;
+        }
+
+        private void encodeParity(int parity, FileChannel payload, byte[] shard) throws Exception {
+            ReedSolomon rs = new ReedSolomon(dataShards, parityShards);
+            MappedByteBuffer[] stripes = new MappedByteBuffer[dataShards];
+            for (int j = 0; j < dataShards; j++) {
+                long from = Math.min(payloadLength, (long) j * stripe);
+                stripes[j] = payload.map(FileChannel.MapMode.READ_ONLY, from, Math.min(stripe, payloadLength - from));
+            }
+            // Data past the end of the payload is the zero padding of the last stripes
+            byte[] slice = new byte[Math.min(stripe, SLICE)];
+            for (int col = 0; col < stripe; col += SLICE) {
+                int width = Math.min(SLICE, stripe - col);
+                for (int j = 0; j < dataShards; j++) {
+                    int available = Math.max(0, Math.min(width, stripes[j].capacity() - col));
+                    if (available > 0) {
+                        stripes[j].get(col, slice, 0, available);
+                    }
+                    Arrays.fill(slice, available, width, (byte) 0);
+                    rs.encodeParitySlice(parity, j, slice, shard, OVERHEAD + col, width);
+                }
+            }
+        }
+
+        private void seal(byte[] shard, int shardIndex, long shardOffset) throws Exception {
+            ByteBuffer.wrap(shard)
+                    .put(MAGIC)
+                    .put(setId)
+                    .putShort((short) shardIndex)
+                    .putShort((short) dataShards)
+                    .putShort((short) parityShards)
+                    .putInt(stripe)
+                    .putLong(payloadLength)
+                    .putLong(shardOffset)
+                    .putInt(shard.length - OVERHEAD);
+            System.arraycopy(tag(mac(key), shard), 0, shard, HEADER_LENGTH, TAG_LENGTH);
+        }
+    }
+
+    // ==================================================================================
+    // JOINING
+    // ==================================================================================
+
+    /**
+     * Rebuilds a payload from shards offered in any order and from any thread.
+     * Each authentic shard is written straight to its place (data into the payload file, parity into a
+     * spool file) and dropped; {@link #finish} rebuilds missing data with Reed-Solomon, slice by slice.
+     * Unauthenticated shards are ignored.
+     */
+    static final class Assembler {
+        private final FileChannel payload;
+        private final FileChannel parity;
+        private final String password;
+        private final Consumer<String> log;
+
+        // Geometry of the first authentic shard
+        private byte[] setId;
+        private int dataShards;
+        private int parityShards;
+        private int stripe;
+        private long payloadLength;
+        private boolean[] present;
+        private int accepted;
+        private boolean mixed;
+
+        /**
+         * @param payload empty file that receives the payload
+         * @param parity empty spool file for parity shards
+         * @param log receives one line per rejected shard
+         */
+        Assembler(FileChannel payload, FileChannel parity, String password, Consumer<String> log) {
+            this.payload = payload;
+            this.parity = parity;
+            this.password = password;
+            this.log = log;
+        }
+
+        void add(byte[] raw) throws Exception {
+            // 1. Parse and authenticate outside the lock
+            Shard shard = Shard.parse(raw);
+            if (shard == null) {
+                log.accept("SHARD SKIPPED: NOT A SHARD");
+                return;
+            }
+            if (!shard.verify(mac(shardKey(password, shard.setId)))) {
+                log.accept("SHARD " + shard.index + " REJECTED: AUTHENTICATION FAILED");
+                return;
+            }
+
+            // 2. One set only; geometry from its first shard
+            synchronized (this) {
+                if (setId == null) {
+                    setId = shard.setId;
+                    dataShards = shard.dataShards;
+                    parityShards = shard.parityShards;
+                    stripe = shard.stripe;
+                    payloadLength = shard.payloadLength;
+                    present = new boolean[dataShards + parityShards];
+                } else if (!Arrays.equals(setId, shard.setId)) {
+                    mixed = true;
+                    return;
+                }
+                if (shard.index >= present.length || present[shard.index]) {
+                    return;
+                }
+                present[shard.index] = true;
+                accepted++;
+            }
+
+            // 3. Positional writes, concurrent with other shards
+            if (shard.index < dataShards) {
+                writeFully(payload, ByteBuffer.wrap(raw, OVERHEAD, shard.length), shard.offset);
+            } else {
+                writeFully(parity, ByteBuffer.wrap(raw, OVERHEAD, shard.length), (long) (shard.index - dataShards) * stripe);
+            }
+        }
+
+        /**
+         * Completes the payload file once every shard was offered.
+         * @return the payload length
+         */
+        synchronized long finish() throws Exception {
+            if (setId == null) {
+                throw new Exception("No authentic shards found.");
+            }
+            if (mixed) {
+                throw new Exception("Carriers hold shards of more than one payload.");
+            }
+            boolean complete = true;
+            for (int j = 0; j < dataShards; j++) {
+                complete &= present[j];
+            }
+            if (!complete) {
+                if (parityShards == 0) {
+                    throw new Exception("Shard set incomplete and has no parity. Found " + accepted + " of " + dataShards + " shards.");
+                }
+                rebuild();
+                log.accept("REED-SOLOMON: REBUILT " + (present.length - accepted) + " MISSING SHARD(S)");
+            }
+            if (payload.size() != payloadLength) {
+                throw new Exception("Shard set inconsistent: " + payload.size() + " of " + payloadLength + " bytes restored.");
+            }
+            return payloadLength;
+        }
+
+        /**
+         * Reed-Solomon over the padded stripes, one column slice of every shard at a time.
+         */
+        private void rebuild() throws Exception {
+            ReedSolomon rs = new ReedSolomon(dataShards, parityShards);
+            int n = present.length;
+            byte[][] buffers = new byte[n][];
+            for (int i = 0; i < n; i++) {
+                if (present[i]) {
+                    buffers[i] = new byte[Math.min(stripe, SLICE)];
+                }
+            }
+            byte[][] slices = new byte[n][];
+            for (int col = 0; col < stripe; col += SLICE) {
+                int width = Math.min(SLICE, stripe - col);
+                for (int i = 0; i < n; i++) {
+                    slices[i] = buffers[i];
+                    if (!present[i]) {
+                        continue;
+                    }
+                    if (i < dataShards) {
+                        int available = available(i, col, width);
+                        readFully(payload, ByteBuffer.wrap(slices[i], 0, available), (long) i * stripe + col);
+                        Arrays.fill(slices[i], available, width, (byte) 0);
+                    } else {
+                        readFully(parity, ByteBuffer.wrap(slices[i], 0, width), (long) (i - dataShards) * stripe + col);
+                    }
+                }
+                rs.reconstruct(slices, width);
+                for (int j = 0; j < dataShards; j++) {
+                    if (!present[j]) {
+                        writeFully(payload, ByteBuffer.wrap(slices[j], 0, available(j, col, width)), (long) j * stripe + col);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Bytes of a column slice of data stripe {@code j} that lie inside the payload.
+         */
+        private int available(int j, int col, int width) {
+            return (int) Math.max(0, Math.min(width, payloadLength - ((long) j * stripe + col)));
+        }
+    }
+
+    // ==================================================================================
+    // SHARD FORMAT
+    // ==================================================================================
+
+    private static byte[] tag(Mac mac, byte[] shard) {
+        mac.update(shard, 0, HEADER_LENGTH);
+        mac.update(shard, OVERHEAD, shard.length - OVERHEAD);
+        return mac.doFinal();
+    }
+
+    /**
+     * HMAC subkey of the (session-cached) PBKDF2 key for this password and set.
+     */
+    private static byte[] shardKey(String password, byte[] setId) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KeyCache.shared().derive(password, setId, ITERATION_COUNT).getEncoded(), "HmacSHA256"));
+        return mac.doFinal(MAC_KEY_LABEL);
+    }
+
+    private static Mac mac(byte[] key) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Shard spool ended early.");
+            }
+            position += read;
+        }
+    }
+
+    private static Integer[] bySizeDescending(long[] room) {
+        Integer[] order = new Integer[room.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> room[i]).reversed());
+        return order;
+    }
+
+    /**
+     * One parsed shard; fields are trusted only after {@link #verify}.
+     */
+    private static final class Shard {
+        final byte[] raw;
+        final byte[] setId;
+        final int index;
+        final int dataShards;
+        final int parityShards;
+        final int stripe;
+        final long payloadLength;
+        final long offset;
+        final int length;
+
+        private Shard(byte[] raw, ByteBuffer header) {
+            this.raw = raw;
+            this.setId = new byte[SET_ID_LENGTH];
+            header.position(MAGIC.length);
+            header.get(setId);
+            this.index = header.getShort() & 0xFFFF;
+            this.dataShards = header.getShort() & 0xFFFF;
+            this.parityShards = header.getShort() & 0xFFFF;
+            this.stripe = header.getInt();
+            this.payloadLength = header.getLong();
+            this.offset = header.getLong();
+            this.length = header.getInt();
+        }
+
+        static Shard parse(byte[] raw) {
+            if (raw.length < OVERHEAD || !Arrays.equals(raw, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+                return null;
+            }
+            return new Shard(raw, ByteBuffer.wrap(raw));
+        }
+
+        boolean verify(Mac mac) {
+            byte[] expected = Arrays.copyOf(tag(mac, raw), TAG_LENGTH);
+            if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(raw, HEADER_LENGTH, OVERHEAD))) {
+                return false;
+            }
+            // Authentic geometry can still be inconsistent only through a bug; check before indexing
+            return length == raw.length - OVERHEAD && dataShards >= 1 && dataShards + parityShards <= ReedSolomon.MAX_SHARDS
+                    && offset >= 0 && offset + length <= payloadLength
+                    && (parityShards == 0 || (stripe >= length && index < dataShards + parityShards));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,444 @@
+package src.main.service;
+
+import src.main.encryption.Decryption;
+import src.main.encryption.Encryption;
+import src.main.encryption.KeyCache;
+import src.main.steganography.AudioSteganography;
+import src.main.steganography.CapacityPlanner;
+import src.main.steganography.EmbedDepth;
+import src.main.steganography.ImageSteganography;
+import src.main.steganography.PngEncodeOptions;
+import src.main.steganography.StegoPayload;
+import src.main.steganography.VideoSteganography;
+import src.main.utils.CompressionUtils;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * UI-free Service Layer.
+ * Owns the crypto & stego engines and runs the complete embed / extract pipelines.
+ * * PIPELINE:
+ * - Embed: [compress] -> encrypt (raw bytes) -> [decoy marker] -> hide in carrier.
+ * - Extract: reveal -> [strip decoy marker] -> decrypt -> [decompress].
+ * - Files: manifest + [deflate] ({@link FilePayload}) -> segmented encryption -> hide, all as
+ *   streams through temporary files next to the output, so heap use does not grow with the file.
+ * - Sharded files: as files, then the ciphertext is split over many carriers ({@link PayloadShards},
+ *   optional Reed-Solomon parity) and the carriers are embedded / revealed in parallel. Shards are cut
+ *   from and written back to the spooled ciphertext, so only the shards in flight are on the heap.
+ * * Progress lines go to a pluggable log sink (the Swing terminal, stderr, or nowhere);
+ * failures are thrown to the caller, which decides how to present them.
+ */
+public class StegoService {
+
+    // Marks the real layer of a decoy payload (kept as text so old carriers still match)
+    private static final String REAL_LAYER_PREFIX = "REAL_LAYER::";
+    private static final byte[] REAL_LAYER_BYTES = REAL_LAYER_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private final Encryption encryption;
+    private final Decryption decryption;
+    private final ImageSteganography imageStego;
+    private final AudioSteganography audioStego;
+    private final VideoSteganography videoStego;
+
+    private Consumer<String> log = line -> { };
+
+    // Compress-then-encrypt for hidden messages (fewer payload bits to scatter)
+    private boolean compressPayloads = true;
+
+    // Capacity planning of sharded payloads follows the engines' depth
+    private EmbedDepth depth = EmbedDepth.ONE_BIT;
+    private int carrierJobs = Runtime.getRuntime().availableProcessors();
+
+    public StegoService() {
+        this.encryption = new Encryption();
+        this.decryption = new Decryption();
+        this.imageStego = new ImageSteganography();
+        this.audioStego = new AudioSteganography();
+        this.videoStego = new VideoSteganography();
+    }
+
+    // ==================================================================================
+    // CONFIGURATION
+    // ==================================================================================
+
+    public void setLog(Consumer<String> log) {
+        this.log = log != null ? log : line -> { };
+    }
+
+    /**
+     * Enables the compression stage in front of message encryption. Extraction always
+     * understands both forms.
+     */
+    public void setCompressPayloads(boolean compressPayloads) {
+        this.compressPayloads = compressPayloads;
+    }
+
+    /**
+     * Session master key mode: one PBKDF2 run per session for every message encrypted
+     * with the same password (see {@link Encryption#setSessionMasterKey(boolean)}).
+     */
+    public void setSessionMasterKey(boolean enabled) {
+        encryption.setSessionMasterKey(enabled);
+    }
+
+    /**
+     * Cores each operation may use (segmented file crypto, parallel PNG deflate).
+     */
+    public void setThreads(int threads) {
+        encryption.setThreads(threads);
+        decryption.setThreads(threads);
+        imageStego.setPngOptions(PngEncodeOptions.DEFAULT.withThreads(threads));
+    }
+
+    /**
+     * Bits per image channel / audio sample for new carriers (1-4 or adaptive).
+     */
+    public void setEmbedDepth(EmbedDepth depth) {
+        this.depth = depth;
+        imageStego.setEmbedDepth(depth);
+        audioStego.setEmbedDepth(depth);
+    }
+
+    /**
+     * Carriers embedded or revealed at the same time by the sharded pipelines.
+     */
+    public void setCarrierJobs(int carrierJobs) {
+        this.carrierJobs = Math.max(1, carrierJobs);
+    }
+
+    /**
+     * Capacity of a carrier for every depth, from its headers only (see {@link CapacityPlanner});
+     * cached per file in the shared {@link CarrierInfo} index.
+     */
+    public CapacityPlanner.Plan plan(File carrier) throws Exception {
+        return CarrierInfo.shared().plan(carrier);
+    }
+
+    // ==================================================================================
+    // FILE CRYPTOGRAPHY
+    // ==================================================================================
+
+    public void encryptFile(File source, File destination, String password) throws Exception {
+        encryption.encryptFile(source, destination, password);
+        logKeyDerivation();
+    }
+
+    public void decryptFile(File source, File destination, String password) throws Exception {
+        decryption.decryptFile(source, destination, password);
+        logKeyDerivation();
+    }
+
+    // ==================================================================================
+    // STEGANOGRAPHY
+    // ==================================================================================
+
+    /**
+     * Encrypts the message and hides it in the carrier. The decoy marker is understood by every carrier type.
+     */
+    public void embed(CarrierType type, File src, File dest, String msg, String pass, boolean useDecoy) throws Exception {
+        byte[] payload = encryptPayload(msg, pass);
+        if (useDecoy) {
+            byte[] marked = Arrays.copyOf(REAL_LAYER_BYTES, REAL_LAYER_BYTES.length + payload.length);
+            System.arraycopy(payload, 0, marked, REAL_LAYER_BYTES.length, payload.length);
+            payload = marked;
+        }
+
+        hide(type, src, dest, payload, pass);
+    }
+
+    /**
+     * Reveals and decrypts the hidden message.
+     */
+    public String extract(CarrierType type, File src, String pass) throws Exception {
+        return decryptPayload(reveal(type, src, pass), pass);
+    }
+
+    private void hide(CarrierType type, File src, File dest, byte[] payload, String pass) throws Exception {
+        switch (type) {
+            case IMAGE -> imageStego.embedBytes(src, dest, payload, pass);
+            case AUDIO -> audioStego.embedBytes(src, dest, payload, pass);
+            // Video does not support scatter, the encrypted payload goes after EOF
+            case VIDEO -> videoStego.embedBytes(src, dest, payload);
+        }
+    }
+
+    private StegoPayload reveal(CarrierType type, File src, String pass) throws Exception {
+        return switch (type) {
+            case IMAGE -> imageStego.extractPayload(src, pass);
+            case AUDIO -> audioStego.extractPayload(src, pass);
+            case VIDEO -> videoStego.extractPayload(src);
+        };
+    }
+
+    /**
+     * Hides a file of any size (up to the carrier's capacity) together with its name, size and SHA-256.
+     * The decoy marker is message-only.
+     */
+    public void embedFile(CarrierType type, File src, File dest, File payloadFile, String pass) throws Exception {
+        File container = spoolFile(dest);
+        File blob = spoolFile(dest);
+        try {
+            // 1. Manifest + body (compressed when the start of the file compresses)
+            FilePayload.Manifest manifest = FilePayload.pack(payloadFile, container, compressPayloads);
+            log.accept("FILE PAYLOAD: " + manifest.name + " " + manifest.size + " -> " + container.length() + " BYTES ("
+                    + CompressionUtils.codecName(manifest.codec) + ")");
+
+            // 2. Segmented AES-GCM, one 1 MB segment at a time
+            encryption.encryptFile(container, blob, pass);
+            logKeyDerivation();
+
+            // 3. Hide the ciphertext, read through a memory map (video: streamed after EOF)
+            switch (type) {
+                case IMAGE -> imageStego.embedFile(src, dest, blob, pass);
+                case AUDIO -> audioStego.embedFile(src, dest, blob, pass);
+                case VIDEO -> videoStego.embedFile(src, dest, blob);
+            }
+        } finally {
+            discard(container);
+            discard(blob);
+        }
+    }
+
+    /**
+     * Reveals a file hidden by {@link #embedFile} into {@code outputDir} and returns it.
+     */
+    public File extractFile(CarrierType type, File src, File outputDir, String pass) throws Exception {
+        File blob = spoolFile(new File(outputDir, src.getName()));
+        File container = spoolFile(new File(outputDir, src.getName()));
+        try {
+            // 1. Ciphertext written through a memory map once the header checks out
+            switch (type) {
+                case IMAGE -> imageStego.extractFile(src, blob, pass);
+                case AUDIO -> audioStego.extractFile(src, blob, pass);
+                case VIDEO -> videoStego.extractFile(src, blob);
+            }
+
+            // 2. Segment by segment decryption and verification
+            decryption.decryptFile(blob, container, pass);
+            logKeyDerivation();
+
+            // 3. Restore under the stored name, checking size and SHA-256
+            File restored = FilePayload.unpack(container, outputDir);
+            log.accept("FILE RESTORED: " + restored.getName() + " " + restored.length() + " BYTES");
+            return restored;
+        } finally {
+            discard(blob);
+            discard(container);
+        }
+    }
+
+    // ==================================================================================
+    // SHARDED FILES (One payload, many carriers)
+    // ==================================================================================
+
+    /**
+     * Encrypts a file as {@link #embedFile} does, splits the ciphertext into authenticated shards
+     * assigned by carrier capacity and embeds them in parallel.
+     * @param parityShards Reed-Solomon parity shards (0: every carrier is needed to extract)
+     * @return carrier -> written stego file, for the carriers that received a shard
+     */
+    public Map<File, File> embedSharded(List<File> carriers, File outDir, File payloadFile, int parityShards,
+                                        String pass) throws Exception {
+        File container = spoolFile(new File(outDir, payloadFile.getName()));
+        File blob = spoolFile(new File(outDir, payloadFile.getName()));
+        try {
+            // 1. Manifest + body, segmented AES-GCM (as a single-carrier file payload)
+            FilePayload.Manifest manifest = FilePayload.pack(payloadFile, container, compressPayloads);
+            encryption.encryptFile(container, blob, pass);
+            logKeyDerivation();
+            discard(container);
+
+            // 2. Shards sized by capacity, from the carrier headers only
+            long[] capacities = new long[carriers.size()];
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = shardCapacity(carriers.get(i));
+            }
+            PayloadShards.Plan plan = PayloadShards.plan(blob.length(), capacities, parityShards, pass);
+            log.accept("SHARDING: " + manifest.name + " " + blob.length() + " BYTES -> " + plan.shards() + " SHARDS ("
+                    + parityShards + " PARITY)");
+
+            // 3. Embed every shard as a binary payload, carriers in parallel. Each job cuts its shard from
+            //    the ciphertext file once admitted, so shards are part of the scheduler's memory budget
+            Map<File, File> written = new LinkedHashMap<>();
+            List<CompletableFuture<Void>> jobs = new ArrayList<>();
+            try (FileChannel source = FileChannel.open(blob.toPath(), StandardOpenOption.READ);
+                 BatchScheduler scheduler = new BatchScheduler(Math.min(carrierJobs, carriers.size()), BatchScheduler.defaultMemoryBudget())) {
+                for (int i = 0; i < carriers.size(); i++) {
+                    if (!plan.uses(i)) {
+                        continue;
+                    }
+                    File carrier = carriers.get(i);
+                    File dest = new File(outDir, carrier.getName());
+                    if (written.containsValue(dest)) {
+                        throw new Exception("Two carriers share the output name " + dest.getName() + ".");
+                    }
+                    written.put(carrier, dest);
+                    CarrierType type = CarrierType.fromFile(carrier);
+                    int index = i;
+                    jobs.add(scheduler.submit(HeapEstimator.estimate(type, carrier) + plan.shardLength(index),
+                            () -> hide(type, carrier, dest, plan.cut(index, source), pass)));
+                }
+            }
+            await(jobs);
+            return written;
+        } finally {
+            discard(container);
+            discard(blob);
+        }
+    }
+
+    /**
+     * Reveals the shards of every carrier in parallel (any order, carriers without a shard are
+     * skipped), rebuilds the ciphertext on disk and restores the file into {@code outputDir}.
+     */
+    public File extractSharded(List<File> carriers, File outputDir, String pass) throws Exception {
+        File blob = spoolFile(new File(outputDir, "shards"));
+        File parity = spoolFile(new File(outputDir, "shards"));
+        File container = spoolFile(new File(outputDir, "shards"));
+        try {
+            // 1. Reveal concurrently; every authentic shard goes straight to the spool files
+            try (FileChannel payloadOut = FileChannel.open(blob.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileChannel parityOut = FileChannel.open(parity.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                PayloadShards.Assembler assembler = new PayloadShards.Assembler(payloadOut, parityOut, pass, log);
+                List<CompletableFuture<Void>> jobs = new ArrayList<>();
+                try (BatchScheduler scheduler = new BatchScheduler(Math.min(carrierJobs, carriers.size()), BatchScheduler.defaultMemoryBudget())) {
+                    for (File carrier : carriers) {
+                        CarrierType type = CarrierType.fromFile(carrier);
+                        jobs.add(scheduler.submit(HeapEstimator.estimate(type, carrier), () -> {
+                            StegoPayload payload;
+                            try {
+                                payload = reveal(type, carrier, pass);
+                            } catch (Exception e) {
+                                log.accept("SHARD MISSING: " + carrier.getName() + " (" + e.getMessage() + ")");
+                                return;
+                            }
+                            if (payload.isBinary()) {
+                                assembler.add(payload.bytes());
+                            }
+                        }));
+                    }
+                }
+                await(jobs);
+
+                // 2. Reed-Solomon fills in missing shards
+                log.accept("SHARDS JOINED: " + assembler.finish() + " BYTES");
+            }
+            discard(parity);
+
+            // 3. Decrypt and restore as a single-carrier file payload
+            decryption.decryptFile(blob, container, pass);
+            logKeyDerivation();
+            File restored = FilePayload.unpack(container, outputDir);
+            log.accept("FILE RESTORED: " + restored.getName() + " " + restored.length() + " BYTES");
+            return restored;
+        } finally {
+            discard(blob);
+            discard(parity);
+            discard(container);
+        }
+    }
+
+    /**
+     * Shard bytes a carrier holds at the configured depth (adaptive estimates keep a 10% margin).
+     */
+    private long shardCapacity(File carrier) throws Exception {
+        CapacityPlanner.Plan plan = CarrierInfo.shared().plan(carrier);
+        long capacity = plan.capacityBytes(depth);
+        return plan.isExact(depth) ? capacity : capacity / 10 * 9;
+    }
+
+    /**
+     * Waits for every job and rethrows the first failure.
+     */
+    private static void await(List<CompletableFuture<Void>> jobs) throws Exception {
+        try {
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    // ==================================================================================
+    // PAYLOAD PIPELINE
+    // ==================================================================================
+
+    /**
+     * Compresses (optional) and encrypts the message into the raw blob that is hidden in the carrier.
+     */
+    private byte[] encryptPayload(String msg, String pass) throws Exception {
+        byte[] plain = msg.getBytes(StandardCharsets.UTF_8);
+        if (compressPayloads) {
+            byte[] packed = CompressionUtils.pack(plain);
+            log.accept("COMPRESSION: " + CompressionUtils.codecName(packed) + " " + plain.length + " -> " + packed.length + " BYTES");
+            plain = packed;
+        }
+        byte[] securePayload = encryption.encryptBytes(plain, pass);
+        logKeyDerivation();
+        return securePayload;
+    }
+
+    /**
+     * Decrypts an extracted payload: raw binary blobs directly, legacy text carriers via Base64.
+     * Strips the decoy marker from either form first.
+     */
+    private String decryptPayload(StegoPayload securePayload, String pass) throws Exception {
+        String plainText;
+        if (securePayload.isBinary()) {
+            byte[] blob = securePayload.bytes();
+            if (startsWith(blob, REAL_LAYER_BYTES)) {
+                blob = Arrays.copyOfRange(blob, REAL_LAYER_BYTES.length, blob.length);
+                log.accept("NOTICE: DECOY LAYER BYPASSED. ACCESSING CORE.");
+            }
+            // Compressed payloads carry an envelope; older ones are plain UTF-8
+            byte[] plain = CompressionUtils.unpack(decryption.decryptBytes(blob, pass));
+            plainText = new String(plain, StandardCharsets.UTF_8);
+        } else {
+            String text = securePayload.asText();
+            if (text.startsWith(REAL_LAYER_PREFIX)) {
+                text = text.replace(REAL_LAYER_PREFIX, "");
+                log.accept("NOTICE: DECOY LAYER BYPASSED. ACCESSING CORE.");
+            }
+            plainText = decryption.decryptMessage(text, pass);
+        }
+        logKeyDerivation();
+        return plainText;
+    }
+
+    /**
+     * Temporary file in the output's folder (same volume, and no plaintext in the system temp dir).
+     */
+    private static File spoolFile(File output) throws Exception {
+        File dir = output.getAbsoluteFile().getParentFile();
+        return Files.createTempFile(dir.toPath(), ".stego-", ".part").toFile();
+    }
+
+    private static void discard(File spool) {
+        if (!spool.delete() && spool.exists()) {
+            spool.deleteOnExit(); // Still mapped on some platforms
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return data.length >= prefix.length
+                && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Logs whether the last key came from the session cache or a fresh PBKDF2 run, with its latency.
+     */
+    private void logKeyDerivation() {
+        log.accept("KEY DERIVATION: " + KeyCache.shared().lastLookup());
+    }
+}
\ No newline at end of file
@@ -1,139 +1,424 @@
 package src.main.steganography;
 
-import java.io.*;
+import src.main.utils.TaskProgress;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.BitSet;
 
 /**
  * PRO-LEVEL AUDIO STEGANOGRAPHY ENGINE.
  * Implements Pseudo-Random Scatter Injection on WAV Audio.
  * * LOGIC:
- * 1. Skips 44-byte WAV Header.
- * 2. Writes 32-bit Length Header sequentially (Handshake).
- * 3. Scatters Payload bits across random samples using Password Seed.
+ * 1. Parses the RIFF chunks ({@link WavFile}), copies the carrier with transferTo and patches
+ *    the copy in place through a sliding memory map over the "data" chunk (64 MB windows).
+ * 2. Writes the 128-bit authenticated header (Handshake + MAC) sequentially into the first 128 samples;
+ *    extraction rejects a wrong password or a clean file on these samples alone.
+ * 3. Scatters Payload bits across samples using a Password-keyed permutation. Positions are
+ *    generated in batches and sorted, so each batch is one ascending pass over the windows;
+ *    dense payloads on large files use a single inverse-permutation sweep instead.
+ * * k bits per sample ({@link EmbedDepth}: 1-4, or adaptive per 1024-sample region), always in
+ *   the least significant byte of the sample (never in the high-order bytes of 16/24/32-bit PCM),
+ *   so capacity = samples * k / 8 bytes.
+ * * Older carriers (one bit per byte after a fixed 44-byte header, versioned or legacy
+ *   32-bit length with rejection-sampled scatter) are still extracted.
+ * * File payloads are embedded from and extracted to a memory-mapped file ({@link PayloadTarget}).
+ * * The carrier copy and the scatter passes report to the thread's {@link TaskProgress} per copied
+ *   chunk and every {@link TaskProgress#STRIDE} bit-groups.
  */
 public class AudioSteganography {
 
-    private static final int WAV_HEADER_SIZE = 44;
+    // Byte layout of carriers written before the RIFF parser
+    private static final int LEGACY_HEADER_SIZE = 44;
+
+    public static final long DEFAULT_WINDOW_BYTES = 64L << 20;
+
+    // Scatter batches: 2M bit-groups (16 MB of sort keys + 16 MB of offsets) per sorted pass,
+    // slot packed above the position in the batch
+    private static final int BATCH_INDEX_BITS = 22;
+    private static final long BATCH_INDEX_MASK = (1L << BATCH_INDEX_BITS) - 1;
+    private static final int SORTED_BATCH = 1 << 21;
+    private static final int MAX_SORTED_PASSES = 8;
+
+    private long windowBytes = DEFAULT_WINDOW_BYTES;
+    private EmbedDepth depth = EmbedDepth.ONE_BIT;
+
+    /**
+     * Size of the memory-mapped window over the sample data (rounded down to whole samples).
+     */
+    public void setWindowBytes(long windowBytes) {
+        this.windowBytes = Math.max(1 << 16, windowBytes);
+    }
 
     // ==================================================================================
     // EMBEDDING LOGIC (Scatter Mode)
     // ==================================================================================
 
+    /**
+     * Hides a text message (stored as UTF-8, readable by every version).
+     */
     public void embedMessage(File sourceFile, File destFile, String message, String password) throws Exception {
-        // 1. Read All Bytes
-        byte[] audioBytes = readFile(sourceFile);
+        embed(sourceFile, destFile, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)), 0, password);
+    }
+
+    /**
+     * Hides raw bytes (e.g. ciphertext) without any text encoding; flagged as binary in the header.
+     */
+    public void embedBytes(File sourceFile, File destFile, byte[] payload, String password) throws Exception {
+        embed(sourceFile, destFile, ByteBuffer.wrap(payload), StegoHeader.FLAG_BINARY_PAYLOAD, password);
+    }
+
+    /**
+     * Hides the bytes of a file (e.g. an encrypted file container), read through a memory map;
+     * flagged so that only {@link #extractFile} restores it.
+     */
+    public void embedFile(File sourceFile, File destFile, File payloadFile, String password) throws Exception {
+        embed(sourceFile, destFile, PayloadTarget.mapSource(payloadFile),
+                StegoHeader.FLAG_BINARY_PAYLOAD | StegoHeader.FLAG_FILE_PAYLOAD, password);
+    }
 
-        // 2. Prepare Payload
-        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
-        byte[] lengthBytes = intToBytes(messageBytes.length);
+    /**
+     * Hides a text message directly in the given WAV file (no copy is made).
+     */
+    public void embedInPlace(File wavFile, String message, String password) throws Exception {
+        embed(wavFile, wavFile, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)), 0, password);
+    }
 
-        // 3. Capacity Check
-        // Available space = Total - Header
-        int dataAreaSize = audioBytes.length - WAV_HEADER_SIZE;
-        int requiredBits = (lengthBytes.length + messageBytes.length) * 8;
+    /**
+     * Bits per sample used by new carriers (extraction reads the depth from the header).
+     */
+    public void setEmbedDepth(EmbedDepth depth) {
+        this.depth = depth;
+    }
 
-        if (requiredBits > dataAreaSize) {
-            throw new Exception("Audio file too short. Need " + requiredBits + " samples, have " + dataAreaSize);
+    /**
+     * Maximum payload in bytes for the given WAV file at the configured depth
+     * (adaptive depth reads the whole file once to build its map).
+     */
+    public long capacity(File wavFile) throws Exception {
+        WavFile wav = WavFile.parse(wavFile);
+        if (!depth.isAdaptive()) {
+            return Math.max(0, (wav.sampleCount() - StegoHeader.AUTHENTICATED_SIZE_BITS) * depth.bits() / 8);
         }
+        try (FileChannel channel = FileChannel.open(wavFile.toPath(), StandardOpenOption.READ)) {
+            WavSampleWindow window = new WavSampleWindow(channel, wav, FileChannel.MapMode.READ_ONLY, windowBytes);
+            return Math.max(0, DepthMap.forAudio(window, wav.sampleCount(), depth).capacityBits(StegoHeader.AUTHENTICATED_SIZE_BITS) / 8);
+        }
+    }
 
-        // 4. Initialize PRNG
-        SecureRandom prng = SecureRandom.getInstance("SHA1PRNG");
-        prng.setSeed(password.getBytes());
+    private void embed(File sourceFile, File destFile, ByteBuffer payload, int payloadFlags, String password) throws Exception {
+        // 1. Parse Layout
+        WavFile wav = WavFile.parse(sourceFile);
 
-        // 5. EMBED HEADER (Sequential - First 32 bits after WAV Header)
-        int audioIndex = WAV_HEADER_SIZE;
-        for (byte b : lengthBytes) {
-            for (int i = 7; i >= 0; i--) {
-                int bit = (b >>> i) & 1;
-                audioBytes[audioIndex] = (byte) ((audioBytes[audioIndex] & 0xFE) | bit);
-                audioIndex++;
+        // 2. Capacity Check (k bits per sample after the header, or the adaptive map's total)
+        long samples = wav.sampleCount();
+        DepthMap map = null;
+        if (depth.isAdaptive()) {
+            try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+                map = DepthMap.forAudio(new WavSampleWindow(channel, wav, FileChannel.MapMode.READ_ONLY, windowBytes), samples, depth);
             }
         }
+        int base = StegoHeader.AUTHENTICATED_SIZE_BITS;
+        long capacityBits = map != null ? map.capacityBits(base) : (samples - base) * depth.bits();
+        long totalBits = (long) payload.limit() * 8;
+        if (samples < base || totalBits > capacityBits) {
+            throw new Exception("Audio file too short. Need " + totalBits + " bits, " + depth
+                    + " embedding holds " + Math.max(0, capacityBits) + ".");
+        }
 
-        // 6. EMBED PAYLOAD (Scatter Mode)
-        // Use BitSet to track used samples (relative to data area)
-        BitSet usedSamples = new BitSet(dataAreaSize);
+        // 3. Prepare Payload
+        ScatterKeystream keystream = ScatterKeystream.create(ScatterKeystream.ID_AES_CTR, password);
+        int flags = keystream.id() | StegoHeader.FLAG_SAMPLE_ALIGNED | payloadFlags;
+        StegoHeader header = StegoHeader.create(flags, depth, payload.limit(), password);
 
-        // Mark the first 32 bits (Length Header) as used
-        usedSamples.set(0, 32);
+        // 4. Copy the carrier (kernel-side), then patch sample LSBs in place on the copy
+        if (!destFile.exists() || !Files.isSameFile(sourceFile.toPath(), destFile.toPath())) {
+            copy(sourceFile, destFile);
+        }
+        try (FileChannel channel = FileChannel.open(destFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            WavSampleWindow window = new WavSampleWindow(channel, wav, FileChannel.MapMode.READ_WRITE, windowBytes);
 
-        for (byte b : messageBytes) {
-            for (int i = 7; i >= 0; i--) {
-                int bit = (b >>> i) & 1;
+            // 5. EMBED HEADER (Sequential - First 128 samples, always 1 bit per sample)
+            for (int i = 0; i < base; i++) {
+                window.setLsb(i, header.bit(i));
+            }
 
-                // Find random unused sample relative to data area
-                int randomOffset = findUnusedIndex(prng, dataAreaSize, usedSamples);
+            // 6. EMBED PAYLOAD (Scatter Mode)
+            // Keyed permutation over the samples after the header
+            TaskProgress.current().begin("EMBED", payload.limit());
+            ScatterPermutation scatter = new ScatterPermutation(samples - base, keystream);
+            scatter(window, scatter, base, depth, map, totalBits,
+                    (sample, offset, count) -> window.setBits(sample, count, PayloadBits.read(payload, offset, count)));
 
-                // Actual index = WAV Header + Random Offset
-                int actualIndex = WAV_HEADER_SIZE + randomOffset;
+            // 7. Flush the last window
+            window.flush();
+        }
+    }
 
-                audioBytes[actualIndex] = (byte) ((audioBytes[actualIndex] & 0xFE) | bit);
-                usedSamples.set(randomOffset);
+    // ==================================================================================
+    // EXTRACTION LOGIC (Scatter Mode)
+    // ==================================================================================
+
+    /**
+     * Returns the hidden payload as a String (binary payloads come back Base64-encoded).
+     */
+    public String extractMessage(File sourceFile, String password) throws Exception {
+        return extractPayload(sourceFile, password).asText();
+    }
+
+    /**
+     * Returns the hidden payload bytes together with their text/binary format flag.
+     */
+    public StegoPayload extractPayload(File sourceFile, String password) throws Exception {
+        PayloadTarget target = PayloadTarget.heap();
+        extract(sourceFile, password, target);
+        return target.payload();
+    }
+
+    /**
+     * Writes a payload hidden by {@link #embedFile} to {@code payloadFile} through a memory map.
+     */
+    public void extractFile(File sourceFile, File payloadFile, String password) throws Exception {
+        extract(sourceFile, password, PayloadTarget.file(payloadFile));
+    }
+
+    private void extract(File sourceFile, String password, PayloadTarget target) throws Exception {
+        WavFile wav;
+        try {
+            wav = WavFile.parse(sourceFile);
+        } catch (Exception notRiff) {
+            wav = null; // Older versions accepted any file with a 44-byte prefix
+        }
+
+        try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            // 1. Sample-aligned handshake
+            if (wav != null && wav.sampleCount() >= StegoHeader.SIZE_BITS) {
+                WavSampleWindow window = new WavSampleWindow(channel, wav, FileChannel.MapMode.READ_ONLY, windowBytes);
+                int firstWord = readWord(window, 0);
+                if (StegoHeader.isVersioned(firstWord)) {
+                    StegoHeader header = StegoHeader.parse(firstWord, readWord(window, 32));
+                    if (header.isSampleAligned()) {
+                        extractScatter(window, header, wav.sampleCount(), password, target);
+                        return;
+                    }
+                }
+            }
+
+            // 2. Byte layout after a fixed 44-byte header (such carriers were always read into memory)
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new Exception("No hidden data found in audio file.");
             }
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            extractByteLayout(file, password, target);
+        }
+    }
+
+    private void extractScatter(WavSampleWindow window, StegoHeader header, long samples, String password,
+                                PayloadTarget target) throws Exception {
+        int messageLength = header.length;
+        EmbedDepth headerDepth = header.depth();
+        int base = header.sizeBits();
+
+        // Fast fail: length bounds, then the header MAC (v3), before the adaptive map costs a pass over the file
+        long totalBits = (long) messageLength * 8;
+        if (messageLength < 0 || samples < base || totalBits > (samples - base) * headerDepth.bits()) {
+            throw new Exception(StegoHeader.INVALID_HEADER);
+        }
+        if (header.isAuthenticated()) {
+            header.verify(((long) readWord(window, 64) << 32) | (readWord(window, 96) & 0xFFFFFFFFL), password);
         }
+        target.accept(header.flags);
+        DepthMap map = headerDepth.isAdaptive() ? DepthMap.forAudio(window, samples, headerDepth) : null;
+        if (map != null && totalBits > map.capacityBits(base)) {
+            throw new Exception(StegoHeader.INVALID_HEADER);
+        }
+
+        ScatterKeystream keystream = ScatterKeystream.create(header.keystreamId(), password);
+        ScatterPermutation scatter = new ScatterPermutation(samples - base, keystream);
 
-        // 7. Save File
-        writeFile(destFile, audioBytes);
+        TaskProgress.current().begin("EXTRACT", messageLength);
+        ByteBuffer payload = target.open(messageLength);
+        scatter(window, scatter, base, headerDepth, map, totalBits,
+                (sample, offset, count) -> PayloadBits.write(payload, offset, count, window.getBits(sample, count)));
+
+        target.finish(header.isBinary());
     }
 
     // ==================================================================================
-    // EXTRACTION LOGIC (Scatter Mode)
+    // SCATTER PASSES
     // ==================================================================================
 
-    public String extractMessage(File sourceFile, String password) throws Exception {
-        byte[] audioBytes = readFile(sourceFile);
-        int dataAreaSize = audioBytes.length - WAV_HEADER_SIZE;
+    /**
+     * One payload bit-group at an absolute sample index.
+     */
+    @FunctionalInterface
+    private interface GroupAction {
+        void apply(long sample, long bitOffset, int count) throws IOException;
+    }
+
+    /**
+     * Visits every payload bit-group with its sample, in ascending sample order per pass.
+     * Fixed depth on large dense payloads: one inverse-permutation sweep. Otherwise: batches of
+     * the forward walk, sorted by sample when the data spans several windows.
+     */
+    private void scatter(WavSampleWindow window, ScatterPermutation scatter, int base, EmbedDepth depth, DepthMap map,
+                         long totalBits, GroupAction action) throws IOException {
+        TaskProgress progress = TaskProgress.current();
+        long totalBytes = totalBits / 8;
+        if (map == null) {
+            int k = depth.bits();
+            long groups = DepthWalk.slotsFor(totalBits, k);
+            if (useSweep(window, groups)) {
+                double bytesPerSlot = (double) totalBytes / scatter.domain();
+                for (long slot = 0; slot < scatter.domain(); slot++) {
+                    long group = scatter.inverse(slot);
+                    if (group < groups) {
+                        long offset = group * k;
+                        action.apply(base + slot, offset, (int) Math.min(k, totalBits - offset));
+                    }
+                    if ((slot & TaskProgress.STRIDE_MASK) == 0) {
+                        progress.update((long) (slot * bytesPerSlot));
+                    }
+                }
+                progress.update(totalBytes);
+                return;
+            }
+        }
 
-        // 1. Initialize PRNG
-        SecureRandom prng = SecureRandom.getInstance("SHA1PRNG");
-        prng.setSeed(password.getBytes());
+        DepthWalk walk = new DepthWalk(scatter, depth, map, base, totalBits);
+        long[] keys = newBatch(window, totalBits);
+        long[] offsets = new long[keys.length];
+        boolean sort = !window.isSingleWindow();
+        while (true) {
+            int count = 0;
+            while (count < keys.length && walk.next()) {
+                keys[count] = (walk.slot() << BATCH_INDEX_BITS) | count;
+                offsets[count] = walk.bitOffset();
+                count++;
+            }
+            if (count == 0) {
+                progress.update(totalBytes);
+                return;
+            }
+            if (sort) {
+                Arrays.sort(keys, 0, count);
+            }
+            // Positions of a batch are spread over the payload: report its start, then its end
+            long batchStart = offsets[0] / 8;
+            for (int j = 0; j < count; j++) {
+                long slot = keys[j] >>> BATCH_INDEX_BITS;
+                long offset = offsets[(int) (keys[j] & BATCH_INDEX_MASK)];
+                action.apply(base + slot, offset, walk.bitsAt(slot, offset));
+                if ((j & TaskProgress.STRIDE_MASK) == TaskProgress.STRIDE_MASK) {
+                    progress.update(batchStart + (offsets[count - 1] / 8 - batchStart) * j / count);
+                }
+            }
+            progress.update(offsets[count - 1] / 8);
+        }
+    }
 
-        // 2. Extract Length Header (Sequential)
-        byte[] lengthBytes = new byte[4];
-        int audioIndex = WAV_HEADER_SIZE;
+    /**
+     * Carriers written before the RIFF parser: one bit per byte from offset 44 to the end of the file.
+     */
+    private void extractByteLayout(ByteBuffer audioBytes, String password, PayloadTarget target) throws Exception {
+        int dataAreaSize = audioBytes.capacity() - LEGACY_HEADER_SIZE;
+        if (dataAreaSize < 32) {
+            throw new Exception("Audio file too short to contain hidden data.");
+        }
 
-        for (int i = 0; i < 4; i++) {
-            for (int bit = 7; bit >= 0; bit--) {
-                int lsb = audioBytes[audioIndex] & 1;
-                lengthBytes[i] = (byte) ((lengthBytes[i] | (lsb << bit)));
-                audioIndex++;
+        // 1. Extract Handshake and dispatch on format
+        int firstWord = readWord(audioBytes, LEGACY_HEADER_SIZE);
+        if (!StegoHeader.isVersioned(firstWord)) {
+            extractLegacy(audioBytes, firstWord, password, target);
+            return;
+        }
+
+        StegoHeader header = StegoHeader.parse(firstWord, readWord(audioBytes, LEGACY_HEADER_SIZE + 32));
+        int messageLength = header.length;
+        int base = header.sizeBits();
+
+        // Sanity Check
+        if (messageLength < 0 || base + (long) messageLength * 8 > dataAreaSize) {
+            throw new Exception(StegoHeader.INVALID_HEADER);
+        }
+        if (header.isAuthenticated()) {
+            long tag = ((long) readWord(audioBytes, LEGACY_HEADER_SIZE + 64) << 32)
+                    | (readWord(audioBytes, LEGACY_HEADER_SIZE + 96) & 0xFFFFFFFFL);
+            header.verify(tag, password);
+        }
+        target.accept(header.flags);
+
+        // 2. Extract Payload (Scatter Mode)
+        int scatterBase = LEGACY_HEADER_SIZE + base;
+        ScatterKeystream keystream = ScatterKeystream.create(header.keystreamId(), password);
+        ScatterPermutation scatter = new ScatterPermutation(dataAreaSize - base, keystream);
+
+        ByteBuffer messageBytes = target.open(messageLength);
+        int totalBits = messageLength * 8;
+        int[] offsets = new int[ScatterPermutation.BATCH_SIZE];
+
+        for (int start = 0; start < totalBits; start += offsets.length) {
+            int count = Math.min(offsets.length, totalBits - start);
+            scatter.mapBatch(start, offsets, count);
+
+            for (int j = 0; j < count; j++) {
+                int bitIndex = start + j;
+                int lsb = audioBytes.get(scatterBase + offsets[j]) & 1;
+                PayloadBits.write(messageBytes, bitIndex, 1, lsb);
             }
         }
-        int messageLength = bytesToInt(lengthBytes);
+
+        target.finish(header.isBinary());
+    }
+
+    /**
+     * v0 carriers: 32-bit length header followed by rejection-sampled scatter.
+     */
+    private void extractLegacy(ByteBuffer audioBytes, int messageLength, String password, PayloadTarget target) throws Exception {
+        int dataAreaSize = audioBytes.capacity() - LEGACY_HEADER_SIZE;
 
         // Sanity Check
-        if (messageLength < 0 || (messageLength * 8) > dataAreaSize) {
-            throw new Exception("Invalid Data Header (Possible Wrong Password).");
+        if (messageLength < 0 || ((long) messageLength * 8) > dataAreaSize) {
+            throw new Exception(StegoHeader.INVALID_HEADER);
         }
+        target.accept(0);
+
+        ScatterKeystream prng = ScatterKeystream.create(ScatterKeystream.ID_SHA1PRNG, password);
 
-        // 3. Extract Payload (Scatter Mode)
         BitSet usedSamples = new BitSet(dataAreaSize);
         usedSamples.set(0, 32); // Skip Header
 
-        byte[] messageBytes = new byte[messageLength];
+        ByteBuffer messageBytes = target.open(messageLength);
 
         for (int i = 0; i < messageLength; i++) {
+            int value = 0;
             for (int bit = 7; bit >= 0; bit--) {
                 int randomOffset = findUnusedIndex(prng, dataAreaSize, usedSamples);
-                int actualIndex = WAV_HEADER_SIZE + randomOffset;
+                int actualIndex = LEGACY_HEADER_SIZE + randomOffset;
 
-                int lsb = audioBytes[actualIndex] & 1;
-                messageBytes[i] = (byte) ((messageBytes[i] | (lsb << bit)));
+                int lsb = audioBytes.get(actualIndex) & 1;
+                value |= lsb << bit;
 
                 usedSamples.set(randomOffset);
             }
+            messageBytes.put(i, (byte) value);
         }
 
-        return new String(messageBytes, StandardCharsets.UTF_8);
+        target.finish(false);
     }
 
     // ==================================================================================
     // UTILITIES
     // ==================================================================================
 
-    private int findUnusedIndex(SecureRandom prng, int max, BitSet used) {
+    private int findUnusedIndex(ScatterKeystream prng, int max, BitSet used) {
         int index;
         // Rejection Sampling: Keep picking random numbers until we find an unused one
         do {
@@ -142,23 +427,53 @@ public class AudioSteganography {
         return index;
     }
 
-    private byte[] readFile(File file) throws IOException {
-        try (FileInputStream fis = new FileInputStream(file)) {
-            return fis.readAllBytes();
-        }
+    /**
+     * Single window: small unsorted batches. Several windows: large batches so each sorted pass covers more bits.
+     */
+    private static long[] newBatch(WavSampleWindow window, long totalBits) {
+        int batch = window.isSingleWindow() ? ScatterPermutation.BATCH_SIZE : SORTED_BATCH;
+        return new long[(int) Math.max(1, Math.min(totalBits, batch))];
     }
 
-    private void writeFile(File file, byte[] data) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(data);
+    /**
+     * Dense payloads on multi-window carriers: one inverse-permutation sweep beats many sorted passes.
+     */
+    private static boolean useSweep(WavSampleWindow window, long groups) {
+        return !window.isSingleWindow() && groups > (long) SORTED_BATCH * MAX_SORTED_PASSES;
+    }
+
+    /**
+     * Kernel-side copy in 64 MB steps, so progress and cancellation are seen between steps.
+     */
+    private static void copy(File sourceFile, File destFile) throws IOException {
+        TaskProgress progress = TaskProgress.current();
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(destFile.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            progress.begin("COPY CARRIER", size);
+            long copied = 0;
+            while (copied < size) {
+                long n = in.transferTo(copied, Math.min(DEFAULT_WINDOW_BYTES, size - copied), out);
+                copied += n;
+                progress.advance(n);
+            }
         }
     }
 
-    private byte[] intToBytes(int i) {
-        return new byte[]{ (byte)(i >> 24), (byte)(i >> 16), (byte)(i >> 8), (byte)i };
+    private int readWord(WavSampleWindow window, long firstSample) throws IOException {
+        int word = 0;
+        for (int i = 0; i < 32; i++) {
+            word = (word << 1) | window.getLsb(firstSample + i);
+        }
+        return word;
     }
 
-    private int bytesToInt(byte[] b) {
-        return ((b[0] & 0xFF) << 24) | ((b[1] & 0xFF) << 16) | ((b[2] & 0xFF) << 8) | (b[3] & 0xFF);
+    private int readWord(ByteBuffer buffer, int offset) {
+        int word = 0;
+        for (int i = 0; i < 32; i++) {
+            word = (word << 1) | (buffer.get(offset + i) & 1);
+        }
+        return word;
     }
 }
\ No newline at end of file
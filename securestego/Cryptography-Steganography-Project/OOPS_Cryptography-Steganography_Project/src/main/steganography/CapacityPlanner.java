@@ -0,0 +1,232 @@
+package src.main.steganography;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * CAPACITY PLANNER.
+ * Reports the payload each {@link EmbedDepth} can carry before any I/O-heavy work.
+ * * COST:
+ * - Fixed depths are exact and read headers only: image dimensions (no decode), WAV chunk list.
+ * - Adaptive depths are estimates, computed on first request: a subsampled image decode
+ *   (about 256K pixels), or 256 evenly spaced 1024-sample audio regions.
+ * - Video payloads are appended to the container, so there is no carrier limit.
+ */
+public final class CapacityPlanner {
+
+    public enum Kind { IMAGE, AUDIO, VIDEO }
+
+    private static final long IMAGE_PROBE_PIXELS = 256 * 1024;
+    private static final int AUDIO_PROBES = 256;
+
+    private CapacityPlanner() {
+    }
+
+    /**
+     * Plans a carrier: WAV files by their RIFF header, images by any ImageIO reader, anything else as video.
+     */
+    public static Plan plan(File carrier) throws Exception {
+        if (!carrier.isFile()) {
+            throw new Exception("Carrier not found: " + carrier);
+        }
+        try {
+            WavFile wav = WavFile.parse(carrier);
+            return new Plan(carrier, Kind.AUDIO, wav.sampleCount(), wav);
+        } catch (Exception notWav) {
+            // fall through
+        }
+        long[] size = readDimensions(carrier);
+        if (size != null) {
+            return new Plan(carrier, Kind.IMAGE, size[0] * size[1] * LsbRaster.CHANNELS, null);
+        }
+        return new Plan(carrier, Kind.VIDEO, 0, null);
+    }
+
+    /**
+     * Rebuilds a plan from stored figures (see {@link #measuredDepths()}) without reading the carrier;
+     * adaptive depths that were never measured are sampled from the file on first request.
+     */
+    public static Plan restore(File carrier, Kind kind, long units, double[] measuredDepths) {
+        Plan plan = new Plan(carrier, kind, units, null);
+        System.arraycopy(measuredDepths, 0, plan.adaptiveDepth, 0,
+                Math.min(measuredDepths.length, plan.adaptiveDepth.length));
+        return plan;
+    }
+
+    /**
+     * Capacities of one carrier. Units are colour channels (image) or samples (audio).
+     */
+    public static final class Plan {
+        private final File carrier;
+        private final Kind kind;
+        private final long units;
+        private WavFile wav;
+        private final double[] adaptiveDepth = new double[EmbedDepth.MAX_BITS + 1];
+
+        private Plan(File carrier, Kind kind, long units, WavFile wav) {
+            this.carrier = carrier;
+            this.kind = kind;
+            this.units = units;
+            this.wav = wav;
+        }
+
+        public Kind kind() {
+            return kind;
+        }
+
+        public long units() {
+            return units;
+        }
+
+        public boolean isUnbounded() {
+            return kind == Kind.VIDEO;
+        }
+
+        /**
+         * True for fixed depths (and video); adaptive capacities are estimates.
+         */
+        public boolean isExact(EmbedDepth depth) {
+            return isUnbounded() || !depth.isAdaptive();
+        }
+
+        /**
+         * Maximum payload in bytes (Long.MAX_VALUE for video).
+         */
+        public long capacityBytes(EmbedDepth depth) throws Exception {
+            if (isUnbounded()) {
+                return Long.MAX_VALUE;
+            }
+            long slots = Math.max(0, units - StegoHeader.AUTHENTICATED_SIZE_BITS);
+            if (!depth.isAdaptive()) {
+                return slots * depth.bits() / 8;
+            }
+            synchronized (adaptiveDepth) {
+                if (adaptiveDepth[depth.bits()] == 0) {
+                    adaptiveDepth[depth.bits()] = Math.max(1, estimateAdaptiveDepth(depth));
+                }
+                return (long) (slots * adaptiveDepth[depth.bits()] / 8);
+            }
+        }
+
+        /**
+         * Average bits per unit of each adaptive depth measured so far (index = max bits, 0 = not measured).
+         */
+        public double[] measuredDepths() {
+            synchronized (adaptiveDepth) {
+                return adaptiveDepth.clone();
+            }
+        }
+
+        /**
+         * Average bits per unit of the adaptive map, measured on a sample of the carrier.
+         */
+        private double estimateAdaptiveDepth(EmbedDepth depth) throws Exception {
+            if (kind == Kind.AUDIO) {
+                if (wav == null) {
+                    wav = WavFile.parse(carrier);
+                }
+                try (FileChannel channel = FileChannel.open(carrier.toPath(), StandardOpenOption.READ)) {
+                    WavSampleWindow window = new WavSampleWindow(channel, wav, FileChannel.MapMode.READ_ONLY,
+                            AudioSteganography.DEFAULT_WINDOW_BYTES);
+                    return DepthMap.estimateAudioDepth(window, units, depth, AUDIO_PROBES);
+                }
+            }
+            LsbRaster probe = LsbRaster.wrap(readSubsampled(carrier, units / LsbRaster.CHANNELS));
+            DepthMap map = DepthMap.forImage(probe, depth);
+            return (double) map.capacityBits(0) / probe.size();
+        }
+
+        /**
+         * The capacity table of every depth, as printed by the CLI. All capacities are computed before
+         * anything is formatted: a carrier that cannot be measured fails as a whole.
+         */
+        public String table() throws Exception {
+            if (isUnbounded()) {
+                return toString();
+            }
+            long[] fixed = new long[EmbedDepth.MAX_BITS + 1];
+            long[] adaptive = new long[EmbedDepth.MAX_BITS + 1];
+            for (int k = 1; k <= EmbedDepth.MAX_BITS; k++) {
+                fixed[k] = capacityBytes(EmbedDepth.fixed(k));
+            }
+            for (int k = 2; k <= EmbedDepth.MAX_BITS; k++) {
+                adaptive[k] = capacityBytes(EmbedDepth.adaptive(k));
+            }
+
+            StringBuilder sb = new StringBuilder(toString());
+            for (int k = 1; k <= EmbedDepth.MAX_BITS; k++) {
+                sb.append(String.format(Locale.ROOT, "%n  %-12s %,15d bytes", EmbedDepth.fixed(k), fixed[k]));
+            }
+            for (int k = 2; k <= EmbedDepth.MAX_BITS; k++) {
+                sb.append(String.format(Locale.ROOT, "%n  %-12s %,15d bytes (estimate)", EmbedDepth.adaptive(k), adaptive[k]));
+            }
+            return sb.toString();
+        }
+
+        /**
+         * One line: carrier, kind and size. Reads nothing; see {@link #table()} for the capacities.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(carrier.getName()).append(" [").append(kind).append("]");
+            if (isUnbounded()) {
+                return sb.append(" payload is appended: no carrier limit").toString();
+            }
+            return sb.append(String.format(Locale.ROOT, " %,d %s", units, kind == Kind.IMAGE ? "channels" : "samples")).toString();
+        }
+    }
+
+    // ==================================================================================
+    // IMAGE HEADERS
+    // ==================================================================================
+
+    /**
+     * Width and height from the image header only; null if no reader understands the file.
+     */
+    private static long[] readDimensions(File file) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new long[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decodes every n-th pixel in both directions so that at most ~256K pixels are materialised.
+     */
+    private static BufferedImage readSubsampled(File file, long pixels) throws Exception {
+        int step = (int) Math.max(1, Math.ceil(Math.sqrt((double) pixels / IMAGE_PROBE_PIXELS)));
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package src.main.steganography;
+
+import java.io.IOException;
+
+/**
+ * Per-region embedding depth for the adaptive mode of {@link EmbedDepth}.
+ * * LOGIC:
+ * 1. The carrier is cut into regions: 8x8 pixel blocks (all three channels) or runs of 1024 samples.
+ * 2. For each region, the standard deviation of the "stable" part of every sample is measured:
+ *    the bits above the maximum depth, which embedding never changes.
+ * 3. Flat regions (sky, silence) keep 1 bit per sample; textured or loud regions get up to the maximum.
+ * * Embedder and extractor build the same map from the same stable bits, so no side channel is needed.
+ */
+final class DepthMap {
+
+    static final int IMAGE_BLOCK = 8;
+    static final int AUDIO_BLOCK = 1024;
+
+    private final byte[] depths;
+    private final int width;
+    private final int blocksPerRow;
+    private final long units;
+
+    private DepthMap(byte[] depths, int width, int blocksPerRow, long units) {
+        this.depths = depths;
+        this.width = width;
+        this.blocksPerRow = blocksPerRow;
+        this.units = units;
+    }
+
+    /**
+     * Depth of the slot (image) or sample (audio) with the given absolute index.
+     */
+    int depth(long unit) {
+        if (width == 0) {
+            return depths[(int) (unit / AUDIO_BLOCK)];
+        }
+        int pixel = (int) (unit / LsbRaster.CHANNELS);
+        int y = pixel / width;
+        int x = pixel - y * width;
+        return depths[(y / IMAGE_BLOCK) * blocksPerRow + x / IMAGE_BLOCK];
+    }
+
+    /**
+     * Payload bits available in all units from {@code firstUnit} on.
+     */
+    long capacityBits(long firstUnit) {
+        long total = 0;
+        if (width == 0) {
+            for (int b = 0; b < depths.length; b++) {
+                long size = Math.min(AUDIO_BLOCK, units - (long) b * AUDIO_BLOCK);
+                total += depths[b] * size;
+            }
+        } else {
+            int height = (int) (units / LsbRaster.CHANNELS / width);
+            for (int b = 0; b < depths.length; b++) {
+                int bx = (b % blocksPerRow) * IMAGE_BLOCK;
+                int by = (b / blocksPerRow) * IMAGE_BLOCK;
+                long pixels = (long) Math.min(IMAGE_BLOCK, width - bx) * Math.min(IMAGE_BLOCK, height - by);
+                total += depths[b] * pixels * LsbRaster.CHANNELS;
+            }
+        }
+        for (long unit = 0; unit < Math.min(firstUnit, units); unit++) {
+            total -= depth(unit);
+        }
+        return total;
+    }
+
+    // ==================================================================================
+    // BUILDERS
+    // ==================================================================================
+
+    static DepthMap forImage(LsbRaster raster, EmbedDepth depth) {
+        int width = raster.image().getWidth();
+        int height = raster.image().getHeight();
+        int blocksPerRow = (width + IMAGE_BLOCK - 1) / IMAGE_BLOCK;
+        int blockRows = (height + IMAGE_BLOCK - 1) / IMAGE_BLOCK;
+        byte[] depths = new byte[blocksPerRow * blockRows];
+
+        // Stable part: 16-bit samples keep their high byte, 8-bit samples lose the writable low bits
+        boolean wide = raster.sampleBits() == 16;
+        int stableMask = 0xFF & (0xFF << depth.bits());
+
+        double[] sum = new double[blocksPerRow];
+        double[] sumSq = new double[blocksPerRow];
+        int[] count = new int[blocksPerRow];
+        for (int y = 0; y < height; y++) {
+            int slot = y * width * LsbRaster.CHANNELS;
+            for (int x = 0; x < width; x++) {
+                int block = x / IMAGE_BLOCK;
+                for (int c = 0; c < LsbRaster.CHANNELS; c++, slot++) {
+                    int sample = raster.getSample(slot);
+                    int stable = wide ? sample >>> 8 : sample & stableMask;
+                    sum[block] += stable;
+                    sumSq[block] += (double) stable * stable;
+                    count[block]++;
+                }
+            }
+            if (y % IMAGE_BLOCK == IMAGE_BLOCK - 1 || y == height - 1) {
+                int row = (y / IMAGE_BLOCK) * blocksPerRow;
+                for (int b = 0; b < blocksPerRow; b++) {
+                    depths[row + b] = (byte) depth.depthFor(stddev(sum[b], sumSq[b], count[b]));
+                    sum[b] = 0;
+                    sumSq[b] = 0;
+                    count[b] = 0;
+                }
+            }
+        }
+        return new DepthMap(depths, width, blocksPerRow, (long) width * height * LsbRaster.CHANNELS);
+    }
+
+    /**
+     * One sequential pass over the sample windows.
+     */
+    static DepthMap forAudio(WavSampleWindow window, long samples, EmbedDepth depth) throws IOException {
+        int blocks = (int) ((samples + AUDIO_BLOCK - 1) / AUDIO_BLOCK);
+        byte[] depths = new byte[blocks];
+        for (int b = 0; b < blocks; b++) {
+            depths[b] = (byte) audioBlockDepth(window, (long) b * AUDIO_BLOCK, samples, depth);
+        }
+        return new DepthMap(depths, 0, 0, samples);
+    }
+
+    /**
+     * Average adaptive depth (bits per sample) over at most {@code probes} evenly spaced audio regions.
+     */
+    static double estimateAudioDepth(WavSampleWindow window, long samples, EmbedDepth depth, int probes) throws IOException {
+        long blocks = (samples + AUDIO_BLOCK - 1) / AUDIO_BLOCK;
+        long step = Math.max(1, blocks / Math.max(1, probes));
+        long probed = 0;
+        long depthSum = 0;
+        for (long b = 0; b < blocks; b += step) {
+            depthSum += audioBlockDepth(window, b * AUDIO_BLOCK, samples, depth);
+            probed++;
+        }
+        return probed == 0 ? 0 : (double) depthSum / probed;
+    }
+
+    private static int audioBlockDepth(WavSampleWindow window, long first, long samples, EmbedDepth depth) throws IOException {
+        long end = Math.min(first + AUDIO_BLOCK, samples);
+        double sum = 0;
+        double sumSq = 0;
+        for (long s = first; s < end; s++) {
+            // 16-bit scale -> 8-bit scale of the thresholds
+            double level = window.stableLevel(s, depth.bits()) / 256.0;
+            sum += level;
+            sumSq += level * level;
+        }
+        return depth.depthFor(stddev(sum, sumSq, (int) (end - first)));
+    }
+
+    private static double stddev(double sum, double sumSq, int count) {
+        if (count < 2) {
+            return 0;
+        }
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0, sumSq / count - mean * mean));
+    }
+}
\ No newline at end of file
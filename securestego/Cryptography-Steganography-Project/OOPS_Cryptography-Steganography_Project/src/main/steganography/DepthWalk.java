@@ -0,0 +1,75 @@
+package src.main.steganography;
+
+/**
+ * Walks the keyed permutation and hands out consecutive payload bit-groups.
+ * Permutation index i is the i-th carrier slot used; it receives the next {@code depth(slot)}
+ * payload bits (k for fixed depth, the region depth in adaptive mode). One-bit fixed depth
+ * reproduces the original layout exactly: bit i goes to slot map(i).
+ */
+final class DepthWalk {
+
+    private final ScatterPermutation scatter;
+    private final EmbedDepth depth;
+    private final DepthMap map;
+    private final long base;
+    private final long totalBits;
+
+    private long index = -1;
+    private long slot;
+    private long bitOffset;
+    private int count;
+    private long nextOffset;
+
+    /**
+     * @param map  region depths (adaptive mode only, otherwise null)
+     * @param base absolute carrier index of permutation slot 0 (the samples after the header)
+     */
+    DepthWalk(ScatterPermutation scatter, EmbedDepth depth, DepthMap map, long base, long totalBits) {
+        this.scatter = scatter;
+        this.depth = depth;
+        this.map = map;
+        this.base = base;
+        this.totalBits = totalBits;
+    }
+
+    /**
+     * Permutation slots needed for a fixed depth (adaptive payloads are bounded by the map instead).
+     */
+    static long slotsFor(long totalBits, int bits) {
+        return (totalBits + bits - 1) / bits;
+    }
+
+    boolean next() {
+        if (nextOffset >= totalBits) {
+            return false;
+        }
+        slot = scatter.map(++index);
+        bitOffset = nextOffset;
+        count = bitsAt(slot, bitOffset);
+        nextOffset += count;
+        return true;
+    }
+
+    /**
+     * Slot relative to {@code base}.
+     */
+    long slot() {
+        return slot;
+    }
+
+    long bitOffset() {
+        return bitOffset;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Bits stored at the given relative slot when its group starts at {@code offset}.
+     */
+    int bitsAt(long relativeSlot, long offset) {
+        int bits = map == null ? depth.bits() : map.depth(base + relativeSlot);
+        return (int) Math.min(bits, totalBits - offset);
+    }
+}
\ No newline at end of file
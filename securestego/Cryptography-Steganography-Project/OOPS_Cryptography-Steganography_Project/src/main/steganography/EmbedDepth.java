@@ -0,0 +1,113 @@
+package src.main.steganography;
+
+import java.util.Locale;
+
+/**
+ * Number of low-order bits used per carrier channel / sample.
+ * * MODES:
+ * - Fixed k (1-4): every touched sample carries k payload bits, so a payload needs k times
+ *   fewer samples (and k times fewer writes) than plain LSB.
+ * - Adaptive (max 2-4): each region carries 1..max bits depending on its local variance,
+ *   measured on bits the embedding never changes, so the extractor derives the same map.
+ * * The mode is stored in the stego header flags; 1-bit fixed is the original format.
+ */
+public final class EmbedDepth {
+
+    public static final int MAX_BITS = 4;
+
+    /** Plain LSB, one bit per channel / sample (the original density). */
+    public static final EmbedDepth ONE_BIT = new EmbedDepth(1, false);
+
+    // Local standard deviation (8-bit scale) at which a region gains one more bit
+    private static final double[] ADAPTIVE_THRESHOLDS = {2.0, 6.0, 12.0};
+
+    private static final int FLAG_SHIFT = 4;
+
+    private final int bits;
+    private final boolean adaptive;
+
+    private EmbedDepth(int bits, boolean adaptive) {
+        this.bits = bits;
+        this.adaptive = adaptive;
+    }
+
+    public static EmbedDepth fixed(int bits) {
+        if (bits < 1 || bits > MAX_BITS) {
+            throw new IllegalArgumentException("Embedding depth must be 1-" + MAX_BITS + " bits.");
+        }
+        return bits == 1 ? ONE_BIT : new EmbedDepth(bits, false);
+    }
+
+    public static EmbedDepth adaptive(int maxBits) {
+        if (maxBits < 2 || maxBits > MAX_BITS) {
+            throw new IllegalArgumentException("Adaptive depth needs a maximum of 2-" + MAX_BITS + " bits.");
+        }
+        return new EmbedDepth(maxBits, true);
+    }
+
+    /**
+     * Parses "1".."4", "adaptive" (max 4) or "adaptive:N".
+     */
+    public static EmbedDepth parse(String text) {
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        if (value.equals("adaptive")) {
+            return adaptive(MAX_BITS);
+        }
+        try {
+            if (value.startsWith("adaptive:")) {
+                return adaptive(Integer.parseInt(value.substring("adaptive:".length())));
+            }
+            return fixed(Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown embedding depth: " + text + " (use 1-4, adaptive or adaptive:N).");
+        }
+    }
+
+    /**
+     * Fixed depth, or the maximum depth of the adaptive mode.
+     */
+    public int bits() {
+        return bits;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Depth of a region whose stable samples have the given standard deviation (8-bit scale).
+     */
+    public int depthFor(double stddev) {
+        if (!adaptive) {
+            return bits;
+        }
+        int depth = 1;
+        for (double threshold : ADAPTIVE_THRESHOLDS) {
+            if (stddev >= threshold) {
+                depth++;
+            }
+        }
+        return Math.min(depth, bits);
+    }
+
+    // ==================================================================================
+    // HEADER ENCODING (flags bits 4-5: depth - 1, bit 6: adaptive)
+    // ==================================================================================
+
+    int flags() {
+        return ((bits - 1) << FLAG_SHIFT) | (adaptive ? StegoHeader.FLAG_ADAPTIVE_DEPTH : 0);
+    }
+
+    static EmbedDepth fromFlags(int flags) {
+        int bits = ((flags & StegoHeader.FLAG_DEPTH_MASK) >>> FLAG_SHIFT) + 1;
+        if ((flags & StegoHeader.FLAG_ADAPTIVE_DEPTH) != 0) {
+            return new EmbedDepth(Math.max(2, bits), true);
+        }
+        return fixed(bits);
+    }
+
+    @Override
+    public String toString() {
+        return adaptive ? "adaptive:" + bits : bits + "-bit";
+    }
+}
\ No newline at end of file
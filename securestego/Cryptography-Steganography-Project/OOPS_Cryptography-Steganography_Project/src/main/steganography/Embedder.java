@@ -2,13 +2,20 @@ package src.main.steganography;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.awt.image.WritableRaster;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 
 public class Embedder {
 
+    private PngEncodeOptions pngOptions = PngEncodeOptions.DEFAULT;
+
+    /**
+     * Output encoder settings (speed vs size); every choice is lossless.
+     */
+    public void setPngOptions(PngEncodeOptions pngOptions) {
+        this.pngOptions = pngOptions;
+    }
+
     /**
      * Embeds a string message (usually Encrypted Base64) into an image.
      * * @param sourceFile  The original image file (JPG, PNG, BMP).
@@ -24,17 +31,23 @@ public class Embedder {
             throw new Exception("Message is empty. Nothing to embed.");
         }
 
+        // 0. Large PNG carriers are streamed row by row instead of decoded whole
+        if (StreamingPngStego.shouldStream(sourceFile)) {
+            StreamingPngStego streaming = new StreamingPngStego();
+            streaming.setPngOptions(pngOptions);
+            streaming.embedSequential(sourceFile, outputFile, message.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
         // 1. Load the Image
         BufferedImage image = ImageIO.read(sourceFile);
         if (image == null) {
             throw new Exception("Failed to load image. Format might be unsupported.");
         }
 
-        // 2. Convert to 3-Byte BGR (Standardize format for LSB)
-        // This ensures that regardless of input (JPG, Indexed PNG), we work with standard RGB bytes.
-        BufferedImage userSpaceImage = new BufferedImage(
-                image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-        userSpaceImage.getGraphics().drawImage(image, 0, 0, null);
+        // 2. Wrap the decoded samples in place (B, G, R slot order)
+        // Only layouts without a kernel (Grey, Indexed PNG) are copied into 3-Byte BGR.
+        LsbRaster raster = LsbRaster.wrap(image);
 
         // 3. Prepare Payload
         // We embed: [32-bit Length Header] + [Message Bytes]
@@ -42,44 +55,30 @@ public class Embedder {
         int messageLength = messageBytes.length;
 
         // 4. Check Capacity
-        // 3 bytes per pixel * (Width * Height) = Total available bytes.
-        // We use 1 bit per byte (LSB), so we can store 1/8th of the total bytes.
-        // Actually, we modify the byte directly, so 1 pixel (3 bytes) holds 3 bits.
-        WritableRaster raster = userSpaceImage.getRaster();
-        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
-        byte[] imageBytes = buffer.getData();
-
-        // 32 bits for length = 32 bytes needed.
-        // messageLength bytes = messageLength * 8 bits = messageLength * 8 bytes needed.
-        int requiredBytes = 32 + (messageLength * 8);
+        // 3 colour samples per pixel, 1 bit per sample (LSB): 1 pixel holds 3 bits.
+        // 32 bits for length = 32 samples needed.
+        // messageLength bytes = messageLength * 8 bits = messageLength * 8 samples needed.
+        long requiredBytes = 32 + (messageLength * 8L);
 
-        if (requiredBytes > imageBytes.length) {
+        if (requiredBytes > raster.size()) {
             throw new Exception("Image is too small! Needed: " + requiredBytes +
-                    " bytes, Available: " + imageBytes.length + " bytes.");
+                    " bytes, Available: " + raster.size() + " bytes.");
         }
 
         // 5. Embed Length Header (32 bits)
-        // We use the first 32 bytes of the image to store the length of the message.
-        int offset = 0;
-        for (int i = 0; i < 32; i++) {
-            int bit = (messageLength >> (31 - i)) & 1;
-            imageBytes[offset] = (byte) ((imageBytes[offset] & 0xFE) | bit);
-            offset++;
-        }
+        // We use the first 32 bytes of the image to store the length of the message (big-endian, MSB first).
+        byte[] lengthHeader = {
+                (byte) (messageLength >>> 24), (byte) (messageLength >>> 16),
+                (byte) (messageLength >>> 8), (byte) messageLength
+        };
+        raster.setLsbBytes(0, lengthHeader, 0, lengthHeader.length);
 
         // 6. Embed Message Body
-        for (byte b : messageBytes) {
-            for (int i = 7; i >= 0; i--) {
-                int bit = (b >> i) & 1;
-                imageBytes[offset] = (byte) ((imageBytes[offset] & 0xFE) | bit);
-                offset++;
-            }
-        }
+        // 8 payload bits per 64-bit word on 3-byte layouts (see LsbWords).
+        raster.setLsbBytes(32, messageBytes, 0, messageLength);
 
         // 7. Save as PNG
         // IMPORTANT: Must be PNG. JPG compression would destroy the LSBs.
-        if (!ImageIO.write(userSpaceImage, "png", outputFile)) {
-            throw new Exception("Failed to save the Stego-Image.");
-        }
+        PngRowWriter.writeImage(raster.image(), outputFile, pngOptions);
     }
 }
\ No newline at end of file
@@ -2,8 +2,6 @@ package src.main.steganography;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.awt.image.WritableRaster;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 
@@ -21,48 +19,36 @@ public class Extractor {
             throw new Exception("Source image not found.");
         }
 
+        // 0. Large PNG carriers are streamed row by row instead of decoded whole
+        if (StreamingPngStego.shouldStream(sourceFile)) {
+            return new String(new StreamingPngStego().extractSequential(sourceFile), StandardCharsets.UTF_8);
+        }
+
         // 1. Load Image
         BufferedImage image = ImageIO.read(sourceFile);
         if (image == null) {
             throw new Exception("Failed to load image.");
         }
 
-        // 2. Normalize Format (CRITICAL)
-        // Must match the type used in Embedder to align byte arrays.
-        BufferedImage userSpaceImage = new BufferedImage(
-                image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-        userSpaceImage.getGraphics().drawImage(image, 0, 0, null);
+        // 2. Access Raw Samples (CRITICAL)
+        // LsbRaster uses the same B, G, R slot order as Embedder, whatever the decoded layout.
+        LsbRaster raster = LsbRaster.wrap(image);
 
-        // 3. Access Raw Data
-        WritableRaster raster = userSpaceImage.getRaster();
-        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
-        byte[] imageBytes = buffer.getData();
+        // 3. Extract Length Header (First 32 bits)
+        byte[] lengthHeader = new byte[4];
+        raster.getLsbBytes(0, lengthHeader, 0, lengthHeader.length);
+        int length = ((lengthHeader[0] & 0xFF) << 24) | ((lengthHeader[1] & 0xFF) << 16)
+                | ((lengthHeader[2] & 0xFF) << 8) | (lengthHeader[3] & 0xFF);
 
-        // 4. Extract Length Header (First 32 bits)
-        int length = 0;
-        int offset = 0;
-        for (int i = 0; i < 32; i++) {
-            int bit = imageBytes[offset] & 1;
-            length = (length << 1) | bit;
-            offset++;
-        }
-
-        // 5. Validate Length
-        if (length <= 0 || length * 8 > (imageBytes.length - 32)) {
+        // 4. Validate Length
+        if (length <= 0 || length * 8L > (raster.size() - 32)) {
             throw new Exception("No valid hidden message detected. (Invalid Length Header)");
         }
 
-        // 6. Extract Message Bytes
+        // 5. Extract Message Bytes
+        // 8 payload bits per 64-bit word on 3-byte layouts (see LsbWords).
         byte[] messageBytes = new byte[length];
-        for (int b = 0; b < length; b++) {
-            int value = 0;
-            for (int i = 0; i < 8; i++) {
-                int bit = imageBytes[offset] & 1;
-                value = (value << 1) | bit;
-                offset++;
-            }
-            messageBytes[b] = (byte) value;
-        }
+        raster.getLsbBytes(32, messageBytes, 0, length);
 
         return new String(messageBytes, StandardCharsets.UTF_8);
     }
@@ -1,129 +1,253 @@
 package src.main.steganography;
 
+import src.main.utils.TaskProgress;
+
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.awt.image.WritableRaster;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
 import java.util.BitSet;
 
 /**
  * PRO-LEVEL IMAGE STEGANOGRAPHY ENGINE.
  * Implements Pseudo-Random Scatter Embedding using Auth Key as a Seed.
  * Prevents statistical detection by spreading noise across the entire canvas.
+ * * FORMATS:
+ * - v3: as v2 with a 64-bit header MAC: wrong passwords fail on the header (written by default).
+ * - v2: as v1 with k bits per channel or adaptive depth ({@link EmbedDepth}).
+ * - v1: 64-bit versioned header, payload scattered by a keyed permutation.
+ * - v0: 32-bit length header, rejection-sampled scatter (still extractable).
+ * * Large PNG carriers are handed to {@link StreamingPngStego} and never decoded whole
+ *   (fixed depths only: the adaptive depth map is built from the whole decoded image).
+ * * File payloads are embedded from and extracted to a memory-mapped file ({@link PayloadTarget}),
+ *   never held on the heap.
+ * * Payload bytes are reported to the thread's {@link TaskProgress} every {@link TaskProgress#STRIDE}
+ *   bit-groups, which is also where a cancelled operation stops.
  */
 public class ImageSteganography {
 
+    private final StreamingPngStego streamingStego = new StreamingPngStego();
+    private PngEncodeOptions pngOptions = PngEncodeOptions.DEFAULT;
+    private EmbedDepth depth = EmbedDepth.ONE_BIT;
+
+    /**
+     * Output encoder settings (speed vs size); every choice is lossless.
+     */
+    public void setPngOptions(PngEncodeOptions pngOptions) {
+        this.pngOptions = pngOptions;
+        streamingStego.setPngOptions(pngOptions);
+    }
+
+    /**
+     * Bits per colour channel used by new carriers (extraction reads the depth from the header).
+     */
+    public void setEmbedDepth(EmbedDepth depth) {
+        this.depth = depth;
+    }
+
     // ==================================================================================
     // EMBEDDING LOGIC (Scatter Mode)
     // ==================================================================================
 
+    /**
+     * Hides a text message (stored as UTF-8, readable by every version).
+     */
     public void embedMessage(File sourceFile, File destFile, String message, String password) throws Exception {
-        // 1. Load Image and convert to standard byte format
-        BufferedImage image = ImageIO.read(sourceFile);
-        BufferedImage userImage = getImageToEmbed(image);
+        embed(sourceFile, destFile, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)), 0, password);
+    }
 
-        WritableRaster raster = userImage.getRaster();
-        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
-        byte[] imgData = buffer.getData();
+    /**
+     * Hides raw bytes (e.g. ciphertext) without any text encoding; flagged as binary in the header.
+     */
+    public void embedBytes(File sourceFile, File destFile, byte[] payload, String password) throws Exception {
+        embed(sourceFile, destFile, ByteBuffer.wrap(payload), StegoHeader.FLAG_BINARY_PAYLOAD, password);
+    }
 
-        // 2. Prepare Payload
-        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
-        byte[] lengthBytes = intToBytes(messageBytes.length);
+    /**
+     * Hides the bytes of a file (e.g. an encrypted file container), read through a memory map;
+     * flagged so that only {@link #extractFile} restores it.
+     */
+    public void embedFile(File sourceFile, File destFile, File payloadFile, String password) throws Exception {
+        embed(sourceFile, destFile, PayloadTarget.mapSource(payloadFile),
+                StegoHeader.FLAG_BINARY_PAYLOAD | StegoHeader.FLAG_FILE_PAYLOAD, password);
+    }
 
-        // 3. Capacity Check (1 byte of data = 8 bytes of image)
-        int totalRequiredBits = (lengthBytes.length + messageBytes.length) * 8;
-        if (totalRequiredBits > imgData.length) {
-            throw new Exception("Payload exceeds image capacity. Need " + totalRequiredBits + " pixels.");
+    private void embed(File sourceFile, File destFile, ByteBuffer payload, int payloadFlags, String password) throws Exception {
+        // 0. Large PNG carriers are streamed row by row instead of decoded whole
+        if (!depth.isAdaptive() && StreamingPngStego.shouldStream(sourceFile)) {
+            streamingStego.embedScatter(sourceFile, destFile, payload, payloadFlags, depth, password);
+            return;
         }
 
-        // 4. Initialize PRNG with Password Seed
-        SecureRandom prng = java.security.SecureRandom.getInstance("SHA1PRNG");
-        prng.setSeed(password.getBytes());
-
-        // 5. EMBED HEADER (First 32 bits - Sequential for Handshake)
-        int imgOffset = 0;
-        for (byte b : lengthBytes) {
-            for (int i = 7; i >= 0; i--) {
-                int bit = (b >>> i) & 1;
-                imgData[imgOffset] = (byte) ((imgData[imgOffset] & 0xFE) | bit);
-                imgOffset++;
-            }
-        }
+        // 1. Load Image and access its samples in place (copies only unsupported layouts)
+        LsbRaster raster = LsbRaster.wrap(readImage(sourceFile));
 
-        // 6. EMBED DATA (Scatter Mode)
-        // Use a BitSet to ensure we don't reuse pixels
-        BitSet usedPixels = new BitSet(imgData.length);
-        // Mark header pixels as used
-        usedPixels.set(0, 32);
+        // 2. Prepare Payload
+        ScatterKeystream keystream = ScatterKeystream.create(ScatterKeystream.ID_AES_CTR, password);
+        int flags = keystream.id() | payloadFlags;
+        StegoHeader header = StegoHeader.create(flags, depth, payload.limit(), password);
+        int base = header.sizeBits();
 
-        for (byte b : messageBytes) {
-            for (int i = 7; i >= 0; i--) {
-                int bit = (b >>> i) & 1;
+        // 3. Capacity Check (k bits per channel after the header, or the adaptive map's total)
+        DepthMap map = depth.isAdaptive() ? DepthMap.forImage(raster, depth) : null;
+        long slots = raster.size() - base;
+        long capacityBits = map != null ? map.capacityBits(base) : slots * depth.bits();
+        long totalBits = (long) payload.limit() * 8;
+        if (slots < 0 || totalBits > capacityBits) {
+            throw new Exception("Payload exceeds image capacity. Need " + totalBits + " bits, "
+                    + depth + " embedding holds " + Math.max(0, capacityBits) + ".");
+        }
 
-                // Find a random unused pixel
-                int randomPixel = findUnusedIndex(prng, imgData.length, usedPixels);
-                imgData[randomPixel] = (byte) ((imgData[randomPixel] & 0xFE) | bit);
-                usedPixels.set(randomPixel);
+        // 4. EMBED HEADER (First 128 bits - Sequential for Handshake, always 1 bit per channel)
+        for (int i = 0; i < base; i++) {
+            raster.setLsb(i, header.bit(i));
+        }
+
+        // 5. EMBED DATA (Scatter Mode)
+        // Keyed permutation over the remaining channels: every bit-group lands on a distinct channel
+        TaskProgress progress = TaskProgress.current();
+        progress.begin("EMBED", payload.limit());
+        ScatterPermutation scatter = new ScatterPermutation(slots, keystream);
+        DepthWalk walk = new DepthWalk(scatter, depth, map, base, totalBits);
+        for (int step = 1; walk.next(); step++) {
+            int bits = PayloadBits.read(payload, walk.bitOffset(), walk.count());
+            raster.setBits(base + (int) walk.slot(), walk.count(), bits);
+            if ((step & TaskProgress.STRIDE_MASK) == 0) {
+                progress.update(walk.bitOffset() / 8);
             }
         }
+        progress.update(payload.limit());
 
-        // 7. Save as Lossless PNG
-        ImageIO.write(userImage, "png", destFile);
+        // 6. Save as Lossless PNG (native layout: alpha and 16-bit depth are preserved)
+        PngRowWriter.writeImage(raster.image(), destFile, pngOptions);
     }
 
     // ==================================================================================
     // EXTRACTION LOGIC (Scatter Mode)
     // ==================================================================================
 
+    /**
+     * Returns the hidden payload as a String (binary payloads come back Base64-encoded).
+     */
     public String extractMessage(File sourceFile, String password) throws Exception {
-        BufferedImage image = ImageIO.read(sourceFile);
-        BufferedImage userImage = getImageToEmbed(image);
+        return extractPayload(sourceFile, password).asText();
+    }
 
-        WritableRaster raster = userImage.getRaster();
-        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
-        byte[] imgData = buffer.getData();
+    /**
+     * Returns the hidden payload bytes together with their text/binary format flag.
+     */
+    public StegoPayload extractPayload(File sourceFile, String password) throws Exception {
+        PayloadTarget target = PayloadTarget.heap();
+        extract(sourceFile, password, target);
+        return target.payload();
+    }
 
-        // 1. Initialize PRNG with same Password Seed
-        SecureRandom prng = java.security.SecureRandom.getInstance("SHA1PRNG");
-        prng.setSeed(password.getBytes());
+    /**
+     * Writes a payload hidden by {@link #embedFile} to {@code payloadFile} through a memory map.
+     */
+    public void extractFile(File sourceFile, File payloadFile, String password) throws Exception {
+        extract(sourceFile, password, PayloadTarget.file(payloadFile));
+    }
 
-        // 2. Extract Length Header (First 32 bits)
-        byte[] lengthBytes = new byte[4];
-        int imgOffset = 0;
-        for (int i = 0; i < 4; i++) {
-            for (int bit = 7; bit >= 0; bit--) {
-                int lsb = imgData[imgOffset] & 1;
-                lengthBytes[i] = (byte) ((lengthBytes[i] | (lsb << bit)));
-                imgOffset++;
+    private void extract(File sourceFile, String password, PayloadTarget target) throws Exception {
+        if (StreamingPngStego.shouldStream(sourceFile)) {
+            if (streamingStego.extractScatter(sourceFile, password, target)) {
+                return;
             }
+            // Legacy carrier: rejection sampling needs the in-memory path below
+        } else {
+            // Wrong password / no data: rejected from the first scanline, without decoding the image
+            streamingStego.screenHeader(sourceFile, password);
+        }
+
+        LsbRaster raster = LsbRaster.wrap(readImage(sourceFile));
+
+        // 1. Read the first header word and dispatch on format
+        if (raster.size() < StegoHeader.SIZE_BITS) {
+            throw new Exception("Image too small to contain hidden data.");
+        }
+        int firstWord = readWord(raster, 0);
+        if (!StegoHeader.isVersioned(firstWord)) {
+            extractLegacy(raster, firstWord, password, target);
+            return;
+        }
+
+        StegoHeader header = StegoHeader.parse(firstWord, readWord(raster, 32));
+        int messageLength = header.length;
+        EmbedDepth headerDepth = header.depth();
+        int base = header.sizeBits();
+
+        // 2. Fast fail: length bounds, then the header MAC (v3), before any map or buffer is built
+        long slots = raster.size() - base;
+        long totalBits = (long) messageLength * 8;
+        if (messageLength < 0 || slots < 0 || totalBits > slots * headerDepth.bits()) {
+            throw new Exception(StegoHeader.INVALID_HEADER);
+        }
+        if (header.isAuthenticated()) {
+            long tag = ((long) readWord(raster, 64) << 32) | (readWord(raster, 96) & 0xFFFFFFFFL);
+            header.verify(tag, password);
+        }
+        target.accept(header.flags);
+        DepthMap map = headerDepth.isAdaptive() ? DepthMap.forImage(raster, headerDepth) : null;
+        if (map != null && totalBits > map.capacityBits(base)) {
+            throw new Exception(StegoHeader.INVALID_HEADER);
         }
-        int messageLength = bytesToInt(lengthBytes);
 
         // 3. Extract Payload (Scatter Mode)
-        BitSet usedPixels = new BitSet(imgData.length);
+        ScatterKeystream keystream = ScatterKeystream.create(header.keystreamId(), password);
+        ScatterPermutation scatter = new ScatterPermutation(slots, keystream);
+
+        TaskProgress progress = TaskProgress.current();
+        progress.begin("EXTRACT", messageLength);
+        ByteBuffer payload = target.open(messageLength);
+        DepthWalk walk = new DepthWalk(scatter, headerDepth, map, base, totalBits);
+        for (int step = 1; walk.next(); step++) {
+            int bits = raster.getBits(base + (int) walk.slot(), walk.count());
+            PayloadBits.write(payload, walk.bitOffset(), walk.count(), bits);
+            if ((step & TaskProgress.STRIDE_MASK) == 0) {
+                progress.update(walk.bitOffset() / 8);
+            }
+        }
+        progress.update(messageLength);
+
+        target.finish(header.isBinary());
+    }
+
+    /**
+     * v0 carriers: 32-bit length header followed by rejection-sampled scatter.
+     */
+    private void extractLegacy(LsbRaster raster, int messageLength, String password, PayloadTarget target) throws Exception {
+        // A clean image reads as a random length: reject it before allocating or sampling
+        if (messageLength <= 0 || messageLength * 8L > raster.size() - 32L) {
+            throw new Exception(StegoHeader.INVALID_LEGACY_LENGTH);
+        }
+        target.accept(0);
+        ScatterKeystream prng = ScatterKeystream.create(ScatterKeystream.ID_SHA1PRNG, password);
+
+        BitSet usedPixels = new BitSet(raster.size());
         usedPixels.set(0, 32);
 
-        byte[] messageBytes = new byte[messageLength];
+        ByteBuffer messageBytes = target.open(messageLength);
         for (int i = 0; i < messageLength; i++) {
+            int value = 0;
             for (int bit = 7; bit >= 0; bit--) {
-                int randomPixel = findUnusedIndex(prng, imgData.length, usedPixels);
-                int lsb = imgData[randomPixel] & 1;
-                messageBytes[i] = (byte) ((messageBytes[i] | (lsb << bit)));
+                int randomPixel = findUnusedIndex(prng, raster.size(), usedPixels);
+                int lsb = raster.getLsb(randomPixel);
+                value |= lsb << bit;
                 usedPixels.set(randomPixel);
             }
+            messageBytes.put(i, (byte) value);
         }
 
-        return new String(messageBytes, StandardCharsets.UTF_8);
+        target.finish(false);
     }
 
     // ==================================================================================
     // HELPER METHODS
     // ==================================================================================
 
-    private int findUnusedIndex(SecureRandom prng, int max, BitSet used) {
+    private int findUnusedIndex(ScatterKeystream prng, int max, BitSet used) {
         int index;
         do {
             index = prng.nextInt(max);
@@ -131,17 +255,19 @@ public class ImageSteganography {
         return index;
     }
 
-    private BufferedImage getImageToEmbed(BufferedImage original) {
-        BufferedImage image = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-        image.getGraphics().drawImage(original, 0, 0, null);
-        return image;
-    }
-
-    private byte[] intToBytes(int i) {
-        return new byte[]{ (byte)(i >> 24), (byte)(i >> 16), (byte)(i >> 8), (byte)i };
+    private int readWord(LsbRaster raster, int offset) {
+        int word = 0;
+        for (int i = 0; i < 32; i++) {
+            word = (word << 1) | raster.getLsb(offset + i);
+        }
+        return word;
     }
 
-    private int bytesToInt(byte[] b) {
-        return ((b[0] & 0xFF) << 24) | ((b[1] & 0xFF) << 16) | ((b[2] & 0xFF) << 8) | (b[3] & 0xFF);
+    private BufferedImage readImage(File sourceFile) throws Exception {
+        BufferedImage image = ImageIO.read(sourceFile);
+        if (image == null) {
+            throw new Exception("Failed to load image. Format might be unsupported.");
+        }
+        return image;
     }
 }
\ No newline at end of file
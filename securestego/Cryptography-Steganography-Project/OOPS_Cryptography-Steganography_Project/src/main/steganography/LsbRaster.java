@@ -0,0 +1,488 @@
+package src.main.steganography;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * ZERO-CONVERSION RASTER ADAPTER.
+ * Exposes the colour samples of a decoded image as a flat sequence of LSB "slots"
+ * and reads/writes them directly in the image's native DataBuffer.
+ * * SLOT ORDER:
+ * slot = pixel * 3 + channel, channels in B, G, R order. This is the byte order of
+ * TYPE_3BYTE_BGR, so carriers written by the original converting engines line up.
+ * Alpha is never touched.
+ * * KERNELS:
+ * - 8-bit interleaved bytes (3BYTE_BGR fast path, 4BYTE_ABGR, RGB/RGBA PNG).
+ * - Packed ints (INT_RGB, INT_ARGB, INT_BGR).
+ * - 16-bit interleaved shorts (48/64-bit PNG): the LSB of each 16-bit sample.
+ * Anything else (grey, indexed, premultiplied, banded) is copied once into TYPE_3BYTE_BGR.
+ * * Every kernel also reads / writes the low k bits of a slot ({@link EmbedDepth}) and exposes
+ * the full sample value for the adaptive depth map.
+ * * Sequential runs of whole payload bytes ({@link #setLsbBytes} / {@link #getLsbBytes}) go through
+ * the 64-bit {@link LsbWords} kernels on 3-byte interleaved layouts, per bit everywhere else.
+ */
+public abstract class LsbRaster {
+
+    public static final int CHANNELS = 3;
+
+    protected final BufferedImage image;
+    protected final int width;
+    protected final int size;
+
+    private final boolean converted;
+
+    protected LsbRaster(BufferedImage image, boolean converted) {
+        this.image = image;
+        this.converted = converted;
+        this.width = image.getWidth();
+        this.size = Math.multiplyExact(Math.multiplyExact(image.getWidth(), image.getHeight()), CHANNELS);
+    }
+
+    /**
+     * Wraps the image without copying when its layout has a kernel,
+     * otherwise converts it once into TYPE_3BYTE_BGR.
+     */
+    public static LsbRaster wrap(BufferedImage source) {
+        LsbRaster direct = tryWrap(source, false);
+        if (direct != null) {
+            return direct;
+        }
+
+        BufferedImage copy = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        copy.getGraphics().drawImage(source, 0, 0, null);
+        return tryWrap(copy, true);
+    }
+
+    /**
+     * Number of usable LSB slots (3 per pixel).
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The image backing this raster; this is what must be written back to disk.
+     */
+    public BufferedImage image() {
+        return image;
+    }
+
+    /**
+     * True if the decoded image had to be copied into TYPE_3BYTE_BGR.
+     */
+    public boolean isConverted() {
+        return converted;
+    }
+
+    public abstract int getLsb(int slot);
+
+    public abstract void setLsb(int slot, int bit);
+
+    /**
+     * Low {@code count} bits of the slot's sample.
+     */
+    public abstract int getBits(int slot, int count);
+
+    /**
+     * Replaces the low {@code count} bits of the slot's sample.
+     */
+    public abstract void setBits(int slot, int count, int value);
+
+    /**
+     * Full unsigned sample value of the slot.
+     */
+    public abstract int getSample(int slot);
+
+    /**
+     * Bits per sample: 8, or 16 for 48/64-bit PNGs.
+     */
+    public int sampleBits() {
+        return 8;
+    }
+
+    /**
+     * Writes {@code length} payload bytes, MSB first, into the LSBs of the consecutive slots from {@code firstSlot}.
+     */
+    public void setLsbBytes(int firstSlot, byte[] payload, int from, int length) {
+        for (int i = 0; i < length; i++) {
+            setLsbByte(firstSlot + i * 8, payload[from + i]);
+        }
+    }
+
+    /**
+     * Reads {@code length} bytes from the LSBs of the consecutive slots from {@code firstSlot}.
+     */
+    public void getLsbBytes(int firstSlot, byte[] dest, int from, int length) {
+        for (int i = 0; i < length; i++) {
+            dest[from + i] = (byte) getLsbByte(firstSlot + i * 8);
+        }
+    }
+
+    protected final void setLsbByte(int slot, int value) {
+        for (int bit = 7; bit >= 0; bit--) {
+            setLsb(slot++, (value >>> bit) & 1);
+        }
+    }
+
+    protected final int getLsbByte(int slot) {
+        int value = 0;
+        for (int bit = 0; bit < 8; bit++) {
+            value = (value << 1) | getLsb(slot++);
+        }
+        return value;
+    }
+
+    // ==================================================================================
+    // LAYOUT DETECTION
+    // ==================================================================================
+
+    private static LsbRaster tryWrap(BufferedImage image, boolean converted) {
+        ColorModel cm = image.getColorModel();
+        WritableRaster raster = image.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+
+        // Palette models report an RGB colour space over a single index band: never wrapped
+        if (cm instanceof IndexColorModel
+                || sm.getNumBands() != cm.getNumComponents()
+                || cm.isAlphaPremultiplied()
+                || cm.getColorSpace().getType() != ColorSpace.TYPE_RGB
+                || cm.getNumColorComponents() != CHANNELS
+                || db.getNumBanks() != 1
+                || raster.getSampleModelTranslateX() != 0
+                || raster.getSampleModelTranslateY() != 0) {
+            return null;
+        }
+
+        if (sm instanceof ComponentSampleModel csm && hasUniformSampleSize(sm, db)) {
+            for (int bank : csm.getBankIndices()) {
+                if (bank != 0) {
+                    return null;
+                }
+            }
+            int[] channelOffsets = new int[CHANNELS];
+            for (int c = 0; c < CHANNELS; c++) {
+                // Colour bands are R, G, B; slot channels are B, G, R
+                channelOffsets[c] = csm.getBandOffsets()[CHANNELS - 1 - c];
+            }
+            int pixelStride = csm.getPixelStride();
+            int scanlineStride = csm.getScanlineStride();
+
+            if (db instanceof DataBufferByte bytes) {
+                if (pixelStride == CHANNELS && scanlineStride == image.getWidth() * CHANNELS
+                        && db.getOffset() == 0 && channelOffsets[0] == 0 && channelOffsets[1] == 1 && channelOffsets[2] == 2) {
+                    return new Bgr3ByteRaster(image, converted, bytes.getData());
+                }
+                return new ByteRaster(image, converted, bytes.getData(), db.getOffset(), pixelStride, scanlineStride, channelOffsets);
+            }
+            if (db instanceof DataBufferUShort shorts) {
+                return new UShortRaster(image, converted, shorts.getData(), db.getOffset(), pixelStride, scanlineStride, channelOffsets);
+            }
+            return null;
+        }
+
+        if (sm instanceof SinglePixelPackedSampleModel spsm && db instanceof DataBufferInt ints) {
+            int[] channelShifts = new int[CHANNELS];
+            for (int c = 0; c < CHANNELS; c++) {
+                channelShifts[c] = spsm.getBitOffsets()[CHANNELS - 1 - c];
+            }
+            return new IntPackedRaster(image, converted, ints.getData(), db.getOffset(), spsm.getScanlineStride(), channelShifts);
+        }
+
+        return null;
+    }
+
+    private static boolean hasUniformSampleSize(SampleModel sm, DataBuffer db) {
+        int expected = DataBuffer.getDataTypeSize(db.getDataType());
+        for (int size : sm.getSampleSize()) {
+            if (size != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================================================================================
+    // KERNELS
+    // ==================================================================================
+
+    /**
+     * TYPE_3BYTE_BGR: slot index is the byte index.
+     */
+    private static final class Bgr3ByteRaster extends LsbRaster {
+        private final byte[] data;
+
+        Bgr3ByteRaster(BufferedImage image, boolean converted, byte[] data) {
+            super(image, converted);
+            this.data = data;
+        }
+
+        @Override
+        public int getLsb(int slot) {
+            return data[slot] & 1;
+        }
+
+        @Override
+        public void setLsb(int slot, int bit) {
+            data[slot] = (byte) ((data[slot] & 0xFE) | bit);
+        }
+
+        @Override
+        public int getBits(int slot, int count) {
+            return data[slot] & ((1 << count) - 1);
+        }
+
+        @Override
+        public void setBits(int slot, int count, int value) {
+            data[slot] = (byte) ((data[slot] & ~((1 << count) - 1)) | value);
+        }
+
+        @Override
+        public int getSample(int slot) {
+            return data[slot] & 0xFF;
+        }
+
+        @Override
+        public void setLsbBytes(int firstSlot, byte[] payload, int from, int length) {
+            for (int i = 0; i < length; i++) {
+                LsbWords.put8(data, firstSlot + i * 8, payload[from + i]);
+            }
+        }
+
+        @Override
+        public void getLsbBytes(int firstSlot, byte[] dest, int from, int length) {
+            for (int i = 0; i < length; i++) {
+                dest[from + i] = (byte) LsbWords.get8(data, firstSlot + i * 8);
+            }
+        }
+    }
+
+    /**
+     * Any single-bank, pixel-interleaved 8-bit layout (e.g. 4BYTE_ABGR, RGBA PNG).
+     */
+    private static final class ByteRaster extends LsbRaster {
+        private final byte[] data;
+        private final int offset;
+        private final int pixelStride;
+        private final int scanlineStride;
+        private final int[] channelOffsets;
+
+        // Gap-free 3-byte pixels in B,G,R or R,G,B order: slot i of a pixel-aligned run is byte offset + i
+        private final boolean packed;
+        private final boolean reversed;
+
+        ByteRaster(BufferedImage image, boolean converted, byte[] data, int offset,
+                   int pixelStride, int scanlineStride, int[] channelOffsets) {
+            super(image, converted);
+            this.data = data;
+            this.offset = offset;
+            this.pixelStride = pixelStride;
+            this.scanlineStride = scanlineStride;
+            this.channelOffsets = channelOffsets;
+            this.reversed = channelOffsets[0] == 2 && channelOffsets[1] == 1 && channelOffsets[2] == 0;
+            this.packed = pixelStride == CHANNELS && scanlineStride == width * CHANNELS
+                    && (reversed || (channelOffsets[0] == 0 && channelOffsets[1] == 1 && channelOffsets[2] == 2));
+        }
+
+        private int index(int slot) {
+            int pixel = slot / CHANNELS;
+            int y = pixel / width;
+            int x = pixel - y * width;
+            return offset + y * scanlineStride + x * pixelStride + channelOffsets[slot - pixel * CHANNELS];
+        }
+
+        @Override
+        public int getLsb(int slot) {
+            return data[index(slot)] & 1;
+        }
+
+        @Override
+        public void setLsb(int slot, int bit) {
+            int i = index(slot);
+            data[i] = (byte) ((data[i] & 0xFE) | bit);
+        }
+
+        @Override
+        public int getBits(int slot, int count) {
+            return data[index(slot)] & ((1 << count) - 1);
+        }
+
+        @Override
+        public void setBits(int slot, int count, int value) {
+            int i = index(slot);
+            data[i] = (byte) ((data[i] & ~((1 << count) - 1)) | value);
+        }
+
+        @Override
+        public int getSample(int slot) {
+            return data[index(slot)] & 0xFF;
+        }
+
+        @Override
+        public void setLsbBytes(int firstSlot, byte[] payload, int from, int length) {
+            if (!packed) {
+                super.setLsbBytes(firstSlot, payload, from, length);
+                return;
+            }
+            // 1. Head byte by byte up to a block boundary (never reached if firstSlot is not byte aligned)
+            int end = from + length;
+            int slot = firstSlot;
+            while (from < end && slot % LsbWords.BLOCK_SLOTS != 0) {
+                setLsbByte(slot, payload[from++]);
+                slot += 8;
+            }
+            // 2. Whole 24-slot blocks, 3 words each
+            int blocks = (end - from) / LsbWords.BLOCK_BYTES;
+            LsbWords.putBlocks(data, offset + slot, reversed, payload, from, blocks);
+            // 3. Tail
+            super.setLsbBytes(slot + blocks * LsbWords.BLOCK_SLOTS, payload, from + blocks * LsbWords.BLOCK_BYTES,
+                    end - from - blocks * LsbWords.BLOCK_BYTES);
+        }
+
+        @Override
+        public void getLsbBytes(int firstSlot, byte[] dest, int from, int length) {
+            if (!packed) {
+                super.getLsbBytes(firstSlot, dest, from, length);
+                return;
+            }
+            int end = from + length;
+            int slot = firstSlot;
+            while (from < end && slot % LsbWords.BLOCK_SLOTS != 0) {
+                dest[from++] = (byte) getLsbByte(slot);
+                slot += 8;
+            }
+            int blocks = (end - from) / LsbWords.BLOCK_BYTES;
+            LsbWords.getBlocks(data, offset + slot, reversed, dest, from, blocks);
+            super.getLsbBytes(slot + blocks * LsbWords.BLOCK_SLOTS, dest, from + blocks * LsbWords.BLOCK_BYTES,
+                    end - from - blocks * LsbWords.BLOCK_BYTES);
+        }
+    }
+
+    /**
+     * 16-bit per sample PNGs: the LSB of each unsigned short sample.
+     */
+    private static final class UShortRaster extends LsbRaster {
+        private final short[] data;
+        private final int offset;
+        private final int pixelStride;
+        private final int scanlineStride;
+        private final int[] channelOffsets;
+
+        UShortRaster(BufferedImage image, boolean converted, short[] data, int offset,
+                     int pixelStride, int scanlineStride, int[] channelOffsets) {
+            super(image, converted);
+            this.data = data;
+            this.offset = offset;
+            this.pixelStride = pixelStride;
+            this.scanlineStride = scanlineStride;
+            this.channelOffsets = channelOffsets;
+        }
+
+        private int index(int slot) {
+            int pixel = slot / CHANNELS;
+            int y = pixel / width;
+            int x = pixel - y * width;
+            return offset + y * scanlineStride + x * pixelStride + channelOffsets[slot - pixel * CHANNELS];
+        }
+
+        @Override
+        public int getLsb(int slot) {
+            return data[index(slot)] & 1;
+        }
+
+        @Override
+        public void setLsb(int slot, int bit) {
+            int i = index(slot);
+            data[i] = (short) ((data[i] & 0xFFFE) | bit);
+        }
+
+        @Override
+        public int getBits(int slot, int count) {
+            return data[index(slot)] & ((1 << count) - 1);
+        }
+
+        @Override
+        public void setBits(int slot, int count, int value) {
+            int i = index(slot);
+            data[i] = (short) ((data[i] & ~((1 << count) - 1)) | value);
+        }
+
+        @Override
+        public int getSample(int slot) {
+            return data[index(slot)] & 0xFFFF;
+        }
+
+        @Override
+        public int sampleBits() {
+            return 16;
+        }
+    }
+
+    /**
+     * INT_RGB / INT_ARGB / INT_BGR: one int per pixel, channel picked by shift.
+     */
+    private static final class IntPackedRaster extends LsbRaster {
+        private final int[] data;
+        private final int offset;
+        private final int scanlineStride;
+        private final int[] channelShifts;
+
+        IntPackedRaster(BufferedImage image, boolean converted, int[] data, int offset,
+                        int scanlineStride, int[] channelShifts) {
+            super(image, converted);
+            this.data = data;
+            this.offset = offset;
+            this.scanlineStride = scanlineStride;
+            this.channelShifts = channelShifts;
+        }
+
+        private int index(int pixel) {
+            int y = pixel / width;
+            return offset + y * scanlineStride + (pixel - y * width);
+        }
+
+        @Override
+        public int getLsb(int slot) {
+            int pixel = slot / CHANNELS;
+            return (data[index(pixel)] >>> channelShifts[slot - pixel * CHANNELS]) & 1;
+        }
+
+        @Override
+        public void setLsb(int slot, int bit) {
+            int pixel = slot / CHANNELS;
+            int i = index(pixel);
+            int shift = channelShifts[slot - pixel * CHANNELS];
+            data[i] = (data[i] & ~(1 << shift)) | (bit << shift);
+        }
+
+        @Override
+        public int getBits(int slot, int count) {
+            int pixel = slot / CHANNELS;
+            return (data[index(pixel)] >>> channelShifts[slot - pixel * CHANNELS]) & ((1 << count) - 1);
+        }
+
+        @Override
+        public void setBits(int slot, int count, int value) {
+            int pixel = slot / CHANNELS;
+            int i = index(pixel);
+            int shift = channelShifts[slot - pixel * CHANNELS];
+            data[i] = (data[i] & ~(((1 << count) - 1) << shift)) | (value << shift);
+        }
+
+        @Override
+        public int getSample(int slot) {
+            int pixel = slot / CHANNELS;
+            return (data[index(pixel)] >>> channelShifts[slot - pixel * CHANNELS]) & 0xFF;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package src.main.steganography;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * WORD-AT-A-TIME LSB KERNELS for the sequential layout.
+ * Moves 8 payload bits (MSB first) to / from the LSBs of 8 consecutive carrier bytes
+ * with one 64-bit read-modify-write instead of 8 shift / mask / store steps.
+ * * LOGIC:
+ * - Scatter: the payload byte indexes a table of 64-bit words holding one bit per byte;
+ *   the carrier word keeps its upper 7 bits per byte and takes the table word as LSBs.
+ * - Gather: the 8 LSBs are masked out of the carrier word and folded into the top byte
+ *   by one multiplication (the shifted copies never overlap, so no carries).
+ * - Interleaved RGB rasters store a pixel's channels in R, G, B order while slots run B, G, R:
+ *   24 slots (8 pixels, 3 payload bytes) are handled as one block whose 24 bits are
+ *   reordered with a mask-and-shift swap before the 3 words are written.
+ * * Callers align blocks and handle the unaligned head and tail with the per-bit accessors.
+ */
+final class LsbWords {
+
+    /** Slots per block: a whole number of pixels and of payload bytes. */
+    static final int BLOCK_SLOTS = 24;
+    static final int BLOCK_BYTES = BLOCK_SLOTS / 8;
+
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final long LSB_MASK = 0x0101010101010101L;
+    private static final long GATHER = 0x0102040810204080L;
+
+    // Bits of a 24-bit block (MSB = slot 0) by slot position within the pixel
+    private static final int FIRST_CHANNEL = 0x924924;
+    private static final int MIDDLE_CHANNEL = 0x492492;
+    private static final int LAST_CHANNEL = 0x249249;
+
+    private static final long[] SPREAD = new long[256];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            long word = 0;
+            for (int bit = 7; bit >= 0; bit--) {
+                word = (word << 8) | ((value >>> bit) & 1);
+            }
+            SPREAD[value] = word;
+        }
+    }
+
+    private LsbWords() {
+    }
+
+    /**
+     * Writes the 8 bits of {@code value} into the LSBs of carrier[index .. index + 7].
+     */
+    static void put8(byte[] carrier, int index, int value) {
+        long word = (long) LONG_BE.get(carrier, index);
+        LONG_BE.set(carrier, index, (word & ~LSB_MASK) | SPREAD[value & 0xFF]);
+    }
+
+    /**
+     * Reads the LSBs of carrier[index .. index + 7] as one byte, first carrier byte as MSB.
+     */
+    static int get8(byte[] carrier, int index) {
+        long word = (long) LONG_BE.get(carrier, index) & LSB_MASK;
+        return (int) ((word * GATHER) >>> 56);
+    }
+
+    /**
+     * Writes {@code blocks} x 3 payload bytes into 24-byte pixel blocks starting at {@code index}.
+     * @param reversed true when memory holds each pixel as R, G, B (slot order is B, G, R)
+     */
+    static void putBlocks(byte[] carrier, int index, boolean reversed, byte[] payload, int from, int blocks) {
+        for (int b = 0; b < blocks; b++, index += BLOCK_SLOTS, from += BLOCK_BYTES) {
+            int bits = ((payload[from] & 0xFF) << 16) | ((payload[from + 1] & 0xFF) << 8) | (payload[from + 2] & 0xFF);
+            if (reversed) {
+                bits = swapChannels(bits);
+            }
+            put8(carrier, index, bits >>> 16);
+            put8(carrier, index + 8, bits >>> 8);
+            put8(carrier, index + 16, bits);
+        }
+    }
+
+    static void getBlocks(byte[] carrier, int index, boolean reversed, byte[] payload, int from, int blocks) {
+        for (int b = 0; b < blocks; b++, index += BLOCK_SLOTS, from += BLOCK_BYTES) {
+            int bits = (get8(carrier, index) << 16) | (get8(carrier, index + 8) << 8) | get8(carrier, index + 16);
+            if (reversed) {
+                bits = swapChannels(bits);
+            }
+            payload[from] = (byte) (bits >>> 16);
+            payload[from + 1] = (byte) (bits >>> 8);
+            payload[from + 2] = (byte) bits;
+        }
+    }
+
+    /**
+     * Swaps the first and last channel of each of the 8 pixels in a 24-bit block (its own inverse).
+     */
+    private static int swapChannels(int bits) {
+        return (bits & MIDDLE_CHANNEL) | ((bits & FIRST_CHANNEL) >>> 2) | ((bits & LAST_CHANNEL) << 2);
+    }
+}
\ No newline at end of file
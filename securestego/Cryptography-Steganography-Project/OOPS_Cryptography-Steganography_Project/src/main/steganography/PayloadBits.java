@@ -0,0 +1,37 @@
+package src.main.steganography;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MSB-first bit-field access to a payload, for groups of up to 8 bits that may straddle a byte.
+ * One-bit groups read exactly like the original per-bit loops, so plain LSB carriers are unchanged.
+ * * The payload is a heap buffer for messages or a memory-mapped file for file payloads;
+ *   only absolute indexing is used, so the buffer position never matters.
+ */
+final class PayloadBits {
+
+    private PayloadBits() {
+    }
+
+    /**
+     * Reads {@code count} (1-8) bits starting at {@code bitOffset}; bits past the end read as 0.
+     */
+    static int read(ByteBuffer payload, long bitOffset, int count) {
+        int index = (int) (bitOffset >>> 3);
+        int shift = 16 - (int) (bitOffset & 7) - count;
+        int pair = ((payload.get(index) & 0xFF) << 8) | (index + 1 < payload.limit() ? payload.get(index + 1) & 0xFF : 0);
+        return (pair >>> shift) & ((1 << count) - 1);
+    }
+
+    /**
+     * ORs {@code count} (1-8) bits into a zero-initialised payload at {@code bitOffset}.
+     */
+    static void write(ByteBuffer payload, long bitOffset, int count, int value) {
+        int index = (int) (bitOffset >>> 3);
+        int shifted = (value & ((1 << count) - 1)) << (16 - (int) (bitOffset & 7) - count);
+        payload.put(index, (byte) (payload.get(index) | (shifted >>> 8)));
+        if ((shifted & 0xFF) != 0) {
+            payload.put(index + 1, (byte) (payload.get(index + 1) | shifted));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package src.main.steganography;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where one extraction writes its payload, opened only once the header has been verified
+ * (so a wrong password never allocates or creates anything).
+ * * TARGETS:
+ * - {@link #heap}: a byte array, handed back as a {@link StegoPayload} (messages).
+ * - {@link #file}: a file of exactly the payload length, written through a memory map,
+ *   so heap use does not grow with the payload (file payloads).
+ * * Each target accepts only its own kind of carrier: a text carrier is not a file and a file
+ *   payload is not returned as a message.
+ */
+abstract class PayloadTarget {
+
+    private ByteBuffer buffer;
+    private StegoPayload payload;
+
+    /**
+     * Checks the header flags (0 for legacy carriers) before anything is opened.
+     */
+    abstract void accept(int flags) throws Exception;
+
+    abstract ByteBuffer allocate(int length) throws IOException;
+
+    /**
+     * A zero-filled buffer of exactly {@code length} bytes for the payload.
+     */
+    final ByteBuffer open(int length) throws IOException {
+        buffer = allocate(length);
+        return buffer;
+    }
+
+    /**
+     * Completes the write: heap payloads become available through {@link #payload()}, files are flushed.
+     */
+    final void finish(boolean binary) {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        } else {
+            payload = new StegoPayload(buffer.array(), binary);
+        }
+    }
+
+    /**
+     * The extracted payload (heap target only; null before {@link #finish} and for files).
+     */
+    final StegoPayload payload() {
+        return payload;
+    }
+
+    static PayloadTarget heap() {
+        return new PayloadTarget() {
+            @Override
+            void accept(int flags) throws Exception {
+                if ((flags & StegoHeader.FLAG_FILE_PAYLOAD) != 0) {
+                    throw new Exception("Carrier holds a hidden file, not a message. Extract it as a file.");
+                }
+            }
+
+            @Override
+            ByteBuffer allocate(int length) {
+                return ByteBuffer.wrap(new byte[length]);
+            }
+        };
+    }
+
+    /**
+     * Writes the payload into {@code payloadFile} (created or truncated).
+     */
+    static PayloadTarget file(File payloadFile) {
+        return new PayloadTarget() {
+            @Override
+            void accept(int flags) throws Exception {
+                if ((flags & StegoHeader.FLAG_FILE_PAYLOAD) == 0) {
+                    throw new Exception("Carrier holds a message, not a hidden file.");
+                }
+            }
+
+            @Override
+            ByteBuffer allocate(int length) throws IOException {
+                try (FileChannel channel = FileChannel.open(payloadFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    // The mapping outlives the channel; the extended region reads as zeros
+                    return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                }
+            }
+        };
+    }
+
+    /**
+     * Maps a payload file for embedding; carriers store a 32-bit length, so files must stay below 2 GB.
+     */
+    static ByteBuffer mapSource(File payloadFile) throws Exception {
+        try (FileChannel channel = FileChannel.open(payloadFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new Exception("Payload file too large for a carrier (max 2 GB).");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package src.main.steganography;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * A raw PNG chunk (type + data) carried through the streaming pipeline unchanged.
+ */
+final class PngChunk {
+
+    final String type;
+    final byte[] data;
+
+    PngChunk(String type, byte[] data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        write(out, type, data, 0, data.length);
+    }
+
+    static void write(DataOutputStream out, String type, byte[] data, int off, int len) throws IOException {
+        out.writeInt(len);
+        out.write(type.getBytes(StandardCharsets.US_ASCII));
+        out.write(data, off, len);
+        out.writeInt(crc(type, data, off, len));
+    }
+
+    static int crc(String type, byte[] data, int off, int len) {
+        CRC32 crc = new CRC32();
+        crc.update(type.getBytes(StandardCharsets.US_ASCII));
+        crc.update(data, off, len);
+        return (int) crc.getValue();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package src.main.steganography;
+
+/**
+ * Output settings for the stego PNG writer.
+ * * Every setting only trades speed against file size: all of them are lossless,
+ * so the embedded LSB plane is written byte-exact.
+ */
+public final class PngEncodeOptions {
+
+    /**
+     * PNG row filter. ADAPTIVE tries all five per row and keeps the cheapest (libpng heuristic).
+     */
+    public enum Filter {
+        NONE(0), SUB(1), UP(2), AVERAGE(3), PAETH(4), ADAPTIVE(-1);
+
+        final int type;
+
+        Filter(int type) {
+            this.type = type;
+        }
+    }
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    /** Balanced: the JDK ImageIO default level, adaptive filtering, all cores. */
+    public static final PngEncodeOptions DEFAULT = new PngEncodeOptions(4, Filter.ADAPTIVE, CORES);
+    /** Fastest useful output: level 1 with the cheap SUB filter. */
+    public static final PngEncodeOptions FAST = new PngEncodeOptions(1, Filter.SUB, CORES);
+    /** Smallest output: level 9 with adaptive filtering. */
+    public static final PngEncodeOptions SMALL = new PngEncodeOptions(9, Filter.ADAPTIVE, CORES);
+
+    private final int level;
+    private final Filter filter;
+    private final int threads;
+
+    public PngEncodeOptions(int level, Filter filter, int threads) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Deflate level must be 0-9.");
+        }
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter is required.");
+        }
+        this.level = level;
+        this.filter = filter;
+        this.threads = Math.max(1, threads);
+    }
+
+    public int level() {
+        return level;
+    }
+
+    public Filter filter() {
+        return filter;
+    }
+
+    /**
+     * Number of deflate blocks compressed concurrently; 1 keeps a single continuous stream.
+     */
+    public int threads() {
+        return threads;
+    }
+
+    public PngEncodeOptions withLevel(int level) {
+        return new PngEncodeOptions(level, filter, threads);
+    }
+
+    public PngEncodeOptions withFilter(Filter filter) {
+        return new PngEncodeOptions(level, filter, threads);
+    }
+
+    public PngEncodeOptions withThreads(int threads) {
+        return new PngEncodeOptions(level, filter, threads);
+    }
+
+    @Override
+    public String toString() {
+        return "PNG[level=" + level + ", filter=" + filter + ", threads=" + threads + "]";
+    }
+}
\ No newline at end of file
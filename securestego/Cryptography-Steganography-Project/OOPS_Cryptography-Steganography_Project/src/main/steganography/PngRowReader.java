@@ -0,0 +1,348 @@
+package src.main.steganography;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * STREAMING PNG DECODER.
+ * Inflates and unfilters one scanline at a time, so heap use is a few rows
+ * regardless of the image size.
+ * * SUPPORTED: non-interlaced truecolour (RGB / RGBA), 8 or 16 bits per sample.
+ * Ancillary chunks are kept verbatim so {@link PngRowWriter} can copy them through.
+ */
+final class PngRowReader implements AutoCloseable {
+
+    static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    static final int COLOR_RGB = 2;
+    static final int COLOR_RGBA = 6;
+
+    private final DataInputStream in;
+    private final IdatStream idatRaw;
+    private final InflaterInputStream idat;
+    private final Inflater inflater = new Inflater();
+
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final int colorType;
+    private final int bytesPerPixel;
+    private final int rowBytes;
+
+    private final List<PngChunk> leadingChunks = new ArrayList<>();
+    private final List<PngChunk> trailingChunks = new ArrayList<>();
+
+    private byte[] previous;
+    private byte[] current;
+    private int rowsRead;
+
+    // Header of the next unread chunk; advanced by the IDAT stream, consumed by finish()
+    private int pendingLength;
+    private String pendingType;
+
+    PngRowReader(File file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            byte[] signature = new byte[SIGNATURE.length];
+            in.readFully(signature);
+            if (!Arrays.equals(signature, SIGNATURE)) {
+                throw new IOException("Not a PNG file: " + file.getName());
+            }
+
+            // 1. IHDR must come first
+            PngChunk ihdr = readChunk(in.readInt(), readType());
+            if (!"IHDR".equals(ihdr.type)) {
+                throw new IOException("Corrupt PNG: IHDR missing.");
+            }
+            Header h = Header.parse(ihdr.data);
+            if (!h.isStreamable()) {
+                throw new IOException("PNG layout not supported for streaming.");
+            }
+            this.width = h.width;
+            this.height = h.height;
+            this.bitDepth = h.bitDepth;
+            this.colorType = h.colorType;
+            this.bytesPerPixel = h.channels() * (bitDepth / 8);
+            this.rowBytes = Math.multiplyExact(width, bytesPerPixel);
+
+            // 2. Collect ancillary chunks up to the first IDAT
+            while (true) {
+                int length = in.readInt();
+                String type = readType();
+                if ("IDAT".equals(type)) {
+                    pendingLength = length;
+                    pendingType = type;
+                    break;
+                }
+                if ("IEND".equals(type)) {
+                    throw new IOException("Corrupt PNG: no image data.");
+                }
+                leadingChunks.add(readChunk(length, type));
+            }
+
+            this.idatRaw = new IdatStream();
+            this.idat = new InflaterInputStream(idatRaw, inflater, 1 << 16);
+            this.previous = new byte[rowBytes];
+            this.current = new byte[rowBytes];
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    int width() { return width; }
+    int height() { return height; }
+    int bitDepth() { return bitDepth; }
+    int colorType() { return colorType; }
+    int bytesPerPixel() { return bytesPerPixel; }
+    int rowBytes() { return rowBytes; }
+    List<PngChunk> leadingChunks() { return leadingChunks; }
+
+    /**
+     * Decodes the next scanline into {@code out} (at least {@link #rowBytes()} long).
+     * The caller may modify {@code out}; the decoder keeps its own copy for unfiltering.
+     */
+    void nextRow(byte[] out) throws IOException {
+        if (rowsRead >= height) {
+            throw new IOException("No more rows.");
+        }
+        int filter = idat.read();
+        if (filter < 0) {
+            throw new EOFException("Corrupt PNG: image data truncated.");
+        }
+        readFully(current);
+        unfilter(filter, current, previous);
+
+        byte[] t = previous;
+        previous = current;
+        current = t;
+        rowsRead++;
+        System.arraycopy(previous, 0, out, 0, rowBytes);
+    }
+
+    /**
+     * Skips the rest of the image data and collects the chunks between the last IDAT and IEND.
+     */
+    List<PngChunk> finish() throws IOException {
+        // Skip whatever image data the rows did not consume (zlib trailer, empty IDATs)
+        byte[] skip = new byte[8192];
+        while (idatRaw.read(skip, 0, skip.length) >= 0) {
+            // drain
+        }
+        while (!"IEND".equals(pendingType)) {
+            trailingChunks.add(readChunk(pendingLength, pendingType));
+            pendingLength = in.readInt();
+            pendingType = readType();
+        }
+        return trailingChunks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    // ==================================================================================
+    // CHUNK PARSING
+    // ==================================================================================
+
+    private String readType() throws IOException {
+        byte[] type = new byte[4];
+        in.readFully(type);
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    private PngChunk readChunk(int length, String type) throws IOException {
+        if (length < 0) {
+            throw new IOException("Corrupt PNG: bad chunk length.");
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        int crc = in.readInt();
+        if (crc != PngChunk.crc(type, data, 0, length)) {
+            throw new IOException("Corrupt PNG: CRC mismatch in " + type + ".");
+        }
+        return new PngChunk(type, data);
+    }
+
+    private void readFully(byte[] row) throws IOException {
+        int off = 0;
+        while (off < row.length) {
+            int n = idat.read(row, off, row.length - off);
+            if (n < 0) {
+                throw new EOFException("Corrupt PNG: image data truncated.");
+            }
+            off += n;
+        }
+    }
+
+    private void unfilter(int filter, byte[] row, byte[] prior) throws IOException {
+        int bpp = bytesPerPixel;
+        switch (filter) {
+            case 0 -> { }
+            case 1 -> {
+                for (int i = bpp; i < row.length; i++) {
+                    row[i] += row[i - bpp];
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] += prior[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < bpp; i++) {
+                    row[i] += (byte) ((prior[i] & 0xFF) >>> 1);
+                }
+                for (int i = bpp; i < row.length; i++) {
+                    row[i] += (byte) (((row[i - bpp] & 0xFF) + (prior[i] & 0xFF)) >>> 1);
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < bpp; i++) {
+                    row[i] += prior[i];
+                }
+                for (int i = bpp; i < row.length; i++) {
+                    row[i] += (byte) paeth(row[i - bpp] & 0xFF, prior[i] & 0xFF, prior[i - bpp] & 0xFF);
+                }
+            }
+            default -> throw new IOException("Corrupt PNG: unknown filter type " + filter + ".");
+        }
+    }
+
+    static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) return a;
+        if (pb <= pc) return b;
+        return c;
+    }
+
+    /**
+     * Concatenates the payload of consecutive IDAT chunks, verifying each CRC.
+     */
+    private final class IdatStream extends InputStream {
+        private int remaining;
+        private final CRC32 crc = new CRC32();
+        private final byte[] one = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (remaining == 0) {
+                if (!"IDAT".equals(pendingType)) {
+                    return -1;
+                }
+                if (pendingLength < 0) {
+                    throw new IOException("Corrupt PNG: bad chunk length.");
+                }
+                remaining = pendingLength;
+                crc.reset();
+                crc.update(pendingType.getBytes(StandardCharsets.US_ASCII));
+                pendingType = null;
+                if (remaining == 0) {
+                    endChunk();
+                }
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Corrupt PNG: IDAT truncated.");
+            }
+            crc.update(b, off, n);
+            remaining -= n;
+            if (remaining == 0) {
+                endChunk();
+            }
+            return n;
+        }
+
+        private void endChunk() throws IOException {
+            if (in.readInt() != (int) crc.getValue()) {
+                throw new IOException("Corrupt PNG: CRC mismatch in IDAT.");
+            }
+            pendingLength = in.readInt();
+            pendingType = readType();
+        }
+    }
+
+    // ==================================================================================
+    // IHDR
+    // ==================================================================================
+
+    static final class Header {
+        final int width;
+        final int height;
+        final int bitDepth;
+        final int colorType;
+        final int interlace;
+
+        private Header(int width, int height, int bitDepth, int colorType, int interlace) {
+            this.width = width;
+            this.height = height;
+            this.bitDepth = bitDepth;
+            this.colorType = colorType;
+            this.interlace = interlace;
+        }
+
+        static Header parse(byte[] ihdr) throws IOException {
+            if (ihdr.length != 13) {
+                throw new IOException("Corrupt PNG: bad IHDR.");
+            }
+            int w = ((ihdr[0] & 0xFF) << 24) | ((ihdr[1] & 0xFF) << 16) | ((ihdr[2] & 0xFF) << 8) | (ihdr[3] & 0xFF);
+            int h = ((ihdr[4] & 0xFF) << 24) | ((ihdr[5] & 0xFF) << 16) | ((ihdr[6] & 0xFF) << 8) | (ihdr[7] & 0xFF);
+            return new Header(w, h, ihdr[8] & 0xFF, ihdr[9] & 0xFF, ihdr[12] & 0xFF);
+        }
+
+        /**
+         * Reads only the signature and IHDR of a file; returns null if it is not a PNG.
+         */
+        static Header read(File file) throws IOException {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                byte[] signature = new byte[SIGNATURE.length];
+                in.readFully(signature);
+                if (!Arrays.equals(signature, SIGNATURE) || in.readInt() != 13 || in.readInt() != 0x49484452) {
+                    return null;
+                }
+                byte[] data = new byte[13];
+                in.readFully(data);
+                return parse(data);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        int channels() {
+            return colorType == COLOR_RGBA ? 4 : 3;
+        }
+
+        boolean isStreamable() {
+            return width > 0 && height > 0
+                    && (colorType == COLOR_RGB || colorType == COLOR_RGBA)
+                    && (bitDepth == 8 || bitDepth == 16)
+                    && interlace == 0;
+        }
+
+        long pixels() {
+            return (long) width * height;
+        }
+    }
+}
\ No newline at end of file
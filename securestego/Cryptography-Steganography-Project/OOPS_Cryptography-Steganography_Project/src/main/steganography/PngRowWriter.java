@@ -0,0 +1,413 @@
+package src.main.steganography;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * STREAMING STEGO PNG ENCODER.
+ * Filters one scanline at a time and emits IDAT chunks as the compressed stream
+ * fills them, so nothing larger than a few deflate blocks is held in memory.
+ * * PARALLEL DEFLATE (pigz-style, when {@link PngEncodeOptions#threads()} > 1):
+ * 1. Filtered rows are cut into 256 KB blocks.
+ * 2. Each block is deflated on a pool thread, primed with the previous 32 KB as
+ *    dictionary and closed with a sync flush, so the blocks concatenate into one zlib stream.
+ * 3. Finished blocks are written out in order as soon as they are ready.
+ * * Lossless by construction: every sample, including its LSB, is written as given.
+ */
+final class PngRowWriter implements AutoCloseable {
+
+    private static final int IDAT_CHUNK_SIZE = 1 << 16;
+    private static final int BLOCK_SIZE = 256 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final ExecutorService DEFLATE_POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "png-deflate");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private final DataOutputStream out;
+    private final IdatOutputStream idat;
+    private final PngEncodeOptions options;
+    private final int bytesPerPixel;
+    private final int rowBytes;
+    private final int height;
+
+    private final byte[] prior;
+    private final byte[][] candidates;
+    private final Adler32 adler = new Adler32();
+    private int rowsWritten;
+
+    // Filtered bytes waiting to be compressed
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockFill;
+
+    // Parallel mode: blocks in flight (oldest first) and the window for the next one
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] dictionary;
+
+    // Single-thread mode: one continuous raw deflate stream
+    private final Deflater deflater;
+    private final byte[] deflateBuffer;
+
+    PngRowWriter(File file, int width, int height, int bitDepth, int colorType,
+                 List<PngChunk> leadingChunks, PngEncodeOptions options) throws IOException {
+        this.height = height;
+        this.options = options;
+        this.bytesPerPixel = (colorType == PngRowReader.COLOR_RGBA ? 4 : 3) * (bitDepth / 8);
+        this.rowBytes = Math.multiplyExact(width, bytesPerPixel);
+        this.prior = new byte[rowBytes];
+        this.candidates = new byte[5][rowBytes + 1];
+
+        boolean parallel = options.threads() > 1;
+        this.deflater = parallel ? null : new Deflater(options.level(), true);
+        this.deflateBuffer = parallel ? null : new byte[IDAT_CHUNK_SIZE];
+
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        try {
+            out.write(PngRowReader.SIGNATURE);
+
+            // 1. IHDR
+            byte[] ihdr = new byte[13];
+            putInt(ihdr, 0, width);
+            putInt(ihdr, 4, height);
+            ihdr[8] = (byte) bitDepth;
+            ihdr[9] = (byte) colorType;
+            new PngChunk("IHDR", ihdr).write(out);
+
+            // 2. Ancillary chunks copied from the carrier (colour profile, gamma, text...)
+            for (PngChunk chunk : leadingChunks) {
+                chunk.write(out);
+            }
+
+            // 3. zlib header; raw deflate data and the Adler-32 trailer follow
+            this.idat = new IdatOutputStream();
+            idat.write(0x78);
+            idat.write(zlibFlags(options.level()));
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Encodes a decoded image through this writer; used instead of ImageIO.write.
+     * The image must be RGB(A) with 8 or 16 bits per sample, which {@link LsbRaster} guarantees.
+     */
+    static void writeImage(BufferedImage image, File file, PngEncodeOptions options) throws IOException {
+        WritableRaster raster = image.getRaster();
+        int width = image.getWidth();
+        int bands = raster.getNumBands();
+        boolean alpha = image.getColorModel().hasAlpha();
+        int bitDepth = raster.getDataBuffer().getDataType() == DataBuffer.TYPE_USHORT ? 16 : 8;
+        if (bands != (alpha ? 4 : 3)) {
+            throw new IOException("Unsupported image layout for PNG output.");
+        }
+
+        try (PngRowWriter writer = new PngRowWriter(file, width, image.getHeight(), bitDepth,
+                alpha ? PngRowReader.COLOR_RGBA : PngRowReader.COLOR_RGB, List.of(), options)) {
+            // getPixels returns samples in band order R, G, B(, A) for every layout
+            int[] samples = new int[width * bands];
+            byte[] row = new byte[writer.rowBytes];
+            for (int y = 0; y < image.getHeight(); y++) {
+                raster.getPixels(0, y, width, 1, samples);
+                if (bitDepth == 8) {
+                    for (int i = 0; i < samples.length; i++) {
+                        row[i] = (byte) samples[i];
+                    }
+                } else {
+                    for (int i = 0; i < samples.length; i++) {
+                        row[2 * i] = (byte) (samples[i] >>> 8);
+                        row[2 * i + 1] = (byte) samples[i];
+                    }
+                }
+                writer.writeRow(row);
+            }
+            writer.finish(List.of());
+        }
+    }
+
+    /**
+     * Filters and compresses one scanline of {@code rowBytes} raw bytes.
+     */
+    void writeRow(byte[] row) throws IOException {
+        if (rowsWritten >= height) {
+            throw new IOException("All rows already written.");
+        }
+        byte[] filtered = filter(row);
+        adler.update(filtered, 0, rowBytes + 1);
+        append(filtered, rowBytes + 1);
+        System.arraycopy(row, 0, prior, 0, rowBytes);
+        rowsWritten++;
+    }
+
+    /**
+     * Completes the image data, copies the trailing chunks and writes IEND.
+     */
+    void finish(List<PngChunk> trailingChunks) throws IOException {
+        if (rowsWritten != height) {
+            throw new IOException("PNG incomplete: " + rowsWritten + " of " + height + " rows written.");
+        }
+        compressBlock(true);
+        while (!pending.isEmpty()) {
+            idat.write(await(pending.poll()));
+        }
+
+        int checksum = (int) adler.getValue();
+        idat.write(checksum >>> 24);
+        idat.write(checksum >>> 16);
+        idat.write(checksum >>> 8);
+        idat.write(checksum);
+        idat.flush();
+
+        for (PngChunk chunk : trailingChunks) {
+            chunk.write(out);
+        }
+        PngChunk.write(out, "IEND", new byte[0], 0, 0);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> f : pending) {
+            f.cancel(true);
+        }
+        pending.clear();
+        if (deflater != null) {
+            deflater.end();
+        }
+        out.close();
+    }
+
+    // ==================================================================================
+    // DEFLATE BLOCKS
+    // ==================================================================================
+
+    private void append(byte[] data, int len) throws IOException {
+        int off = 0;
+        while (off < len) {
+            int n = Math.min(len - off, BLOCK_SIZE - blockFill);
+            System.arraycopy(data, off, block, blockFill, n);
+            blockFill += n;
+            off += n;
+            if (blockFill == BLOCK_SIZE) {
+                compressBlock(false);
+            }
+        }
+    }
+
+    private void compressBlock(boolean last) throws IOException {
+        if (deflater != null) {
+            // Single thread: one stream, no flush points
+            deflater.setInput(block, 0, blockFill);
+            if (last) {
+                deflater.finish();
+            }
+            while (last ? !deflater.finished() : !deflater.needsInput()) {
+                int n = deflater.deflate(deflateBuffer);
+                idat.write(deflateBuffer, 0, n);
+            }
+            blockFill = 0;
+            return;
+        }
+
+        // 1. Hand the block to the pool together with the window that precedes it
+        byte[] input = block;
+        int length = blockFill;
+        byte[] dict = dictionary;
+        int level = options.level();
+        pending.add(DEFLATE_POOL.submit(() -> deflateBlock(input, length, dict, level, last)));
+
+        // 2. The tail of this block primes the next one
+        if (length >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+        }
+        block = new byte[BLOCK_SIZE];
+        blockFill = 0;
+
+        // 3. Write whatever is finished, and wait if too many blocks are in flight
+        while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > options.threads() * 2)) {
+            idat.write(await(pending.poll()));
+        }
+    }
+
+    private static byte[] deflateBlock(byte[] input, int length, byte[] dictionary, int level, boolean last) {
+        Deflater d = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                d.setDictionary(dictionary);
+            }
+            d.setInput(input, 0, length);
+            if (last) {
+                d.finish();
+            }
+            byte[] result = new byte[length + (length >>> 3) + 64];
+            int n = 0;
+            while (true) {
+                if (n == result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                n += d.deflate(result, n, result.length - n, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                // A sync flush is complete once it leaves room in the buffer
+                if (last ? d.finished() : n < result.length) {
+                    break;
+                }
+            }
+            return Arrays.copyOf(result, n);
+        } finally {
+            d.end();
+        }
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PNG encoding interrupted.");
+        } catch (ExecutionException e) {
+            throw new IOException("PNG compression failed.", e.getCause());
+        }
+    }
+
+    /**
+     * zlib FLG byte for CMF 0x78: the FLEVEL hint plus FCHECK so (CMF * 256 + FLG) % 31 == 0.
+     */
+    private static int zlibFlags(int level) {
+        int flevel = level <= 1 ? 0 : level <= 5 ? 1 : level == 6 ? 2 : 3;
+        int flg = flevel << 6;
+        return flg + (31 - ((0x78 << 8) + flg) % 31) % 31;
+    }
+
+    // ==================================================================================
+    // FILTERING
+    // ==================================================================================
+
+    private byte[] filter(byte[] row) {
+        PngEncodeOptions.Filter filter = options.filter();
+        if (filter != PngEncodeOptions.Filter.ADAPTIVE) {
+            byte[] f = candidates[filter.type];
+            filterInto(filter.type, row, f);
+            return f;
+        }
+
+        // Smallest sum of absolute residuals wins (the libpng heuristic)
+        long best = Long.MAX_VALUE;
+        byte[] choice = null;
+        for (int type = 0; type < candidates.length; type++) {
+            byte[] f = candidates[type];
+            filterInto(type, row, f);
+            long sum = 0;
+            for (int i = 1; i <= rowBytes; i++) {
+                sum += Math.abs(f[i]);
+            }
+            if (sum < best) {
+                best = sum;
+                choice = f;
+            }
+        }
+        return choice;
+    }
+
+    private void filterInto(int type, byte[] row, byte[] f) {
+        int bpp = Math.min(bytesPerPixel, rowBytes);
+        f[0] = (byte) type;
+        switch (type) {
+            case 0 -> System.arraycopy(row, 0, f, 1, rowBytes);
+            case 1 -> {
+                System.arraycopy(row, 0, f, 1, bpp);
+                for (int i = bpp; i < rowBytes; i++) {
+                    f[i + 1] = (byte) (row[i] - row[i - bpp]);
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < rowBytes; i++) {
+                    f[i + 1] = (byte) (row[i] - prior[i]);
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < bpp; i++) {
+                    f[i + 1] = (byte) (row[i] - ((prior[i] & 0xFF) >>> 1));
+                }
+                for (int i = bpp; i < rowBytes; i++) {
+                    f[i + 1] = (byte) (row[i] - (((row[i - bpp] & 0xFF) + (prior[i] & 0xFF)) >>> 1));
+                }
+            }
+            default -> {
+                for (int i = 0; i < bpp; i++) {
+                    f[i + 1] = (byte) (row[i] - prior[i]);
+                }
+                for (int i = bpp; i < rowBytes; i++) {
+                    f[i + 1] = (byte) (row[i] - PngRowReader.paeth(row[i - bpp] & 0xFF, prior[i] & 0xFF, prior[i - bpp] & 0xFF));
+                }
+            }
+        }
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+
+    /**
+     * Buffers compressed bytes and emits one IDAT chunk per full buffer.
+     */
+    private final class IdatOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[IDAT_CHUNK_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                flushChunk();
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            PngChunk.write(out, "IDAT", buffer, 0, count);
+            count = 0;
+        }
+    }
+}
\ No newline at end of file
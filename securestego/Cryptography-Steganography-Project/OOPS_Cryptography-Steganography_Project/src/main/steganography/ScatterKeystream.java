@@ -0,0 +1,45 @@
+package src.main.steganography;
+
+/**
+ * Deterministic, password-keyed random stream that drives scatter embedding.
+ * The implementation used for a carrier is recorded in the stego header flags,
+ * so extraction always rebuilds the same stream that embedding used.
+ */
+public interface ScatterKeystream {
+
+    /** Legacy SecureRandom "SHA1PRNG" seeded with the raw password bytes. */
+    int ID_SHA1PRNG = 0;
+    /** AES-256-CTR keystream under a PBKDF2-derived subkey (default). */
+    int ID_AES_CTR = 1;
+
+    /**
+     * Identifier written to the stego header.
+     */
+    int id();
+
+    /**
+     * Next 32 uniformly distributed bits.
+     */
+    int nextInt();
+
+    /**
+     * Next value uniformly distributed in [0, bound).
+     */
+    int nextInt(int bound);
+
+    /**
+     * Fills {@code dst[off .. off+len)} with keystream words.
+     */
+    void nextInts(int[] dst, int off, int len);
+
+    /**
+     * Rebuilds the keystream recorded under {@code id} for the given password.
+     */
+    static ScatterKeystream create(int id, String password) throws Exception {
+        return switch (id) {
+            case ID_SHA1PRNG -> new Sha1PrngKeystream(password);
+            case ID_AES_CTR -> new AesCtrKeystream(password);
+            default -> throw new Exception("Unsupported scatter keystream: " + id);
+        };
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package src.main.steganography;
+
+/**
+ * KEYED SCATTER PERMUTATION.
+ * Maps payload bit index -> carrier position as a bijection over [0, domain).
+ * * LOGIC:
+ * 1. Unbalanced Feistel network over the smallest power-of-two range covering the domain.
+ * 2. Round function is tabulation hashing over tables filled from the scatter keystream.
+ * 3. Cycle-walking folds the power-of-two range back into [0, domain).
+ * * Every position is produced exactly once, at constant cost per bit and without a BitSet.
+ */
+public final class ScatterPermutation {
+
+    /** Recommended size of the reusable position buffer passed to {@link #mapBatch}. */
+    public static final int BATCH_SIZE = 4096;
+
+    private static final int ROUNDS = 6; // Must stay even so the half-widths line up again
+    private static final int TABLE_SIZE = 4 * 256;
+
+    private final long domain;
+    private final int leftBits;
+    private final int rightBits;
+    private final long leftMask;
+    private final long rightMask;
+    private final int[] tables;
+
+    public ScatterPermutation(long domain, ScatterKeystream keystream) {
+        if (domain <= 0) {
+            throw new IllegalArgumentException("Scatter domain must be positive.");
+        }
+        this.domain = domain;
+
+        int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(domain - 1));
+        this.leftBits = bits / 2;
+        this.rightBits = bits - leftBits;
+        this.leftMask = mask(leftBits);
+        this.rightMask = mask(rightBits);
+
+        this.tables = new int[ROUNDS * TABLE_SIZE];
+        keystream.nextInts(tables, 0, tables.length);
+    }
+
+    public long domain() {
+        return domain;
+    }
+
+    /**
+     * Returns the carrier position for the given payload bit index.
+     */
+    public long map(long index) {
+        long x = encrypt(index);
+        while (x >= domain) {
+            x = encrypt(x);
+        }
+        return x;
+    }
+
+    /**
+     * Maps {@code count} consecutive payload bit indices starting at {@code firstIndex}
+     * into {@code out}. Intended for in-memory carriers whose domain fits an int.
+     */
+    public void mapBatch(long firstIndex, int[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = (int) map(firstIndex + i);
+        }
+    }
+
+    /**
+     * Returns the payload bit index stored at the given carrier position.
+     */
+    public long inverse(long position) {
+        long x = decrypt(position);
+        while (x >= domain) {
+            x = decrypt(x);
+        }
+        return x;
+    }
+
+    // ==================================================================================
+    // FEISTEL NETWORK
+    // ==================================================================================
+
+    // Rounds are applied in pairs: after two rounds each half is back at its own
+    // width, so the swap is implicit and the halves keep fixed masks.
+
+    private long encrypt(long x) {
+        long l = x >>> rightBits;
+        long r = x & rightMask;
+        for (int round = 0; round < ROUNDS; round += 2) {
+            l = (l ^ round(round, r)) & leftMask;
+            r = (r ^ round(round + 1, l)) & rightMask;
+        }
+        return (l << rightBits) | r;
+    }
+
+    private long decrypt(long y) {
+        long l = y >>> rightBits;
+        long r = y & rightMask;
+        for (int round = ROUNDS - 2; round >= 0; round -= 2) {
+            r = (r ^ round(round + 1, l)) & rightMask;
+            l = (l ^ round(round, r)) & leftMask;
+        }
+        return (l << rightBits) | r;
+    }
+
+    private long round(int round, long half) {
+        int base = round * TABLE_SIZE;
+        int h = tables[base + (int) (half & 0xFF)]
+                ^ tables[base + 256 + (int) ((half >>> 8) & 0xFF)]
+                ^ tables[base + 512 + (int) ((half >>> 16) & 0xFF)]
+                ^ tables[base + 768 + (int) ((half >>> 24) & 0xFF)];
+        return h & 0xFFFFFFFFL;
+    }
+
+    private static long mask(int bits) {
+        return (1L << bits) - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package src.main.steganography;
+
+import java.security.SecureRandom;
+
+/**
+ * LEGACY KEYSTREAM.
+ * SecureRandom "SHA1PRNG" seeded with the password bytes, exactly as the original
+ * scatter engines did. Kept so v0 and early v1 carriers remain extractable.
+ */
+final class Sha1PrngKeystream implements ScatterKeystream {
+
+    private final SecureRandom prng;
+
+    Sha1PrngKeystream(String password) throws Exception {
+        this.prng = SecureRandom.getInstance("SHA1PRNG");
+        this.prng.setSeed(password.getBytes());
+    }
+
+    @Override
+    public int id() {
+        return ID_SHA1PRNG;
+    }
+
+    @Override
+    public int nextInt() {
+        return prng.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        // Must delegate: legacy carriers depend on SecureRandom's exact rejection loop
+        return prng.nextInt(bound);
+    }
+
+    @Override
+    public void nextInts(int[] dst, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            dst[off + i] = prng.nextInt();
+        }
+    }
+}
\ No newline at end of file
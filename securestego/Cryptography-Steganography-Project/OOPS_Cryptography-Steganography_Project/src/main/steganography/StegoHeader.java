@@ -0,0 +1,218 @@
+package src.main.steganography;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Versioned handshake written sequentially in front of the scattered payload.
+ * * LAYOUT (64 bits, MSB first):
+ * [16-bit MAGIC] [8-bit VERSION] [8-bit FLAGS] [32-bit PAYLOAD LENGTH]
+ * v3 appends a [64-bit TAG]: truncated HMAC-SHA256 of the first 64 bits under a subkey of the
+ * (session-cached) PBKDF2 scatter key, so the payload starts at bit 128.
+ * * Legacy carriers start directly with a 32-bit length. A real length never has the
+ * top bit set, so the MAGIC (0xA55E) cannot be confused with a legacy header.
+ * * FAST FAIL: extraction checks magic, version and length bounds, then the tag, all within the
+ * first 128 carrier bits and before any payload buffer or permutation is built. A wrong password
+ * or a carrier without data is rejected in microseconds once the scatter key is cached.
+ * * FLAGS:
+ * - bits 0-1: {@link ScatterKeystream} id used to key the permutation.
+ * - bit 2: payload is raw binary (otherwise legacy UTF-8 text).
+ * - bit 3: audio only, bits live in the LSB of each sample of the data chunk
+ *   (otherwise one bit per byte after a fixed 44-byte WAV header).
+ * - bits 4-5: {@link EmbedDepth} bits per sample minus one (v2 and v3).
+ * - bit 6: adaptive depth, bits 4-5 hold the maximum (v2 and v3).
+ * - bit 7: payload is a file container streamed to disk on extraction (v3, binary only).
+ */
+final class StegoHeader {
+
+    static final int MAGIC = 0xA55E;
+    static final int SIZE_BITS = 64;
+    static final int TAG_BITS = 64;
+    /** Header size of the carriers written by this version. */
+    static final int AUTHENTICATED_SIZE_BITS = SIZE_BITS + TAG_BITS;
+
+    static final String INVALID_HEADER = "Invalid Data Header (Possible Wrong Password).";
+    static final String INVALID_LEGACY_LENGTH = "No valid hidden message detected. (Invalid Length Header)";
+
+    /** Legacy layout: 32-bit length, rejection-sampled SHA1PRNG scatter. */
+    static final int VERSION_LEGACY = 0;
+    /** Keyed Feistel permutation scatter. */
+    static final int VERSION_PERMUTATION = 1;
+    /** Permutation scatter with k bits per sample or adaptive depth. */
+    static final int VERSION_MULTIBIT = 2;
+    /** As v2 (any depth), followed by a 64-bit header MAC (written by default). */
+    static final int VERSION_AUTHENTICATED = 3;
+
+    private static final byte[] MAC_KEY_LABEL = "SECURE-STEGO/HEADER-MAC/v3".getBytes(StandardCharsets.UTF_8);
+
+    static final int FLAG_KEYSTREAM_MASK = 0x03;
+    static final int FLAG_BINARY_PAYLOAD = 0x04;
+    static final int FLAG_SAMPLE_ALIGNED = 0x08;
+    static final int FLAG_DEPTH_MASK = 0x30;
+    static final int FLAG_ADAPTIVE_DEPTH = 0x40;
+    static final int FLAG_FILE_PAYLOAD = 0x80;
+
+    final int version;
+    final int flags;
+    final int length;
+
+    // v3 only: MAC over the first 64 bits (0 until computed or read)
+    private long tag;
+
+    StegoHeader(int version, int flags, int length) {
+        this.version = version;
+        this.flags = flags;
+        this.length = length;
+    }
+
+    int keystreamId() {
+        return flags & FLAG_KEYSTREAM_MASK;
+    }
+
+    boolean isBinary() {
+        return (flags & FLAG_BINARY_PAYLOAD) != 0;
+    }
+
+    boolean isFilePayload() {
+        return (flags & FLAG_FILE_PAYLOAD) != 0;
+    }
+
+    boolean isSampleAligned() {
+        return (flags & FLAG_SAMPLE_ALIGNED) != 0;
+    }
+
+    /**
+     * Embedding depth; always plain LSB for v1 headers.
+     */
+    EmbedDepth depth() {
+        return version >= VERSION_MULTIBIT ? EmbedDepth.fromFlags(flags) : EmbedDepth.ONE_BIT;
+    }
+
+    boolean isAuthenticated() {
+        return version == VERSION_AUTHENTICATED;
+    }
+
+    /**
+     * Carrier bits taken by the header; the scattered payload starts right after them.
+     */
+    int sizeBits() {
+        return isAuthenticated() ? AUTHENTICATED_SIZE_BITS : SIZE_BITS;
+    }
+
+    /**
+     * Authenticated (v3) header for a payload written with the given depth.
+     */
+    static StegoHeader create(int flags, EmbedDepth depth, int length, String password) throws Exception {
+        StegoHeader header = new StegoHeader(VERSION_AUTHENTICATED, flags | depth.flags(), length);
+        header.tag = header.computeTag(password);
+        return header;
+    }
+
+    /**
+     * Packs the header into the 64 bits that are written to the carrier.
+     */
+    long toBits() {
+        long word = ((long) MAGIC << 16) | ((version & 0xFF) << 8) | (flags & 0xFF);
+        return (word << 32) | (length & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The 64-bit MAC written after {@link #toBits()} (v3 only).
+     */
+    long tag() {
+        return tag;
+    }
+
+    /**
+     * Bit {@code i} (MSB first) of the full header, tag included.
+     */
+    int bit(int i) {
+        long word = i < SIZE_BITS ? toBits() : tag;
+        return (int) (word >>> (SIZE_BITS - 1 - (i & (SIZE_BITS - 1)))) & 1;
+    }
+
+    /**
+     * Checks the MAC read from the carrier; throws the wrong-password error on mismatch.
+     * Headers older than v3 carry no MAC and always pass.
+     */
+    void verify(long carrierTag, String password) throws Exception {
+        if (!isAuthenticated()) {
+            return;
+        }
+        byte[] expected = toBytes(computeTag(password));
+        if (!MessageDigest.isEqual(expected, toBytes(carrierTag))) {
+            throw new Exception(INVALID_HEADER);
+        }
+        tag = carrierTag;
+    }
+
+    /**
+     * HMAC-SHA256 of the header bits under HMAC(scatter key, label), truncated to 64 bits.
+     * The scatter key is PBKDF2-stretched and cached per session, so the tag is no cheaper
+     * to brute-force than the scatter itself and costs two HMACs per carrier.
+     */
+    private long computeTag(String password) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(AesCtrKeystream.deriveKey(password).getEncoded(), "HmacSHA256"));
+        byte[] macKey = mac.doFinal(MAC_KEY_LABEL);
+
+        mac.init(new SecretKeySpec(macKey, "HmacSHA256"));
+        byte[] digest = mac.doFinal(toBytes(toBits()));
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (digest[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Rejects a carrier from its first 128 bits alone: impossible legacy length, unknown version,
+     * length beyond the carrier, or (v3) a MAC that does not match the password.
+     * Passing carriers may still fail later (adaptive capacity, v1/v2 wrong password).
+     * @param units carrier slots (channels or samples) at 1 bit each
+     */
+    static void screen(long headerBits, long tagBits, long units, String password) throws Exception {
+        int firstWord = (int) (headerBits >>> 32);
+        if (!isVersioned(firstWord)) {
+            if (firstWord <= 0 || firstWord * 8L > units - 32) {
+                throw new Exception(INVALID_LEGACY_LENGTH);
+            }
+            return;
+        }
+        StegoHeader header = parse(firstWord, (int) headerBits);
+        long slots = units - header.sizeBits();
+        if (header.length < 0 || slots < 0 || header.length * 8L > slots * header.depth().bits()) {
+            throw new Exception(INVALID_HEADER);
+        }
+        header.verify(tagBits, password);
+    }
+
+    private static byte[] toBytes(long word) {
+        byte[] bytes = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (word >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns true if the first 32 carrier bits belong to a versioned header.
+     */
+    static boolean isVersioned(int firstWord) {
+        return (firstWord >>> 16) == MAGIC;
+    }
+
+    /**
+     * Parses a versioned header. The caller must check {@link #isVersioned(int)} first,
+     * and {@link #verify} the tag of v3 headers before trusting the length.
+     */
+    static StegoHeader parse(int firstWord, int secondWord) throws Exception {
+        int version = (firstWord >>> 8) & 0xFF;
+        if (version < VERSION_PERMUTATION || version > VERSION_AUTHENTICATED) {
+            throw new Exception("Unsupported stego format version: " + version);
+        }
+        return new StegoHeader(version, firstWord & 0xFF, secondWord);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package src.main.steganography;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Payload recovered from a carrier, together with the format flag it was stored under.
+ * * FORMATS:
+ * - Binary: raw bytes written by the embedBytes APIs (e.g. ciphertext from Encryption.encryptBytes).
+ * - Text: UTF-8 text written by embedMessage and by every version before the binary flag
+ *   (Base64 ciphertext in practice).
+ */
+public final class StegoPayload {
+
+    private final byte[] bytes;
+    private final boolean binary;
+
+    public StegoPayload(byte[] bytes, boolean binary) {
+        this.bytes = bytes;
+        this.binary = binary;
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * The payload in the legacy String form: text as-is, binary payloads Base64-encoded,
+     * so callers of the String APIs (e.g. Decryption.decryptMessage) keep working.
+     */
+    public String asText() {
+        return binary ? Base64.getEncoder().encodeToString(bytes) : new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,528 @@
+package src.main.steganography;
+
+import src.main.utils.TaskProgress;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * STREAMING PNG STEGANOGRAPHY ENGINE.
+ * Embeds and extracts row by row through {@link PngRowReader} / {@link PngRowWriter},
+ * so heap use is bounded by a few scanlines instead of the full decoded image.
+ * * LAYOUTS (slot order identical to the in-memory engines):
+ * - Sequential: [32-bit length][payload], as written by {@link Embedder}.
+ * - Scatter: [64-bit versioned header][64-bit MAC (v3)][payload scattered by {@link ScatterPermutation}, k bits per slot].
+ * * Each row is a tile: the payload's scattered positions are visited in ascending slot order
+ * ({@link ScatterCursor}), so every row is decoded, touched and encoded exactly once and the
+ * scatter work grows with the payload, not with the carrier.
+ * * Scatter passes report raw scanline bytes to the thread's {@link TaskProgress} once per row.
+ */
+public class StreamingPngStego {
+
+    /** Carriers at or above this many pixels are processed by streaming. */
+    public static final long STREAMING_THRESHOLD_PIXELS = 16_000_000L;
+
+    private static final int LENGTH_BITS = 32;
+
+    private PngEncodeOptions pngOptions = PngEncodeOptions.DEFAULT;
+
+    /**
+     * Deflate level, row filter and thread count used for the stego PNG.
+     */
+    public void setPngOptions(PngEncodeOptions pngOptions) {
+        this.pngOptions = pngOptions;
+    }
+
+    /**
+     * True if the file is a PNG this engine can stream and it is large enough to benefit.
+     */
+    public static boolean shouldStream(File file) {
+        try {
+            PngRowReader.Header header = PngRowReader.Header.read(file);
+            return header != null && header.isStreamable() && header.pixels() >= STREAMING_THRESHOLD_PIXELS;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ==================================================================================
+    // SEQUENTIAL LAYOUT (Embedder / Extractor)
+    // ==================================================================================
+
+    public void embedSequential(File sourceFile, File destFile, byte[] message) throws Exception {
+        try (PngRowReader reader = new PngRowReader(sourceFile);
+             PngRowWriter writer = openWriter(reader, destFile)) {
+
+            long capacity = capacity(reader);
+            long requiredBits = LENGTH_BITS + message.length * 8L;
+            if (requiredBits > capacity) {
+                throw new Exception("Image is too small! Needed: " + requiredBits +
+                        " bytes, Available: " + capacity + " bytes.");
+            }
+
+            int[] channelBytes = channelBytes(reader);
+            byte[] row = new byte[reader.rowBytes()];
+            long slotsPerRow = (long) reader.width() * LsbRaster.CHANNELS;
+
+            for (int y = 0; y < reader.height(); y++) {
+                reader.nextRow(row);
+
+                long firstSlot = y * slotsPerRow;
+                long end = Math.min(requiredBits, firstSlot + slotsPerRow);
+                long slot = firstSlot;
+                // 1. Length field
+                for (; slot < Math.min(end, LENGTH_BITS); slot++) {
+                    int bit = (message.length >>> (LENGTH_BITS - 1 - slot)) & 1;
+                    setLsb(row, (int) (slot - firstSlot), channelBytes, reader.bytesPerPixel(), bit);
+                }
+                // 2. Message bits
+                sequentialRun(row, firstSlot, slot, end, message, true, channelBytes, reader.bytesPerPixel());
+                writer.writeRow(row);
+            }
+            writer.finish(reader.finish());
+        }
+    }
+
+    public byte[] extractSequential(File sourceFile) throws Exception {
+        try (PngRowReader reader = new PngRowReader(sourceFile)) {
+            long capacity = capacity(reader);
+            int[] channelBytes = channelBytes(reader);
+            byte[] row = new byte[reader.rowBytes()];
+            long slotsPerRow = (long) reader.width() * LsbRaster.CHANNELS;
+
+            int length = 0;
+            byte[] message = null;
+            long requiredBits = LENGTH_BITS;
+
+            for (int y = 0; y < reader.height() && y * slotsPerRow < requiredBits; y++) {
+                reader.nextRow(row);
+
+                long firstSlot = y * slotsPerRow;
+                long rowEnd = firstSlot + slotsPerRow;
+                long slot = firstSlot;
+                // 1. Length field
+                for (; slot < Math.min(rowEnd, LENGTH_BITS); slot++) {
+                    length = (length << 1) | getLsb(row, (int) (slot - firstSlot), channelBytes, reader.bytesPerPixel());
+                    if (slot == LENGTH_BITS - 1) {
+                        // Validate Length before allocating anything
+                        if (length <= 0 || length * 8L > capacity - LENGTH_BITS) {
+                            throw new Exception("No valid hidden message detected. (Invalid Length Header)");
+                        }
+                        message = new byte[length];
+                        requiredBits = LENGTH_BITS + length * 8L;
+                    }
+                }
+                // 2. Message bits
+                if (message != null) {
+                    sequentialRun(row, firstSlot, slot, Math.min(rowEnd, requiredBits), message, false,
+                            channelBytes, reader.bytesPerPixel());
+                }
+            }
+
+            if (message == null) {
+                throw new Exception("No valid hidden message detected. (Invalid Length Header)");
+            }
+            return message;
+        }
+    }
+
+    // ==================================================================================
+    // SCATTER LAYOUT (ImageSteganography)
+    // ==================================================================================
+
+    /**
+     * Fixed depths only; each slot whose inverse-permutation index is a payload group gets k bits.
+     */
+    public void embedScatter(File sourceFile, File destFile, byte[] message, boolean binary, EmbedDepth depth,
+                             String password) throws Exception {
+        embedScatter(sourceFile, destFile, ByteBuffer.wrap(message), binary ? StegoHeader.FLAG_BINARY_PAYLOAD : 0,
+                depth, password);
+    }
+
+    void embedScatter(File sourceFile, File destFile, ByteBuffer message, int payloadFlags, EmbedDepth depth,
+                      String password) throws Exception {
+        if (depth.isAdaptive()) {
+            throw new Exception("Adaptive depth needs the in-memory engine.");
+        }
+        try (PngRowReader reader = new PngRowReader(sourceFile);
+             PngRowWriter writer = openWriter(reader, destFile)) {
+
+            long capacity = capacity(reader);
+            int k = depth.bits();
+            long totalBits = message.limit() * 8L;
+            long groups = DepthWalk.slotsFor(totalBits, k);
+            int base = StegoHeader.AUTHENTICATED_SIZE_BITS;
+            if (base + groups > capacity) {
+                throw new Exception("Payload exceeds image capacity. Need " + totalBits + " bits, "
+                        + depth + " embedding holds " + Math.max(0, (capacity - base) * k) + ".");
+            }
+
+            ScatterKeystream keystream = ScatterKeystream.create(ScatterKeystream.ID_AES_CTR, password);
+            int flags = keystream.id() | payloadFlags;
+            StegoHeader header = StegoHeader.create(flags, depth, message.limit(), password);
+            ScatterPermutation scatter = new ScatterPermutation(capacity - base, keystream);
+
+            int[] channelBytes = channelBytes(reader);
+            byte[] row = new byte[reader.rowBytes()];
+            long slotsPerRow = (long) reader.width() * LsbRaster.CHANNELS;
+            TaskProgress progress = TaskProgress.current();
+            progress.begin("EMBED", (long) reader.rowBytes() * reader.height());
+
+            ScatterCursor cursor = new ScatterCursor(scatter, base, groups);
+            for (int y = 0; y < reader.height(); y++) {
+                reader.nextRow(row);
+
+                long firstSlot = y * slotsPerRow;
+                long rowEnd = firstSlot + slotsPerRow;
+                for (long slot = firstSlot; slot < rowEnd && slot < base; slot++) {
+                    setLsb(row, (int) (slot - firstSlot), channelBytes, reader.bytesPerPixel(), header.bit((int) slot));
+                }
+                for (; cursor.slot() < rowEnd; cursor.next()) {
+                    long offset = cursor.group() * k;
+                    int count = (int) Math.min(k, totalBits - offset);
+                    setBits(row, (int) (cursor.slot() - firstSlot), channelBytes, reader.bytesPerPixel(), count,
+                            PayloadBits.read(message, offset, count));
+                }
+                writer.writeRow(row);
+                progress.advance(row.length);
+            }
+            writer.finish(reader.finish());
+        }
+    }
+
+    /**
+     * Fast fail for the in-memory engine: decodes only the scanlines holding the 128 header bits
+     * and applies {@link StegoHeader#screen}. Other formats and PNG layouts are left to the full decode.
+     */
+    public void screenHeader(File sourceFile, String password) throws Exception {
+        PngRowReader.Header png;
+        try {
+            png = PngRowReader.Header.read(sourceFile);
+        } catch (IOException e) {
+            return;
+        }
+        if (png == null || !png.isStreamable()) {
+            return;
+        }
+        try (PngRowReader reader = new PngRowReader(sourceFile)) {
+            long capacity = capacity(reader);
+            if (capacity < StegoHeader.SIZE_BITS) {
+                return;
+            }
+            int[] channelBytes = channelBytes(reader);
+            byte[] row = new byte[reader.rowBytes()];
+            int slotsPerRow = reader.width() * LsbRaster.CHANNELS;
+
+            long[] words = new long[2];
+            int needed = (int) Math.min(StegoHeader.AUTHENTICATED_SIZE_BITS, capacity);
+            int slot = 0;
+            while (slot < needed) {
+                reader.nextRow(row);
+                for (int s = 0; s < slotsPerRow && slot < needed; s++, slot++) {
+                    words[slot >>> 6] = (words[slot >>> 6] << 1) | getLsb(row, s, channelBytes, reader.bytesPerPixel());
+                }
+            }
+            StegoHeader.screen(words[0], words[1], capacity, password);
+        }
+    }
+
+    /**
+     * Returns the payload, or null if the carrier has a legacy (unversioned) header or an
+     * adaptive depth, which need the in-memory path.
+     */
+    public StegoPayload extractScatter(File sourceFile, String password) throws Exception {
+        PayloadTarget target = PayloadTarget.heap();
+        return extractScatter(sourceFile, password, target) ? target.payload() : null;
+    }
+
+    /**
+     * Writes the payload into the target once the header is verified; false (nothing opened)
+     * for the carriers {@link #extractScatter(File, String)} returns null for.
+     */
+    boolean extractScatter(File sourceFile, String password, PayloadTarget target) throws Exception {
+        try (PngRowReader reader = new PngRowReader(sourceFile)) {
+            long capacity = capacity(reader);
+            int[] channelBytes = channelBytes(reader);
+            byte[] row = new byte[reader.rowBytes()];
+            long slotsPerRow = (long) reader.width() * LsbRaster.CHANNELS;
+
+            long headerBits = 0;
+            long tagBits = 0;
+            StegoHeader header = null;
+            int base = StegoHeader.SIZE_BITS;
+            long totalBits = 0;
+            long groups = 0;
+            int k = 1;
+            ByteBuffer message = null;
+            ScatterCursor cursor = null;
+            TaskProgress progress = TaskProgress.current();
+            progress.begin("EXTRACT", (long) reader.rowBytes() * reader.height());
+
+            for (int y = 0; y < reader.height(); y++) {
+                reader.nextRow(row);
+                progress.advance(row.length);
+
+                long firstSlot = y * slotsPerRow;
+                long rowEnd = firstSlot + slotsPerRow;
+                for (long slot = firstSlot; slot < rowEnd && slot < base; slot++) {
+                    int lsb = getLsb(row, (int) (slot - firstSlot), channelBytes, reader.bytesPerPixel());
+                    if (slot < StegoHeader.SIZE_BITS) {
+                        headerBits = (headerBits << 1) | lsb;
+                    } else {
+                        tagBits = (tagBits << 1) | lsb;
+                    }
+                    if (slot == 31 && !StegoHeader.isVersioned((int) headerBits)) {
+                        return false;
+                    }
+                    if (slot == StegoHeader.SIZE_BITS - 1) {
+                        header = StegoHeader.parse((int) (headerBits >>> 32), (int) headerBits);
+                        if (header.depth().isAdaptive()) {
+                            return false;
+                        }
+                        k = header.depth().bits();
+                        totalBits = header.length * 8L;
+                        groups = DepthWalk.slotsFor(totalBits, k);
+                        base = header.sizeBits();
+                        // Length bounds first: no tag read needed to reject garbage
+                        if (header.length < 0 || base + groups > capacity) {
+                            throw new Exception(StegoHeader.INVALID_HEADER);
+                        }
+                    }
+                    if (slot == base - 1) {
+                        header.verify(tagBits, password);
+                        target.accept(header.flags);
+                        message = target.open(header.length);
+                        ScatterKeystream keystream = ScatterKeystream.create(header.keystreamId(), password);
+                        cursor = new ScatterCursor(new ScatterPermutation(capacity - base, keystream), base, groups);
+                    }
+                }
+                if (cursor == null) {
+                    continue;
+                }
+                for (; cursor.slot() < rowEnd; cursor.next()) {
+                    long offset = cursor.group() * k;
+                    int count = (int) Math.min(k, totalBits - offset);
+                    PayloadBits.write(message, offset, count,
+                            getBits(row, (int) (cursor.slot() - firstSlot), channelBytes, reader.bytesPerPixel(), count));
+                }
+            }
+
+            if (message == null) {
+                throw new Exception("Carrier too small to hold a stego header.");
+            }
+            target.finish(header.isBinary());
+            return true;
+        }
+    }
+
+    // ==================================================================================
+    // SCATTER ORDER
+    // ==================================================================================
+
+    /**
+     * The payload bit-groups of a fixed-depth scatter in ascending slot order, for one pass over the rows.
+     * * LOGIC:
+     * - The slot range is cut into windows of about {@link #WINDOW_GROUPS} payload groups each. Loading
+     *   a window walks the forward permutation over the payload once, keeps the positions that fall in
+     *   it and sorts them, so the cost is payload x windows: a short message never sweeps the carrier.
+     * - Dense payloads, where that would cost about as much as one inverse per carrier slot, sweep the
+     *   inverse permutation instead (as {@link AudioSteganography} does).
+     */
+    private static final class ScatterCursor {
+
+        // Expected groups per window (8 MB of sort keys, 8 MB of group indexes)
+        private static final int WINDOW_GROUPS = 1 << 20;
+        // Batch index packed below the position in a sort key
+        private static final int INDEX_BITS = 22;
+        private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+        private final ScatterPermutation scatter;
+        private final long base;
+        private final long groups;
+        private final long domain;
+        private final boolean sweep;
+        private final long windowSlots;
+
+        private long[] keys;
+        private long[] batchGroups;
+        private int count;
+        private int next;
+        private long loadedTo;
+        private long position = -1;
+
+        private long slot;
+        private long group;
+
+        ScatterCursor(ScatterPermutation scatter, long base, long groups) {
+            this.scatter = scatter;
+            this.base = base;
+            this.groups = groups;
+            this.domain = scatter.domain();
+            long windows = Math.max(1, (groups + WINDOW_GROUPS - 1) / WINDOW_GROUPS);
+            // A window pass also filters and sorts: charge it twice against a plain sweep
+            this.sweep = 2.0 * windows * groups > domain;
+            this.windowSlots = (domain + windows - 1) / windows;
+            if (!sweep) {
+                int size = (int) Math.max(1, Math.min(groups, WINDOW_GROUPS + (WINDOW_GROUPS >> 3)));
+                this.keys = new long[size];
+                this.batchGroups = new long[size];
+            }
+            next();
+        }
+
+        /**
+         * Absolute slot of the current group; Long.MAX_VALUE once every group was visited.
+         */
+        long slot() {
+            return slot;
+        }
+
+        long group() {
+            return group;
+        }
+
+        void next() {
+            if (sweep) {
+                while (++position < domain) {
+                    long g = scatter.inverse(position);
+                    if (g < groups) {
+                        slot = base + position;
+                        group = g;
+                        return;
+                    }
+                }
+                slot = Long.MAX_VALUE;
+                return;
+            }
+            while (next == count) {
+                if (loadedTo >= domain) {
+                    slot = Long.MAX_VALUE;
+                    return;
+                }
+                load(loadedTo, Math.min(domain, loadedTo + windowSlots));
+            }
+            long key = keys[next++];
+            slot = base + (key >>> INDEX_BITS);
+            group = batchGroups[(int) (key & INDEX_MASK)];
+        }
+
+        private void load(long from, long to) {
+            count = 0;
+            next = 0;
+            for (long g = 0; g < groups; g++) {
+                long p = scatter.map(g);
+                if (p < from || p >= to) {
+                    continue;
+                }
+                if (count == keys.length) {
+                    // A window above its expected share: grow, bounded by the index bits
+                    int grown = (int) Math.min(1L << INDEX_BITS, 2L * keys.length);
+                    if (grown == keys.length) {
+                        throw new IllegalStateException("Scatter window overflow.");
+                    }
+                    keys = Arrays.copyOf(keys, grown);
+                    batchGroups = Arrays.copyOf(batchGroups, grown);
+                }
+                keys[count] = (p << INDEX_BITS) | count;
+                batchGroups[count] = g;
+                count++;
+            }
+            Arrays.sort(keys, 0, count);
+            loadedTo = to;
+        }
+    }
+
+    // ==================================================================================
+    // ROW KERNELS
+    // ==================================================================================
+
+    private PngRowWriter openWriter(PngRowReader reader, File destFile) throws IOException {
+        return new PngRowWriter(destFile, reader.width(), reader.height(), reader.bitDepth(),
+                reader.colorType(), reader.leadingChunks(), pngOptions);
+    }
+
+    private long capacity(PngRowReader reader) {
+        return (long) reader.width() * reader.height() * LsbRaster.CHANNELS;
+    }
+
+    /**
+     * Byte offset of the least significant byte of each slot channel (B, G, R) within a pixel.
+     * PNG stores samples as R, G, B(, A), big-endian.
+     */
+    private int[] channelBytes(PngRowReader reader) {
+        int bytesPerSample = reader.bitDepth() / 8;
+        int[] offsets = new int[LsbRaster.CHANNELS];
+        for (int c = 0; c < LsbRaster.CHANNELS; c++) {
+            offsets[c] = (LsbRaster.CHANNELS - 1 - c) * bytesPerSample + (bytesPerSample - 1);
+        }
+        return offsets;
+    }
+
+    /**
+     * Moves the message bits of slots [from, to) (all past the length field) into or out of one row.
+     * 8-bit RGB rows take whole 24-slot blocks through {@link LsbWords}; the rest goes bit by bit.
+     */
+    private static void sequentialRun(byte[] row, long rowSlot, long from, long to, byte[] message, boolean embed,
+                                      int[] channelBytes, int bytesPerPixel) {
+        long slot = from;
+        if (bytesPerPixel == LsbRaster.CHANNELS) {
+            long aligned = (slot + LsbWords.BLOCK_SLOTS - 1) / LsbWords.BLOCK_SLOTS * LsbWords.BLOCK_SLOTS;
+            sequentialBits(row, rowSlot, slot, Math.min(aligned, to), message, embed, channelBytes, bytesPerPixel);
+            slot = Math.min(aligned, to);
+
+            // Block starts are pixel and byte aligned: row byte = slot - rowSlot, payload byte = (slot - 32) / 8
+            int blocks = (int) ((to - slot) / LsbWords.BLOCK_SLOTS);
+            int index = (int) (slot - rowSlot);
+            int payload = (int) ((slot - LENGTH_BITS) >>> 3);
+            if (embed) {
+                LsbWords.putBlocks(row, index, true, message, payload, blocks);
+            } else {
+                LsbWords.getBlocks(row, index, true, message, payload, blocks);
+            }
+            slot += (long) blocks * LsbWords.BLOCK_SLOTS;
+        }
+        sequentialBits(row, rowSlot, slot, to, message, embed, channelBytes, bytesPerPixel);
+    }
+
+    private static void sequentialBits(byte[] row, long rowSlot, long from, long to, byte[] message, boolean embed,
+                                       int[] channelBytes, int bytesPerPixel) {
+        for (long slot = from; slot < to; slot++) {
+            int slotInRow = (int) (slot - rowSlot);
+            long bitIndex = slot - LENGTH_BITS;
+            if (embed) {
+                setLsb(row, slotInRow, channelBytes, bytesPerPixel, payloadBit(message, bitIndex));
+            } else {
+                int bit = getLsb(row, slotInRow, channelBytes, bytesPerPixel);
+                message[(int) (bitIndex >>> 3)] |= (byte) (bit << (7 - (bitIndex & 7)));
+            }
+        }
+    }
+
+    private static int payloadBit(byte[] message, long bitIndex) {
+        return (message[(int) (bitIndex >>> 3)] >>> (7 - (bitIndex & 7))) & 1;
+    }
+
+    private static int getLsb(byte[] row, int slotInRow, int[] channelBytes, int bytesPerPixel) {
+        int pixel = slotInRow / LsbRaster.CHANNELS;
+        return row[pixel * bytesPerPixel + channelBytes[slotInRow - pixel * LsbRaster.CHANNELS]] & 1;
+    }
+
+    private static void setLsb(byte[] row, int slotInRow, int[] channelBytes, int bytesPerPixel, int bit) {
+        int pixel = slotInRow / LsbRaster.CHANNELS;
+        int i = pixel * bytesPerPixel + channelBytes[slotInRow - pixel * LsbRaster.CHANNELS];
+        row[i] = (byte) ((row[i] & 0xFE) | bit);
+    }
+
+    private static int getBits(byte[] row, int slotInRow, int[] channelBytes, int bytesPerPixel, int count) {
+        int pixel = slotInRow / LsbRaster.CHANNELS;
+        return row[pixel * bytesPerPixel + channelBytes[slotInRow - pixel * LsbRaster.CHANNELS]] & ((1 << count) - 1);
+    }
+
+    private static void setBits(byte[] row, int slotInRow, int[] channelBytes, int bytesPerPixel, int count, int value) {
+        int pixel = slotInRow / LsbRaster.CHANNELS;
+        int i = pixel * bytesPerPixel + channelBytes[slotInRow - pixel * LsbRaster.CHANNELS];
+        row[i] = (byte) ((row[i] & ~((1 << count) - 1)) | value);
+    }
+}
\ No newline at end of file
@@ -1,71 +1,299 @@
 package src.main.steganography;
 
+import src.main.utils.TaskProgress;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.zip.CRC32;
 
 /**
  * Video Steganography Engine.
  * Implements EOF (End-Of-File) Injection.
  * * LOGIC:
  * 1. Finds the end of the original video file.
- * 2. Appends a unique SIGNATURE string.
- * 3. Appends the Encrypted Payload.
+ * 2. Appends the Encrypted Payload.
+ * 3. Appends a fixed-size FOOTER: [length 8][CRC32 4][version 1][flags 1][magic 8].
+ *    Flags bit 0 marks a raw binary payload (otherwise UTF-8 text), bit 1 a file payload
+ *    (streamed in and out in 1 MB chunks, any size).
+ * * FORMATS:
+ * - v1 (written by default): located with one positioned read of the footer.
+ * - v0: [SIGNATURE][payload] with no footer; found by a Boyer-Moore-Horspool
+ *   scan backwards over mapped windows.
  * * ADVANTAGE:
  * - Does not corrupt video playback (Players ignore data after EOF).
  * - Extremely fast compared to re-encoding video.
+ * * I/O: the container is never loaded. Embedding copies it channel-to-channel
+ * (or appends in place), extraction reads only the tail through positioned reads,
+ * so memory stays constant for recordings of any size.
+ * * Copies report to the thread's {@link TaskProgress} per 64 MB transfer step or 1 MB chunk.
  */
 public class VideoSteganography {
 
     // Unique signature to locate our data later
     private static final String EOF_SIGNATURE = "####SECURE_STEGO_EOF####";
 
+    // Footer appended after the payload (v1)
+    private static final byte[] FOOTER_MAGIC = "SSTGEOF1".getBytes(StandardCharsets.US_ASCII);
+    private static final int FOOTER_SIZE = 8 + 4 + 1 + 1 + FOOTER_MAGIC.length;
+    private static final int FOOTER_VERSION = 1;
+    private static final int FLAG_BINARY_PAYLOAD = 0x01;
+    private static final int FLAG_FILE_PAYLOAD = 0x02;
+
+    // Chunk size for streaming file payloads through the checksum
+    private static final int COPY_CHUNK = 1 << 20;
+    private static final long TRANSFER_STEP = 64L << 20;
+
+    // Mapped window searched per step when falling back to the legacy signature scan
+    private static final int SCAN_WINDOW = 64 << 20;
+
     // ==================================================================================
     // EMBEDDING LOGIC
     // ==================================================================================
 
     public void embedMessage(File sourceFile, File destFile, String message) throws Exception {
-        // 1. Prepare Data
-        byte[] videoBytes = readFile(sourceFile);
-        byte[] signatureBytes = EOF_SIGNATURE.getBytes(StandardCharsets.UTF_8);
-        byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+        embed(sourceFile, destFile, message.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Hides raw bytes (e.g. ciphertext) without any text encoding; flagged as binary in the footer.
+     */
+    public void embedBytes(File sourceFile, File destFile, byte[] payload) throws Exception {
+        embed(sourceFile, destFile, payload, true);
+    }
+
+    /**
+     * Appends the contents of a file (e.g. an encrypted file container) in 1 MB chunks;
+     * flagged so that only {@link #extractFile} restores it.
+     */
+    public void embedFile(File sourceFile, File destFile, File payloadFile) throws Exception {
+        try (FileChannel payload = FileChannel.open(payloadFile.toPath(), StandardOpenOption.READ)) {
+            embed(sourceFile, destFile, (channel, position) -> appendFilePayload(channel, position, payload));
+        }
+    }
+
+    private void embed(File sourceFile, File destFile, byte[] payload, boolean binary) throws Exception {
+        embed(sourceFile, destFile, (channel, position) -> appendPayload(channel, position, payload, binary));
+    }
+
+    /**
+     * Writes [PAYLOAD] + [FOOTER] at the given position of the output channel.
+     */
+    @FunctionalInterface
+    private interface Appender {
+        void append(FileChannel channel, long position) throws IOException;
+    }
+
+    private void embed(File sourceFile, File destFile, Appender appender) throws Exception {
+        // Same file chosen as output: append in place instead of copying onto itself
+        if (destFile.exists() && Files.isSameFile(sourceFile.toPath(), destFile.toPath())) {
+            try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.WRITE)) {
+                appender.append(channel, channel.size());
+            }
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(destFile.toPath(), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
 
-        // 2. Combine: [VIDEO] + [SIGNATURE] + [MESSAGE]
-        try (FileOutputStream fos = new FileOutputStream(destFile)) {
-            // Write original video
-            fos.write(videoBytes);
-            // Write Signature (Delimiter)
-            fos.write(signatureBytes);
-            // Write Payload
-            fos.write(messageBytes);
+            // 1. Copy the original video (kernel-side copy where the OS supports it)
+            TaskProgress progress = TaskProgress.current();
+            long size = in.size();
+            progress.begin("COPY CARRIER", size);
+            long copied = 0;
+            while (copied < size) {
+                long n = in.transferTo(copied, Math.min(TRANSFER_STEP, size - copied), out);
+                copied += n;
+                progress.advance(n);
+            }
+
+            // 2. Append [MESSAGE] + [FOOTER]
+            appender.append(out, size);
+        }
+    }
+
+    /**
+     * Appends the payload and footer to the end of an existing video without copying it.
+     */
+    public void embedInPlace(File videoFile, String message) throws Exception {
+        embed(videoFile, videoFile, message.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    private void appendPayload(FileChannel channel, long position, byte[] messageBytes, boolean binary) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(messageBytes);
+
+        ByteBuffer buffer = ByteBuffer.allocate(messageBytes.length + FOOTER_SIZE);
+        buffer.put(messageBytes)
+                .putLong(messageBytes.length)
+                .putInt((int) crc.getValue())
+                .put((byte) FOOTER_VERSION)
+                .put((byte) (binary ? FLAG_BINARY_PAYLOAD : 0))
+                .put(FOOTER_MAGIC)
+                .flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private void appendFilePayload(FileChannel channel, long position, FileChannel payload) throws IOException {
+        TaskProgress progress = TaskProgress.current();
+        progress.begin("EMBED", payload.size());
+        CRC32 crc = new CRC32();
+        ByteBuffer chunk = ByteBuffer.allocateDirect(COPY_CHUNK);
+        long length = 0;
+        while (payload.read(chunk, length) > 0) {
+            chunk.flip();
+            crc.update(chunk.duplicate());
+            writeFully(channel, position + length, chunk);
+            length += chunk.limit();
+            progress.advance(chunk.limit());
+            chunk.clear();
         }
+        writeFully(channel, position + length, footer(length, crc, FLAG_BINARY_PAYLOAD | FLAG_FILE_PAYLOAD));
+    }
+
+    private ByteBuffer footer(long length, CRC32 crc, int flags) {
+        return ByteBuffer.allocate(FOOTER_SIZE)
+                .putLong(length)
+                .putInt((int) crc.getValue())
+                .put((byte) FOOTER_VERSION)
+                .put((byte) flags)
+                .put(FOOTER_MAGIC)
+                .flip();
     }
 
     // ==================================================================================
     // EXTRACTION LOGIC
     // ==================================================================================
 
+    /**
+     * Returns the hidden payload as a String (binary payloads come back Base64-encoded).
+     */
     public String extractMessage(File sourceFile) throws Exception {
-        byte[] fileBytes = readFile(sourceFile);
+        return extractPayload(sourceFile).asText();
+    }
+
+    /**
+     * Returns the hidden payload bytes together with their text/binary format flag.
+     */
+    public StegoPayload extractPayload(File sourceFile) throws Exception {
+        try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            // 1. v1: the footer alone locates the payload
+            ByteBuffer footer = readFooter(channel);
+            if (footer != null) {
+                return readFooterPayload(channel, footer);
+            }
+
+            // 2. v0: fall back to the signature scan
+            return extractLegacy(channel);
+        }
+    }
+
+    /**
+     * Copies a payload hidden by {@link #embedFile} into {@code payloadFile} in 1 MB chunks,
+     * checking the CRC on the way (the output is deleted if it does not match).
+     */
+    public void extractFile(File sourceFile, File payloadFile) throws Exception {
+        try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer footer = readFooter(channel);
+            if (footer == null || (footer.get(13) & FLAG_FILE_PAYLOAD) == 0) {
+                throw new Exception("No hidden file found in this video.");
+            }
+            long length = footer.getLong(0);
+            long payloadStart = checkFooter(channel, footer);
+
+            TaskProgress progress = TaskProgress.current();
+            progress.begin("EXTRACT", length);
+            CRC32 crc = new CRC32();
+            ByteBuffer chunk = ByteBuffer.allocateDirect(COPY_CHUNK);
+            boolean complete = false;
+            try (FileChannel out = FileChannel.open(payloadFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (long done = 0; done < length; ) {
+                    chunk.clear().limit((int) Math.min(COPY_CHUNK, length - done));
+                    readFully(channel, payloadStart + done, chunk);
+                    chunk.flip();
+                    crc.update(chunk.duplicate());
+                    writeFully(out, done, chunk);
+                    done += chunk.limit();
+                    progress.advance(chunk.limit());
+                }
+                if ((int) crc.getValue() != footer.getInt(8)) {
+                    throw new Exception("Hidden data checksum mismatch (file damaged).");
+                }
+                complete = true;
+            } finally {
+                if (!complete) {
+                    Files.deleteIfExists(payloadFile.toPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * True if the file carries a v1 payload; costs a single read of the last few bytes.
+     */
+    public boolean hasHiddenData(File sourceFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            return readFooter(channel) != null;
+        }
+    }
+
+    private StegoPayload readFooterPayload(FileChannel channel, ByteBuffer footer) throws Exception {
+        long length = footer.getLong(0);
+        int checksum = footer.getInt(8);
+        int flags = footer.get(13) & 0xFF;
+
+        long payloadStart = checkFooter(channel, footer);
+        if ((flags & FLAG_FILE_PAYLOAD) != 0) {
+            throw new Exception("Video holds a hidden file, not a message. Extract it as a file.");
+        }
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new Exception("Corrupt hidden data footer.");
+        }
+
+        ByteBuffer messageBytes = ByteBuffer.allocate((int) length);
+        readFully(channel, payloadStart, messageBytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(messageBytes.array());
+        if ((int) crc.getValue() != checksum) {
+            throw new Exception("Hidden data checksum mismatch (file damaged).");
+        }
+        return new StegoPayload(messageBytes.array(), (flags & FLAG_BINARY_PAYLOAD) != 0);
+    }
+
+    private StegoPayload extractLegacy(FileChannel channel) throws Exception {
         byte[] signatureBytes = EOF_SIGNATURE.getBytes(StandardCharsets.UTF_8);
 
         // 1. Find the Signature Index (Scan from end to optimize speed)
-        int splitIndex = findSignatureIndex(fileBytes, signatureBytes);
+        long splitIndex = findSignatureIndex(channel, signatureBytes);
 
         if (splitIndex == -1) {
             throw new Exception("No hidden data signature found in this video.");
         }
 
         // 2. Extract everything AFTER the signature
-        int payloadStart = splitIndex + signatureBytes.length;
-        int payloadLength = fileBytes.length - payloadStart;
+        long payloadStart = splitIndex + signatureBytes.length;
+        long payloadLength = channel.size() - payloadStart;
 
         if (payloadLength <= 0) {
-            return ""; // Signature found, but empty message
+            return new StegoPayload(new byte[0], false); // Signature found, but empty message
+        }
+        if (payloadLength > Integer.MAX_VALUE - 8) {
+            throw new Exception("Hidden payload too large to load.");
         }
 
-        byte[] messageBytes = Arrays.copyOfRange(fileBytes, payloadStart, fileBytes.length);
-        return new String(messageBytes, StandardCharsets.UTF_8);
+        ByteBuffer messageBytes = ByteBuffer.allocate((int) payloadLength);
+        readFully(channel, payloadStart, messageBytes);
+        return new StegoPayload(messageBytes.array(), false);
     }
 
     // ==================================================================================
@@ -73,34 +301,98 @@ public class VideoSteganography {
     // ==================================================================================
 
     /**
-     * Scans the byte array to find the starting index of the Signature.
-     * Uses a reverse scan (end-to-start) because EOF data is usually at the end.
+     * Validates version and length of a v1 footer and returns the payload's start offset.
+     */
+    private long checkFooter(FileChannel channel, ByteBuffer footer) throws Exception {
+        long length = footer.getLong(0);
+        int version = footer.get(12) & 0xFF;
+        if (version != FOOTER_VERSION) {
+            throw new Exception("Unsupported hidden data version: " + version);
+        }
+        long payloadStart = channel.size() - FOOTER_SIZE - length;
+        if (length < 0 || payloadStart < 0) {
+            throw new Exception("Corrupt hidden data footer.");
+        }
+        return payloadStart;
+    }
+
+    /**
+     * Reads the last FOOTER_SIZE bytes; returns them if they end with the footer magic, else null.
+     */
+    private ByteBuffer readFooter(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < FOOTER_SIZE) {
+            return null;
+        }
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        readFully(channel, size - FOOTER_SIZE, footer);
+        byte[] magic = Arrays.copyOfRange(footer.array(), FOOTER_SIZE - FOOTER_MAGIC.length, FOOTER_SIZE);
+        return Arrays.equals(magic, FOOTER_MAGIC) ? footer : null;
+    }
+
+    /**
+     * Finds the starting offset of the last Signature in the file.
+     * Maps fixed-size windows backwards from the end (overlapping by one signature
+     * length) and searches each with a reverse Boyer-Moore-Horspool scan, which skips
+     * up to a whole signature length per comparison instead of advancing byte by byte.
      */
-    private int findSignatureIndex(byte[] data, byte[] signature) {
-        // Naive search (Knuth-Morris-Pratt is overkill for this size)
-        for (int i = data.length - signature.length; i >= 0; i--) {
-            boolean match = true;
-            for (int j = 0; j < signature.length; j++) {
-                if (data[i + j] != signature[j]) {
-                    match = false;
-                    break;
+    private long findSignatureIndex(FileChannel channel, byte[] signature) throws IOException {
+        int m = signature.length;
+        int[] shift = reverseShiftTable(signature);
+
+        long end = channel.size();
+        while (end >= m) {
+            long start = Math.max(0, end - SCAN_WINDOW);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+
+            // Align the pattern at the end and slide it towards the start
+            int i = (int) (end - start) - m;
+            while (i >= 0) {
+                int j = 0;
+                while (j < m && window.get(i + j) == signature[j]) {
+                    j++;
+                }
+                if (j == m) {
+                    return start + i;
                 }
+                i -= shift[window.get(i) & 0xFF];
             }
-            if (match) {
-                return i;
+
+            if (start == 0) {
+                break;
             }
+            // Keep m - 1 bytes of overlap so a match across windows is not lost
+            end = start + m - 1;
         }
         return -1; // Not found
     }
 
-    private byte[] readFile(File file) throws IOException {
-        // Warning: Java arrays are max 2GB. For 4K videos, use RandomAccessFile instead.
-        // For B.Tech Project level, standard IO is acceptable.
-        if (file.length() > Integer.MAX_VALUE) {
-            throw new IOException("File too large (Max 2GB supported in this version).");
+    /**
+     * Horspool table for a right-to-left scan: distance from the leftmost occurrence
+     * of each byte in signature[1..m-1] back to the pattern start (m if absent).
+     */
+    private int[] reverseShiftTable(byte[] signature) {
+        int[] shift = new int[256];
+        Arrays.fill(shift, signature.length);
+        for (int j = signature.length - 1; j >= 1; j--) {
+            shift[signature[j] & 0xFF] = j;
+        }
+        return shift;
+    }
+
+    private void writeFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
         }
-        try (FileInputStream fis = new FileInputStream(file)) {
-            return fis.readAllBytes();
+    }
+
+    private void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of video file.");
+            }
+            position += n;
         }
     }
 }
\ No newline at end of file
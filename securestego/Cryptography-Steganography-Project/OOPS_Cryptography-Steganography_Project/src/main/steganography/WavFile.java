@@ -0,0 +1,208 @@
+package src.main.steganography;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * RIFF/WAVE Layout Parser.
+ * Walks the chunk list instead of assuming the canonical 44-byte header, so LIST / fact / cue
+ * chunks before or after the audio are located and left untouched.
+ * * LOGIC:
+ * 1. Validates the "RIFF....WAVE" preamble (little-endian; RIFX and RF64 are rejected).
+ * 2. Reads chunk headers only (id + size, padded to even length) until "fmt " and "data" are found.
+ * 3. Derives the sample container size from blockAlign / channels and the offset of the
+ *    least significant byte inside each (little-endian) sample.
+ * * FORMATS:
+ * - PCM integer: 8 (unsigned), 16, 24 and 32 bit.
+ * - IEEE float: 32 and 64 bit (LSB of the mantissa).
+ * - WAVE_FORMAT_EXTENSIBLE wrapping either of the above.
+ */
+public final class WavFile {
+
+    public static final int FORMAT_PCM = 0x0001;
+    public static final int FORMAT_IEEE_FLOAT = 0x0003;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private static final int CHUNK_HEADER = 8;
+
+    private final int format;
+    private final int channels;
+    private final int sampleRate;
+    private final int bitsPerSample;
+    private final int bytesPerSample;
+    private final int lsbOffset;
+    private final long dataOffset;
+    private final long dataLength;
+
+    private WavFile(int format, int channels, int sampleRate, int bitsPerSample, int bytesPerSample,
+                    int lsbOffset, long dataOffset, long dataLength) {
+        this.format = format;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.bitsPerSample = bitsPerSample;
+        this.bytesPerSample = bytesPerSample;
+        this.lsbOffset = lsbOffset;
+        this.dataOffset = dataOffset;
+        this.dataLength = dataLength;
+    }
+
+    public static WavFile parse(File file) throws Exception {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return parse(channel);
+        }
+    }
+
+    public static WavFile parse(FileChannel channel) throws Exception {
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+
+        // 1. RIFF preamble
+        if (readFully(channel, header, 0) < 12 || !"RIFF".equals(fourCC(header, 0)) || !"WAVE".equals(fourCC(header, 8))) {
+            throw new Exception("Not a RIFF/WAVE audio file.");
+        }
+
+        // 2. Chunk walk
+        ByteBuffer fmt = null;
+        long dataOffset = -1;
+        long dataLength = 0;
+        long position = 12;
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (position + CHUNK_HEADER <= fileSize && (fmt == null || dataOffset < 0)) {
+            if (readFully(channel, chunk, position) < CHUNK_HEADER) {
+                break;
+            }
+            String id = fourCC(chunk, 0);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + CHUNK_HEADER;
+
+            if ("fmt ".equals(id)) {
+                if (size < 16) {
+                    throw new Exception("Corrupt WAV fmt chunk (" + size + " bytes).");
+                }
+                fmt = ByteBuffer.allocate((int) Math.min(size, 40)).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, fmt, body);
+            } else if ("data".equals(id)) {
+                dataOffset = body;
+                // Streaming writers leave 0 / 0xFFFFFFFF here; trust the file size instead
+                dataLength = (size == 0 || body + size > fileSize) ? fileSize - body : size;
+            }
+            position = body + size + (size & 1);
+        }
+        if (fmt == null) {
+            throw new Exception("WAV file has no fmt chunk.");
+        }
+        if (dataOffset < 0) {
+            throw new Exception("WAV file has no data chunk.");
+        }
+
+        // 3. Sample layout
+        int format = fmt.getShort(0) & 0xFFFF;
+        int channels = fmt.getShort(2) & 0xFFFF;
+        int sampleRate = fmt.getInt(4);
+        int blockAlign = fmt.getShort(12) & 0xFFFF;
+        int bitsPerSample = fmt.getShort(14) & 0xFFFF;
+        int validBits = bitsPerSample;
+        if (format == FORMAT_EXTENSIBLE && fmt.capacity() >= 26) {
+            validBits = fmt.getShort(18) & 0xFFFF;
+            format = fmt.getShort(24) & 0xFFFF; // First two bytes of the sub-format GUID
+        }
+        if (channels == 0 || blockAlign == 0 || blockAlign % channels != 0) {
+            throw new Exception("Corrupt WAV fmt chunk (channels=" + channels + ", blockAlign=" + blockAlign + ").");
+        }
+        int bytesPerSample = blockAlign / channels;
+        boolean supported = (format == FORMAT_PCM && bytesPerSample >= 1 && bytesPerSample <= 4)
+                || (format == FORMAT_IEEE_FLOAT && (bytesPerSample == 4 || bytesPerSample == 8));
+        if (!supported) {
+            throw new Exception("Unsupported WAV encoding (format 0x" + Integer.toHexString(format)
+                    + ", " + bitsPerSample + "-bit). Use uncompressed PCM or float audio.");
+        }
+
+        // Valid bits are left-justified in the container: skip whole padding bytes
+        int padding = validBits > 0 && validBits < bytesPerSample * 8 ? (bytesPerSample * 8 - validBits) / 8 : 0;
+        long wholeSamples = dataLength - dataLength % bytesPerSample;
+        return new WavFile(format, channels, sampleRate, bitsPerSample, bytesPerSample, padding, dataOffset, wholeSamples);
+    }
+
+    // ==================================================================================
+    // LAYOUT
+    // ==================================================================================
+
+    public int format() {
+        return format;
+    }
+
+    public boolean isFloat() {
+        return format == FORMAT_IEEE_FLOAT;
+    }
+
+    public int channels() {
+        return channels;
+    }
+
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    public int bitsPerSample() {
+        return bitsPerSample;
+    }
+
+    /**
+     * Container size of one sample of one channel.
+     */
+    public int bytesPerSample() {
+        return bytesPerSample;
+    }
+
+    /**
+     * Offset of the least significant byte inside a sample container.
+     */
+    public int lsbOffset() {
+        return lsbOffset;
+    }
+
+    /**
+     * File offset of the first sample.
+     */
+    public long dataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * Length of the sample data, trimmed to whole samples.
+     */
+    public long dataLength() {
+        return dataLength;
+    }
+
+    /**
+     * Number of samples over all channels; one LSB is available per sample.
+     */
+    public long sampleCount() {
+        return dataLength / bytesPerSample;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    private static String fourCC(ByteBuffer buffer, int offset) {
+        byte[] id = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            id[i] = buffer.get(offset + i);
+        }
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
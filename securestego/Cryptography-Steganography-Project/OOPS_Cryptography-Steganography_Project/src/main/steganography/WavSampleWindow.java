@@ -0,0 +1,110 @@
+package src.main.steganography;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sliding memory map over the samples of a WAV data chunk.
+ * Only one window (a whole number of samples) is mapped at a time, so carriers of any size
+ * are processed without loading them. Callers visit samples in ascending order per pass,
+ * which turns every pass into one sequential sweep of the file.
+ */
+final class WavSampleWindow {
+
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final WavFile wav;
+    private final int stride;
+    private final int lsb;
+    private final long windowSamples;
+
+    private MappedByteBuffer buffer;
+    private long firstSample = -1;
+    private long endSample = -1;
+
+    WavSampleWindow(FileChannel channel, WavFile wav, FileChannel.MapMode mode, long windowBytes) {
+        this.channel = channel;
+        this.mode = mode;
+        this.wav = wav;
+        this.stride = wav.bytesPerSample();
+        this.lsb = wav.lsbOffset();
+        this.windowSamples = Math.max(StegoHeader.SIZE_BITS, Math.min(windowBytes, Integer.MAX_VALUE) / stride);
+    }
+
+    /**
+     * True if the whole data chunk fits in one window (random access costs nothing extra).
+     */
+    boolean isSingleWindow() {
+        return wav.sampleCount() <= windowSamples;
+    }
+
+    int getLsb(long sample) throws IOException {
+        return buffer(sample).get(index(sample)) & 1;
+    }
+
+    void setLsb(long sample, int bit) throws IOException {
+        MappedByteBuffer data = buffer(sample);
+        int index = index(sample);
+        data.put(index, (byte) ((data.get(index) & 0xFE) | bit));
+    }
+
+    int getBits(long sample, int count) throws IOException {
+        return buffer(sample).get(index(sample)) & ((1 << count) - 1);
+    }
+
+    void setBits(long sample, int count, int value) throws IOException {
+        MappedByteBuffer data = buffer(sample);
+        int index = index(sample);
+        data.put(index, (byte) ((data.get(index) & ~((1 << count) - 1)) | value));
+    }
+
+    /**
+     * Sample level on a signed 16-bit scale, built only from bits the embedding never changes
+     * (everything above the low {@code depthBits} of the least significant byte).
+     */
+    int stableLevel(long sample, int depthBits) throws IOException {
+        MappedByteBuffer data = buffer(sample);
+        int base = (int) (sample - firstSample) * stride;
+        if (stride == 1) {
+            // 8-bit PCM is unsigned
+            return ((data.get(base) & (0xFF << depthBits) & 0xFF) - 128) << 8;
+        }
+        if (wav.isFloat()) {
+            long bits = 0;
+            for (int i = stride - 1; i >= 0; i--) {
+                bits = (bits << 8) | (i == lsb ? 0 : data.get(base + i) & 0xFF);
+            }
+            double value = stride == 4 ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+            return (int) Math.max(-32768, Math.min(32767, value * 32767));
+        }
+        // Integer PCM, little-endian: the top two bytes (the top one alone for 16-bit, whose low byte is written)
+        int high = data.get(base + stride - 1) << 8;
+        return stride == 2 || stride - 2 == lsb ? high : high | (data.get(base + stride - 2) & 0xFF);
+    }
+
+    /**
+     * Writes back the current window (write mode only).
+     */
+    void flush() {
+        if (buffer != null && mode == FileChannel.MapMode.READ_WRITE) {
+            buffer.force();
+        }
+    }
+
+    private int index(long sample) {
+        return (int) (sample - firstSample) * stride + lsb;
+    }
+
+    private MappedByteBuffer buffer(long sample) throws IOException {
+        if (sample < firstSample || sample >= endSample) {
+            flush();
+            long first = sample - sample % windowSamples;
+            long end = Math.min(first + windowSamples, wav.sampleCount());
+            buffer = channel.map(mode, wav.dataOffset() + first * stride, (end - first) * stride);
+            firstSample = first;
+            endSample = end;
+        }
+        return buffer;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,9 @@
 package src.main.ui;
 
+import src.main.service.CarrierInfo;
+import src.main.steganography.EmbedDepth;
 import src.main.utils.Config;
+import src.main.utils.TaskProgress;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
@@ -11,8 +14,7 @@ import java.awt.*;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.dnd.*;
 import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -21,12 +23,15 @@ import java.util.List;
  * - Fixed Capacity Meter sync for Drag-and-Drop and File Chooser.
  * - Implemented Float-based precision for small payload detection.
  * - Improved vertical spacing and centered component alignment.
+ * - Live task readout (stage, percent, MB/s, ETA) refreshed by a Swing timer, with a cancel button.
+ * - Terminal lines go through {@link LogSink}: any thread may log, the EDT receives batched appends.
  */
 public class AppUI extends JFrame {
 
     private JPasswordField passwordField;
     private JTextArea messageArea;
     private JTextArea systemLog;
+    private LogSink logSink;
     private JProgressBar capacityMeter;
     private JCheckBox decoyModeCheck;
     private JLabel capacityLabel;
@@ -35,6 +40,13 @@ public class AppUI extends JFrame {
 
     private File droppedFile;
 
+    // Running operations, newest last; polled on the EDT, engines never call into Swing
+    private final List<TaskProgress> activeTasks = new ArrayList<>();
+    private final Timer taskTimer = new Timer(TASK_REFRESH_MS, e -> refreshTask());
+    private JProgressBar taskBar;
+    private JLabel taskLabel;
+    private JButton cancelBtn;
+
     private JButton encryptBtn, decryptBtn;
     private JButton hideImgBtn, extractImgBtn, hideAudBtn, extractAudBtn, hideVidBtn, extractVidBtn;
 
@@ -42,6 +54,7 @@ public class AppUI extends JFrame {
     private static final Font LARGE_FONT = new Font("Consolas", Font.BOLD, 20);
     private static final Font MEDIUM_FONT = new Font("Consolas", Font.PLAIN, 16);
     private static final Font TERMINAL_FONT = new Font("Lucida Console", Font.PLAIN, 14);
+    private static final int TASK_REFRESH_MS = 250;
 
     public AppUI() {
         setTitle(Config.APP_TITLE);
@@ -230,20 +243,106 @@ public class AppUI extends JFrame {
 
         DefaultCaret caret = (DefaultCaret) systemLog.getCaret();
         caret.setUpdatePolicy(DefaultCaret.ALWAYS_UPDATE);
+        logSink = new LogSink(systemLog);
 
         JScrollPane scroll = new JScrollPane(systemLog);
         scroll.setBorder(null);
         scroll.setPreferredSize(new Dimension(1200, 250));
 
+        p.add(createTaskStrip(), BorderLayout.NORTH);
         p.add(scroll, BorderLayout.CENTER);
         return p;
     }
 
+    private JPanel createTaskStrip() {
+        JPanel p = new JPanel(new BorderLayout(15, 0));
+        p.setOpaque(false);
+        p.setBorder(new EmptyBorder(5, 15, 5, 15));
+
+        taskLabel = new JLabel("NO ACTIVE OPERATION");
+        taskLabel.setForeground(Config.NEON_CYAN);
+        taskLabel.setFont(MEDIUM_FONT);
+        taskLabel.setPreferredSize(new Dimension(520, 30));
+
+        taskBar = new JProgressBar(0, 1000);
+        taskBar.setForeground(Config.NEON_GREEN);
+        taskBar.setBackground(new Color(20, 20, 30));
+        taskBar.setBorderPainted(false);
+
+        cancelBtn = createNeonBtn("CANCEL", false);
+        cancelBtn.setPreferredSize(new Dimension(140, 30));
+        cancelBtn.setEnabled(false);
+        cancelBtn.addActionListener(e -> cancelTasks());
+
+        p.add(taskLabel, BorderLayout.WEST);
+        p.add(taskBar, BorderLayout.CENTER);
+        p.add(cancelBtn, BorderLayout.EAST);
+        return p;
+    }
+
+    // --- TASK READOUT ---
+
+    /**
+     * Shows an operation in the task strip until {@link #untrackTask}; call on the EDT.
+     */
+    public void trackTask(TaskProgress progress) {
+        activeTasks.add(progress);
+        cancelBtn.setEnabled(true);
+        refreshTask();
+        taskTimer.start();
+    }
+
+    public void untrackTask(TaskProgress progress) {
+        activeTasks.remove(progress);
+        refreshTask();
+    }
+
+    private void cancelTasks() {
+        for (TaskProgress progress : activeTasks) {
+            progress.cancel();
+        }
+        log("CANCELLATION REQUESTED...");
+        cancelBtn.setEnabled(false);
+    }
+
+    /**
+     * Timer tick: reads the newest operation's counters (no locks, no engine callbacks).
+     */
+    private void refreshTask() {
+        if (activeTasks.isEmpty()) {
+            taskTimer.stop();
+            taskBar.setIndeterminate(false);
+            taskBar.setValue(0);
+            taskLabel.setText("NO ACTIVE OPERATION");
+            cancelBtn.setEnabled(false);
+            return;
+        }
+        TaskProgress progress = activeTasks.get(activeTasks.size() - 1);
+        double fraction = progress.fraction();
+        taskBar.setIndeterminate(fraction < 0);
+        taskBar.setValue(fraction < 0 ? 0 : (int) (fraction * 1000));
+
+        String text = progress.isCancelled() ? "CANCELLING..." : progress.toString();
+        if (activeTasks.size() > 1) {
+            text += " (+" + (activeTasks.size() - 1) + " MORE)";
+        }
+        taskLabel.setText(text);
+    }
+
     // --- LOGIC REFINEMENT ---
 
+    /**
+     * Thread-safe and non-blocking; the line reaches the terminal within one drain interval.
+     */
     public void log(String message) {
-        String ts = new SimpleDateFormat("HH:mm:ss").format(new Date());
-        systemLog.append("[" + ts + "] » " + message.toUpperCase() + "\n");
+        logSink.log(message);
+    }
+
+    /**
+     * Mirrors the terminal into a JSON-lines file (null to stop).
+     */
+    public void setLogFile(File file) {
+        logSink.setFileLog(file);
     }
 
     public void setStatus(String message) { log(message); }
@@ -279,8 +378,7 @@ public class AppUI extends JFrame {
     private void updateCapacity() {
         String text = messageArea.getText();
         if (droppedFile != null && !text.isEmpty()) {
-            // LSB standard: 1 bit per carrier byte. Available capacity = file length / 8.
-            float maxChars = (float) droppedFile.length() / 8.0f;
+            float maxChars = carrierCapacity(droppedFile);
             float currentChars = (float) text.length();
 
             // Calculate float percentage
@@ -307,6 +405,19 @@ public class AppUI extends JFrame {
         }
     }
 
+    /**
+     * Payload bytes the carrier can hold at 1 bit per channel / sample, from the cached header figures
+     * ({@link CarrierInfo}). Video payloads are appended, so they never fill the meter.
+     */
+    private float carrierCapacity(File file) {
+        try {
+            return Math.max(1, CarrierInfo.shared().capacityBytes(file, EmbedDepth.ONE_BIT));
+        } catch (Exception e) {
+            // Unreadable carrier: fall back to 1 bit per carrier byte
+            return Math.max(1, file.length() / 8.0f);
+        }
+    }
+
     private void styleComponent(JComponent c) {
         c.setBackground(new Color(15, 15, 25));
         c.setForeground(Config.NEON_CYAN);
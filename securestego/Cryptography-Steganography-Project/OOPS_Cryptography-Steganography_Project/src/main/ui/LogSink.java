@@ -0,0 +1,222 @@
+package src.main.ui;
+
+import src.main.utils.JsonUtils;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * TERMINAL LOG PIPELINE.
+ * Decouples the threads that log from the Swing terminal.
+ * * LOGIC:
+ * 1. {@link #log} stores (time, thread, message) in a bounded lock-free ring (one CAS per line) and returns;
+ *    when the ring is full the line is counted as dropped instead of blocking the worker.
+ * 2. A daemon drain thread empties the ring every {@link #DRAIN_INTERVAL_MS} ms, formats the lines
+ *    (cached {@link DateTimeFormatter}), appends them to the optional file log, and hands the batch
+ *    to the EDT as one append. While a batch is still queued on the EDT, new lines join the next one.
+ * 3. The terminal document is capped at {@link #MAX_DOCUMENT_CHARS}; the oldest whole lines are trimmed.
+ * * FILE LOG (off unless configured): one JSON object per line: {"ts", "thread", "msg"}.
+ */
+public final class LogSink {
+
+    public static final int RING_CAPACITY = 1 << 13;
+    public static final long DRAIN_INTERVAL_MS = 100;
+    public static final int MAX_DOCUMENT_CHARS = 200_000;
+
+    private static final DateTimeFormatter TERMINAL_TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    private final JTextArea terminal;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Multi-producer ring: producers claim a ticket by CAS on head, the drain thread owns tail
+    private final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(RING_CAPACITY);
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicBoolean appendQueued = new AtomicBoolean();
+    private final ScheduledExecutorService drainer;
+
+    // Drain thread only
+    private StringBuilder pending = new StringBuilder();
+    private BufferedWriter fileLog;
+
+    public LogSink(JTextArea terminal) {
+        this.terminal = terminal;
+        this.drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "log-drain");
+            t.setDaemon(true);
+            return t;
+        });
+        drainer.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Also writes every line to {@code file} (appended; null turns the file log off).
+     */
+    public void setFileLog(File file) {
+        drainer.execute(() -> {
+            closeFileLog();
+            if (file == null) {
+                return;
+            }
+            try {
+                fileLog = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                pending.append(terminalLine(System.currentTimeMillis(), "LOG FILE UNAVAILABLE: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Queues a line from any thread; never blocks and never touches Swing.
+     */
+    public void log(String message) {
+        Entry entry = new Entry(System.currentTimeMillis(), Thread.currentThread().getName(), String.valueOf(message));
+        while (true) {
+            long ticket = head.get();
+            if (ticket - tail.get() >= RING_CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (head.compareAndSet(ticket, ticket + 1)) {
+                ring.set((int) (ticket & (RING_CAPACITY - 1)), entry);
+                return;
+            }
+        }
+    }
+
+    public long droppedLines() {
+        return dropped.get();
+    }
+
+    // ==================================================================================
+    // DRAIN (log-drain thread)
+    // ==================================================================================
+
+    private void drain() {
+        try {
+            // 1. Take every published entry (a claimed but unpublished slot ends the pass)
+            long t = tail.get();
+            while (true) {
+                int index = (int) (t & (RING_CAPACITY - 1));
+                Entry entry = ring.get(index);
+                if (entry == null) {
+                    break;
+                }
+                ring.set(index, null);
+                tail.set(++t);
+                pending.append(terminalLine(entry.millis, entry.message));
+                writeFileLog(entry);
+            }
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                pending.append(terminalLine(System.currentTimeMillis(), "LOG OVERFLOW: " + lost + " LINES DROPPED"));
+            }
+            if (fileLog != null) {
+                fileLog.flush();
+            }
+
+            // Lines beyond the document cap would be trimmed on arrival: keep only the newest
+            if (pending.length() > MAX_DOCUMENT_CHARS) {
+                int from = pending.indexOf("\n", pending.length() - MAX_DOCUMENT_CHARS);
+                pending.delete(0, from + 1);
+            }
+
+            // 2. One EDT append per interval at most; a queued append means the EDT is busy
+            if (pending.length() > 0 && appendQueued.compareAndSet(false, true)) {
+                String batch = pending.toString();
+                pending = new StringBuilder();
+                SwingUtilities.invokeLater(() -> {
+                    appendQueued.set(false);
+                    append(batch);
+                });
+            }
+        } catch (IOException e) {
+            closeFileLog();
+            pending.append(terminalLine(System.currentTimeMillis(), "LOG FILE DISABLED: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            // A failed pass must not cancel the schedule
+            pending.append(terminalLine(System.currentTimeMillis(), "LOG ERROR: " + e));
+        }
+    }
+
+    private String terminalLine(long millis, String message) {
+        return "[" + TERMINAL_TIME.format(LocalTime.ofInstant(Instant.ofEpochMilli(millis), zone)) + "] » "
+                + message.toUpperCase() + "\n";
+    }
+
+    private void writeFileLog(Entry entry) throws IOException {
+        if (fileLog == null) {
+            return;
+        }
+        fileLog.write("{\"ts\":\"" + FILE_TIME.format(Instant.ofEpochMilli(entry.millis).atZone(zone))
+                + "\",\"thread\":" + JsonUtils.quote(entry.thread) + ",\"msg\":" + JsonUtils.quote(entry.message) + "}\n");
+    }
+
+    private void closeFileLog() {
+        if (fileLog != null) {
+            try {
+                fileLog.close();
+            } catch (IOException e) {
+                // Nothing left to report to
+            }
+            fileLog = null;
+        }
+    }
+
+    // ==================================================================================
+    // TERMINAL (EDT)
+    // ==================================================================================
+
+    /**
+     * Appends a batch and trims the oldest whole lines once the document exceeds its cap
+     * (down to three quarters, so trimming is not repeated on every batch).
+     */
+    private void append(String batch) {
+        terminal.append(batch);
+        Document doc = terminal.getDocument();
+        int excess = doc.getLength() - MAX_DOCUMENT_CHARS;
+        if (excess <= 0) {
+            return;
+        }
+        try {
+            int cut = excess + MAX_DOCUMENT_CHARS / 4;
+            int lineEnd = terminal.getLineEndOffset(terminal.getLineOfOffset(Math.min(cut, doc.getLength() - 1)));
+            doc.remove(0, Math.min(lineEnd, doc.getLength()));
+        } catch (BadLocationException e) {
+            terminal.setText("");
+        }
+    }
+
+    private static final class Entry {
+        private final long millis;
+        private final String thread;
+        private final String message;
+
+        Entry(long millis, String thread, String message) {
+            this.millis = millis;
+            this.thread = thread;
+            this.message = message;
+        }
+    }
+}
\ No newline at end of file
@@ -3,11 +3,176 @@ package src.main.utils;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
+/**
+ * Payload compression.
+ * * FORMATS:
+ * - Envelope (pack/unpack): [0xC0][codec 1][original length 4][body], applied before
+ *   encryption so the codec choice travels inside the authenticated ciphertext.
+ *   0xC0 never starts valid UTF-8, so plain text payloads are passed through unchanged.
+ * - GZIP (compress/decompress): kept for callers of the original API.
+ * * CODEC SELECTION (pack):
+ * 1. Tiny payloads are stored (bare, without the envelope).
+ * 2. A few slices of the payload are test-compressed; incompressible data is stored.
+ * 3. Large payloads use the LZ block codec (speed), the rest Deflate at a size-based level.
+ */
 public class CompressionUtils {
 
+    public static final int CODEC_STORE = 0;
+    public static final int CODEC_DEFLATE = 1;
+    public static final int CODEC_LZ = 2;
+
+    private static final byte ENVELOPE_MAGIC = (byte) 0xC0;
+    private static final int ENVELOPE_HEADER = 6;
+
+    // Selection thresholds
+    private static final int MIN_COMPRESS_SIZE = 64;
+    private static final int SAMPLE_SLICE = 4096;
+    private static final double STORE_RATIO = 0.92;
+    private static final int LZ_THRESHOLD = 1 << 20;
+    private static final int SMALL_PAYLOAD = 64 << 10;
+
+    // Codec state is reused per thread instead of being allocated per payload
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[64 << 10]);
+
+    // ==================================================================================
+    // ENVELOPE (ADAPTIVE CODEC)
+    // ==================================================================================
+
+    /**
+     * Compresses with the codec chosen from a sample of the payload and wraps it in the envelope.
+     * Payloads that would be stored are returned bare (no 6-byte overhead) unless they could be
+     * mistaken for an envelope.
+     */
+    public static byte[] pack(byte[] data) {
+        int codec = chooseCodec(data);
+        if (codec == CODEC_STORE && (data.length == 0 || data[0] != ENVELOPE_MAGIC)) {
+            return data;
+        }
+        return pack(data, codec, data.length < SMALL_PAYLOAD ? Deflater.BEST_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Wraps the payload with an explicit codec (level applies to Deflate only).
+     * Falls back to STORE if the codec does not make the payload smaller.
+     */
+    public static byte[] pack(byte[] data, int codec, int level) {
+        byte[] body;
+        switch (codec) {
+            case CODEC_DEFLATE -> body = deflate(data, 0, data.length, level);
+            case CODEC_LZ -> body = LzBlockCodec.compress(data);
+            case CODEC_STORE -> body = data;
+            default -> throw new IllegalArgumentException("Unknown codec: " + codec);
+        }
+        if (codec != CODEC_STORE && body.length >= data.length) {
+            codec = CODEC_STORE;
+            body = data;
+        }
+
+        return ByteBuffer.allocate(ENVELOPE_HEADER + body.length)
+                .put(ENVELOPE_MAGIC)
+                .put((byte) codec)
+                .putInt(data.length)
+                .put(body)
+                .array();
+    }
+
+    /**
+     * Restores an enveloped payload; anything without the envelope is returned as-is.
+     */
+    public static byte[] unpack(byte[] data) throws Exception {
+        if (!isPacked(data)) {
+            return data;
+        }
+        int codec = data[1];
+        int originalLength = ByteBuffer.wrap(data, 2, 4).getInt();
+        int bodyLength = data.length - ENVELOPE_HEADER;
+        if (originalLength < 0) {
+            throw new Exception("Corrupt compression envelope.");
+        }
+
+        switch (codec) {
+            case CODEC_STORE:
+                if (bodyLength != originalLength) {
+                    throw new Exception("Corrupt compression envelope.");
+                }
+                byte[] stored = new byte[originalLength];
+                System.arraycopy(data, ENVELOPE_HEADER, stored, 0, originalLength);
+                return stored;
+            case CODEC_DEFLATE:
+                return inflate(data, ENVELOPE_HEADER, bodyLength, originalLength);
+            case CODEC_LZ:
+                return LzBlockCodec.decompress(data, ENVELOPE_HEADER, bodyLength, originalLength);
+            default:
+                throw new Exception("Unsupported compression codec: " + codec);
+        }
+    }
+
+    public static boolean isPacked(byte[] data) {
+        return data != null && data.length >= ENVELOPE_HEADER && data[0] == ENVELOPE_MAGIC;
+    }
+
+    /**
+     * Codec name of an enveloped payload, for the terminal log.
+     */
+    public static String codecName(byte[] packed) {
+        if (!isPacked(packed)) {
+            return "NONE";
+        }
+        return codecName(packed[1]);
+    }
+
+    public static String codecName(int codec) {
+        return switch (codec) {
+            case CODEC_STORE -> "STORE";
+            case CODEC_DEFLATE -> "DEFLATE";
+            case CODEC_LZ -> "LZ";
+            default -> "UNKNOWN";
+        };
+    }
+
+    /**
+     * Picks a codec by test-compressing slices from the start, middle and end of the payload.
+     */
+    public static int chooseCodec(byte[] data) {
+        if (data.length < MIN_COMPRESS_SIZE) {
+            return CODEC_STORE;
+        }
+
+        // 1. Estimate the ratio with the fastest Deflate level
+        long sampled = 0;
+        long compressed = 0;
+        int slice = Math.min(SAMPLE_SLICE, data.length);
+        int[] starts = data.length <= 3 * SAMPLE_SLICE
+                ? new int[]{0}
+                : new int[]{0, (data.length - slice) / 2, data.length - slice};
+        for (int start : starts) {
+            int len = Math.min(slice, data.length - start);
+            compressed += deflate(data, start, len, Deflater.BEST_SPEED).length;
+            sampled += len;
+        }
+
+        // 2. Incompressible (already compressed or encrypted data)
+        if (compressed > sampled * STORE_RATIO) {
+            return CODEC_STORE;
+        }
+
+        // 3. Large payloads favour speed
+        return data.length >= LZ_THRESHOLD ? CODEC_LZ : CODEC_DEFLATE;
+    }
+
+    // ==================================================================================
+    // GZIP (LEGACY API)
+    // ==================================================================================
+
     /**
      * Compresses raw byte data using GZIP.
      */
@@ -32,10 +197,10 @@ public class CompressionUtils {
             return compressedData; // Return as-is if not compressed
         }
 
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(compressedData.length * 3);
         try (ByteArrayInputStream bis = new ByteArrayInputStream(compressedData);
-             GZIPInputStream gzip = new GZIPInputStream(bis)) {
-            byte[] buffer = new byte[1024];
+             GZIPInputStream gzip = new GZIPInputStream(bis, 8192)) {
+            byte[] buffer = BUFFER.get();
             int len;
             while ((len = gzip.read(buffer)) > 0) {
                 bos.write(buffer, 0, len);
@@ -50,4 +215,51 @@ public class CompressionUtils {
     public static boolean isCompressed(byte[] data) {
         return data.length >= 2 && (data[0] == (byte) 0x1f) && (data[1] == (byte) 0x8b);
     }
+
+    // ==================================================================================
+    // RAW DEFLATE HELPERS
+    // ==================================================================================
+
+    private static byte[] deflate(byte[] data, int offset, int length, int level) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+
+        byte[] buffer = BUFFER.get();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, length / 2));
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            bos.write(buffer, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Inflates straight into an array of the recorded size (no intermediate stream).
+     */
+    private static byte[] inflate(byte[] data, int offset, int length, int originalLength) throws Exception {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(data, offset, length);
+
+        byte[] out = new byte[originalLength];
+        int written = 0;
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out, written, out.length - written);
+                written += n;
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary() || written == out.length)) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new Exception("Corrupt compressed payload: " + e.getMessage());
+        }
+        if (!inflater.finished() || written != originalLength) {
+            throw new Exception("Corrupt compressed payload (length mismatch).");
+        }
+        return out;
+    }
 }
\ No newline at end of file
@@ -38,6 +38,13 @@ public class Config {
     public static final Font FONT_MONO = new Font("Consolas", Font.PLAIN, 12);
     public static final Font FONT_TERMINAL = new Font("Lucida Console", Font.PLAIN, 11); // New Terminal Font
 
+    // ==================================================================================
+    // LOGGING
+    // ==================================================================================
+
+    // -Dsecurestego.logFile=PATH also writes the terminal to a JSON-lines file (off by default)
+    public static final String LOG_FILE_PROPERTY = "securestego.logFile";
+
     // ==================================================================================
     // FILE EXTENSIONS
     // ==================================================================================
@@ -7,16 +7,31 @@ import java.io.IOException;
 
 public class ExceptionHandler {
 
+    /**
+     * Shows the error dialog on the Event Dispatch Thread, whichever thread reports the failure.
+     */
     public static void handle(Exception e, String title) {
         e.printStackTrace(); // Log to console for debugging
 
         String userMessage = getUserFriendlyMessage(e);
-        Toolkit.getDefaultToolkit().beep();
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> showError(userMessage, title));
+            return;
+        }
+        showError(userMessage, title);
+    }
 
+    private static void showError(String userMessage, String title) {
+        Toolkit.getDefaultToolkit().beep();
         JOptionPane.showMessageDialog(null, userMessage, title, JOptionPane.ERROR_MESSAGE);
     }
 
-    private static String getUserFriendlyMessage(Exception e) {
+    /**
+     * The message shown for a failure. A plain {@link Exception} without a cause is a condition the
+     * pipelines report on purpose (wrong password, carrier too small) and keeps its own message;
+     * anything else is a bug or an environment failure and says so.
+     */
+    public static String getUserFriendlyMessage(Exception e) {
         if (e instanceof AEADBadTagException) {
             return "Decryption Failed: Incorrect Password or Tampered Data.";
         }
@@ -26,6 +41,16 @@ public class ExceptionHandler {
         if (e instanceof IllegalArgumentException) {
             return "Invalid Input: " + e.getMessage();
         }
+        if (isReported(e)) {
+            return e.getMessage();
+        }
         return "An unexpected error occurred: " + e.getMessage();
     }
+
+    /**
+     * True for the failures {@link #getUserFriendlyMessage} passes through: a message for the user, not a bug.
+     */
+    public static boolean isReported(Exception e) {
+        return e.getClass() == Exception.class && e.getCause() == null && e.getMessage() != null;
+    }
 }
\ No newline at end of file
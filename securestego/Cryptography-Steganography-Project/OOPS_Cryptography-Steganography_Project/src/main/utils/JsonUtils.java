@@ -0,0 +1,37 @@
+package src.main.utils;
+
+import java.util.Locale;
+
+/**
+ * JSON helpers for the machine-readable outputs (batch summaries, the file log).
+ */
+public final class JsonUtils {
+
+    private JsonUtils() {
+    }
+
+    /**
+     * The string as a quoted JSON literal; quotes, backslashes and control characters are escaped.
+     */
+    public static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
\ No newline at end of file
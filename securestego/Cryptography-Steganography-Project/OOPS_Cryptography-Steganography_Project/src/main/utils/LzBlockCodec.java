@@ -0,0 +1,185 @@
+package src.main.utils;
+
+import java.util.Arrays;
+
+/**
+ * Fast LZ77 block codec (LZ4 block layout) for large payloads where Deflate is too slow.
+ * * FORMAT (sequence of):
+ * [token: literal length 4 bits | match length - 4, 4 bits]
+ * [extra literal length bytes (255 = continue)] [literals]
+ * [match offset 2 bytes, little endian] [extra match length bytes]
+ * * The last sequence carries literals only. Single-pass greedy matching through a
+ * 4096-entry hash table trades some ratio for several times the speed of Deflate.
+ */
+final class LzBlockCodec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_LOG = 12;
+    private static final int MAX_OFFSET = 65535;
+    // The last bytes are always emitted as literals (keeps the decoder's copy loops simple)
+    private static final int LAST_LITERALS = 5;
+
+    private LzBlockCodec() {
+    }
+
+    /**
+     * Worst case output size (incompressible input).
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    static byte[] compress(byte[] src) {
+        byte[] dst = new byte[maxCompressedLength(src.length)];
+        int[] table = new int[1 << HASH_LOG];
+        int end = src.length;
+        int matchLimit = end - LAST_LITERALS;
+
+        int anchor = 0; // start of pending literals
+        int ip = 0;
+        int op = 0;
+
+        while (ip + MIN_MATCH <= matchLimit) {
+            // 1. Look up the previous position with the same 4-byte prefix
+            int sequence = readInt(src, ip);
+            int h = hash(sequence);
+            int candidate = table[h] - 1; // stored +1 so 0 means empty
+            table[h] = ip + 1;
+
+            if (candidate < 0 || ip - candidate > MAX_OFFSET || readInt(src, candidate) != sequence) {
+                ip++;
+                continue;
+            }
+
+            // 2. Extend the match forwards
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < matchLimit && src[candidate + matchLength] == src[ip + matchLength]) {
+                matchLength++;
+            }
+
+            // 3. Emit [token][literals][offset][match length]
+            op = writeSequence(dst, op, src, anchor, ip - anchor, ip - candidate, matchLength);
+            ip += matchLength;
+            anchor = ip;
+        }
+
+        // 4. Trailing literals
+        op = writeLiterals(dst, op, src, anchor, end - anchor);
+        return Arrays.copyOf(dst, op);
+    }
+
+    /**
+     * Decodes into a buffer of the known original length.
+     */
+    static byte[] decompress(byte[] src, int offset, int length, int originalLength) throws Exception {
+        byte[] dst = new byte[originalLength];
+        int ip = offset;
+        int end = offset + length;
+        int op = 0;
+
+        try {
+            while (ip < end) {
+                int token = src[ip++] & 0xFF;
+
+                // 1. Literals
+                int literalLength = token >>> 4;
+                if (literalLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literalLength += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLength);
+                ip += literalLength;
+                op += literalLength;
+                if (ip >= end) {
+                    break; // last sequence has no match
+                }
+
+                // 2. Match
+                int matchOffset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+                ip += 2;
+                int matchLength = token & 0x0F;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int from = op - matchOffset;
+                if (matchOffset == 0 || from < 0) {
+                    throw new Exception("Corrupt LZ block (bad match offset).");
+                }
+                if (matchOffset >= matchLength) {
+                    System.arraycopy(dst, from, dst, op, matchLength);
+                } else {
+                    // Overlapping copy repeats the last bytes (run-length case)
+                    for (int i = 0; i < matchLength; i++) {
+                        dst[op + i] = dst[from + i];
+                    }
+                }
+                op += matchLength;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new Exception("Corrupt LZ block (truncated or overlong).");
+        }
+
+        if (op != originalLength) {
+            throw new Exception("Corrupt LZ block (length mismatch).");
+        }
+        return dst;
+    }
+
+    // ==================================================================================
+    // HELPERS
+    // ==================================================================================
+
+    private static int writeSequence(byte[] dst, int op, byte[] src, int literalStart, int literalLength,
+                                     int matchOffset, int matchLength) {
+        int ml = matchLength - MIN_MATCH;
+        int tokenPos = op++;
+        dst[tokenPos] = (byte) ((Math.min(literalLength, 15) << 4) | Math.min(ml, 15));
+        op = writeLength(dst, op, literalLength);
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        op += literalLength;
+
+        dst[op++] = (byte) matchOffset;
+        dst[op++] = (byte) (matchOffset >>> 8);
+        return writeLength(dst, op, ml);
+    }
+
+    private static int writeLiterals(byte[] dst, int op, byte[] src, int literalStart, int literalLength) {
+        dst[op++] = (byte) (Math.min(literalLength, 15) << 4);
+        op = writeLength(dst, op, literalLength);
+        System.arraycopy(src, literalStart, dst, op, literalLength);
+        return op + literalLength;
+    }
+
+    /**
+     * Extra length bytes for values that do not fit the 4-bit token field.
+     */
+    private static int writeLength(byte[] dst, int op, int length) {
+        if (length < 15) {
+            return op;
+        }
+        length -= 15;
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
\ No newline at end of file
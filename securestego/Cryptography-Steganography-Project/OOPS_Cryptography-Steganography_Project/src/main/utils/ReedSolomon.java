@@ -0,0 +1,236 @@
+package src.main.utils;
+
+import java.util.Arrays;
+
+/**
+ * Systematic Reed-Solomon erasure code over GF(256) for equally sized shards.
+ * k data shards are kept as they are and m parity shards are added; any k of the k + m shards
+ * rebuild the rest.
+ * * LOGIC:
+ * - Field: GF(2^8) with the polynomial x^8 + x^4 + x^3 + x^2 + 1 (0x11D), multiplied through
+ *   a 64 KB product table so the inner loops are one lookup and one XOR per byte.
+ * - Encoding matrix: identity on top of a k x m Cauchy block, 1 / (x_i + y_j) with x_i = k + i and
+ *   y_j = j. Every square submatrix of a Cauchy matrix is invertible, so every choice of k surviving
+ *   rows is.
+ * - Reconstruction: invert the k x k matrix of the first k surviving rows (Gauss-Jordan), then
+ *   rebuild each missing shard as one linear combination of the survivors.
+ * * Byte position b of each shard forms its own codeword, so shards may be of any (equal) length,
+ * and long shards can be encoded or rebuilt slice by slice ({@link #encodeParitySlice}, {@link #reconstruct}).
+ */
+public final class ReedSolomon {
+
+    /** k + m may not exceed the number of distinct field elements. */
+    public static final int MAX_SHARDS = 256;
+
+    private static final int POLYNOMIAL = 0x11D;
+
+    private static final int[] EXP = new int[512];
+    private static final int[] LOG = new int[256];
+    private static final byte[] MUL = new byte[256 * 256];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x >= 256) {
+                x ^= POLYNOMIAL;
+            }
+        }
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+        for (int a = 1; a < 256; a++) {
+            for (int b = 1; b < 256; b++) {
+                MUL[(a << 8) | b] = (byte) EXP[LOG[a] + LOG[b]];
+            }
+        }
+    }
+
+    private final int dataShards;
+    private final int parityShards;
+    // (k + m) x k encoding matrix, identity rows first
+    private final int[][] matrix;
+
+    // Inverse for the last survivor rows, reused while slices of one shard set are rebuilt (one thread per instance)
+    private int[] decodeRows;
+    private int[][] decode;
+
+    public ReedSolomon(int dataShards, int parityShards) {
+        if (dataShards < 1 || parityShards < 0 || dataShards + parityShards > MAX_SHARDS) {
+            throw new IllegalArgumentException("Invalid shard counts: " + dataShards + " data, " + parityShards + " parity.");
+        }
+        this.dataShards = dataShards;
+        this.parityShards = parityShards;
+        this.matrix = new int[dataShards + parityShards][dataShards];
+        for (int r = 0; r < dataShards; r++) {
+            matrix[r][r] = 1;
+        }
+        for (int i = 0; i < parityShards; i++) {
+            for (int j = 0; j < dataShards; j++) {
+                matrix[dataShards + i][j] = inverse((dataShards + i) ^ j);
+            }
+        }
+    }
+
+    public int dataShards() {
+        return dataShards;
+    }
+
+    public int parityShards() {
+        return parityShards;
+    }
+
+    /**
+     * Fills shards[k .. k + m - 1] (allocated, zero-filled) from the data shards shards[0 .. k - 1].
+     */
+    public void encodeParity(byte[][] shards) {
+        int length = shards[0].length;
+        for (int i = 0; i < parityShards; i++) {
+            byte[] parity = shards[dataShards + i];
+            for (int j = 0; j < dataShards; j++) {
+                mulAdd(matrix[dataShards + i][j], shards[j], parity, length);
+            }
+        }
+    }
+
+    /**
+     * Adds one slice of data shard {@code dataIndex} to the same slice of parity shard {@code parityIndex}:
+     * parity[at + b] ^= c * data[b] for b < length. Calling it for every data shard encodes that slice.
+     */
+    public void encodeParitySlice(int parityIndex, int dataIndex, byte[] data, byte[] parity, int at, int length) {
+        mulAdd(matrix[dataShards + parityIndex][dataIndex], data, 0, parity, at, length);
+    }
+
+    /**
+     * Rebuilds the missing (null) entries of {@code shards} in place.
+     * @param length shard length in bytes
+     */
+    public void reconstruct(byte[][] shards, int length) throws Exception {
+        // 1. Pick the first k survivors
+        int[] rows = new int[dataShards];
+        int present = 0;
+        for (int r = 0; r < shards.length && present < dataShards; r++) {
+            if (shards[r] != null) {
+                rows[present++] = r;
+            }
+        }
+        if (present < dataShards) {
+            throw new Exception("Not enough shards to rebuild the payload. Need " + dataShards + ", found " + present + ".");
+        }
+
+        // 2. Missing data shards: rows of the inverted survivor matrix applied to the survivors
+        for (int d = 0; d < dataShards; d++) {
+            if (shards[d] != null) {
+                continue;
+            }
+            if (!Arrays.equals(rows, decodeRows)) {
+                int[][] sub = new int[dataShards][];
+                for (int i = 0; i < dataShards; i++) {
+                    sub[i] = matrix[rows[i]].clone();
+                }
+                decode = invert(sub);
+                decodeRows = rows;
+            }
+            byte[] rebuilt = new byte[length];
+            for (int i = 0; i < dataShards; i++) {
+                mulAdd(decode[d][i], shards[rows[i]], rebuilt, length);
+            }
+            shards[d] = rebuilt;
+        }
+
+        // 3. Missing parity shards: re-encode from the (now complete) data shards
+        for (int i = 0; i < parityShards; i++) {
+            if (shards[dataShards + i] == null) {
+                byte[] parity = new byte[length];
+                for (int j = 0; j < dataShards; j++) {
+                    mulAdd(matrix[dataShards + i][j], shards[j], parity, length);
+                }
+                shards[dataShards + i] = parity;
+            }
+        }
+    }
+
+    // ==================================================================================
+    // GF(256) ARITHMETIC
+    // ==================================================================================
+
+    /**
+     * target[b] ^= coefficient * source[b]
+     */
+    private static void mulAdd(int coefficient, byte[] source, byte[] target, int length) {
+        mulAdd(coefficient, source, 0, target, 0, length);
+    }
+
+    private static void mulAdd(int coefficient, byte[] source, int from, byte[] target, int at, int length) {
+        if (coefficient == 0) {
+            return;
+        }
+        if (coefficient == 1) {
+            for (int b = 0; b < length; b++) {
+                target[at + b] ^= source[from + b];
+            }
+            return;
+        }
+        int row = coefficient << 8;
+        for (int b = 0; b < length; b++) {
+            target[at + b] ^= MUL[row | (source[from + b] & 0xFF)];
+        }
+    }
+
+    private static int multiply(int a, int b) {
+        return MUL[(a << 8) | b] & 0xFF;
+    }
+
+    private static int inverse(int a) {
+        return EXP[255 - LOG[a]];
+    }
+
+    /**
+     * Gauss-Jordan inversion; the input is overwritten.
+     */
+    private static int[][] invert(int[][] m) throws Exception {
+        int n = m.length;
+        int[][] inv = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            inv[i][i] = 1;
+        }
+        for (int col = 0; col < n; col++) {
+            // 1. Pivot: a row at or below col with a non-zero entry
+            int pivot = col;
+            while (pivot < n && m[pivot][col] == 0) {
+                pivot++;
+            }
+            if (pivot == n) {
+                throw new Exception("Shard matrix is singular.");
+            }
+            int[] swap = m[col];
+            m[col] = m[pivot];
+            m[pivot] = swap;
+            swap = inv[col];
+            inv[col] = inv[pivot];
+            inv[pivot] = swap;
+
+            // 2. Scale the pivot row to 1
+            int scale = inverse(m[col][col]);
+            for (int j = 0; j < n; j++) {
+                m[col][j] = multiply(m[col][j], scale);
+                inv[col][j] = multiply(inv[col][j], scale);
+            }
+
+            // 3. Eliminate the column from every other row (subtraction is XOR)
+            for (int r = 0; r < n; r++) {
+                int factor = m[r][col];
+                if (r == col || factor == 0) {
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    m[r][j] ^= multiply(m[col][j], factor);
+                    inv[r][j] ^= multiply(inv[col][j], factor);
+                }
+            }
+        }
+        return inv;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package src.main.utils;
+
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PROGRESS & CANCELLATION OF ONE OPERATION.
+ * Engines report bytes processed per stage; the UI polls the figures on a timer and may cancel.
+ * * LOGIC:
+ * 1. The caller binds a tracker to its thread ({@link #bind()}); every engine picks it up with
+ *    {@link #current()} when an operation starts (unbound threads get {@link #NONE}, which ignores everything).
+ * 2. {@link #begin} starts a stage (e.g. "ENCRYPT", "EMBED") with its byte total and resets the clock.
+ * 3. Hot loops call {@link #advance} / {@link #update} only every {@link #STRIDE} iterations or per I/O chunk;
+ *    each call is an atomic add, a clock read and a flag check, and throws {@link CancellationException}
+ *    once {@link #cancel()} was requested.
+ * * Worker threads of an engine do not need the binding: the orchestrating thread reports for them.
+ */
+public final class TaskProgress {
+
+    /** Iterations between checkpoints in per-bit loops (a power of two, test with {@link #STRIDE_MASK}). */
+    public static final int STRIDE = 1 << 16;
+    public static final int STRIDE_MASK = STRIDE - 1;
+
+    /** Shared tracker of unbound threads: never cancelled, reports nowhere. */
+    public static final TaskProgress NONE = new TaskProgress();
+
+    private static final ThreadLocal<TaskProgress> CURRENT = new ThreadLocal<>();
+
+    private final AtomicLong done = new AtomicLong();
+    private volatile String stage = "";
+    private volatile long total;
+    private volatile long startNanos = System.nanoTime();
+    private volatile long lastNanos = startNanos;
+    private volatile boolean cancelled;
+
+    /**
+     * Tracker bound to the calling thread, or {@link #NONE}.
+     */
+    public static TaskProgress current() {
+        TaskProgress progress = CURRENT.get();
+        return progress != null ? progress : NONE;
+    }
+
+    /**
+     * Binds this tracker to the calling thread until the returned scope is closed.
+     */
+    public Scope bind() {
+        TaskProgress previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    /**
+     * Restores the previous binding; never throws.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // ==================================================================================
+    // ENGINE SIDE
+    // ==================================================================================
+
+    /**
+     * Starts a stage of {@code totalBytes} (0 if unknown) and restarts the throughput clock.
+     */
+    public void begin(String stage, long totalBytes) {
+        if (this == NONE) {
+            return;
+        }
+        checkCancelled();
+        this.stage = stage;
+        this.total = Math.max(0, totalBytes);
+        this.done.set(0);
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+    }
+
+    /**
+     * Adds processed bytes to the current stage.
+     */
+    public void advance(long bytes) {
+        if (this == NONE) {
+            return;
+        }
+        done.addAndGet(bytes);
+        lastNanos = System.nanoTime();
+        checkCancelled();
+    }
+
+    /**
+     * Sets the processed bytes of the current stage (for loops that know their absolute position).
+     */
+    public void update(long doneBytes) {
+        if (this == NONE) {
+            return;
+        }
+        done.set(doneBytes);
+        lastNanos = System.nanoTime();
+        checkCancelled();
+    }
+
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Operation cancelled.");
+        }
+    }
+
+    // ==================================================================================
+    // UI SIDE
+    // ==================================================================================
+
+    /**
+     * Requests cancellation; the operation stops at its next checkpoint.
+     */
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public String stage() {
+        return stage;
+    }
+
+    public long done() {
+        return done.get();
+    }
+
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Completed share of the current stage in [0, 1], or -1 if its size is unknown.
+     */
+    public double fraction() {
+        long t = total;
+        return t > 0 ? Math.min(1.0, (double) done.get() / t) : -1;
+    }
+
+    /**
+     * Rate of the current stage up to its latest report (so a finished stage keeps its figure).
+     */
+    public double bytesPerSecond() {
+        double seconds = (lastNanos - startNanos) / 1e9;
+        return seconds > 0 ? done.get() / seconds : 0;
+    }
+
+    /**
+     * Estimated milliseconds left in the current stage at the current rate, or -1 if unknown.
+     */
+    public long etaMillis() {
+        long t = total;
+        long d = done.get();
+        double rate = bytesPerSecond();
+        if (t <= 0 || d <= 0 || rate <= 0) {
+            return -1;
+        }
+        return (long) ((t - d) / rate * 1000);
+    }
+
+    /**
+     * One status line, e.g. "EMBED 42% | 118.3 MB/S | ETA 00:07".
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(stage.isEmpty() ? "WORKING" : stage);
+        double f = fraction();
+        if (f >= 0) {
+            sb.append(' ').append((int) (f * 100)).append('%');
+        }
+        sb.append(String.format(Locale.ROOT, " | %.1f MB/S", bytesPerSecond() / (1 << 20)));
+        long eta = etaMillis();
+        if (eta >= 0) {
+            long seconds = (eta + 999) / 1000;
+            sb.append(String.format(Locale.ROOT, " | ETA %02d:%02d", seconds / 60, seconds % 60));
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file